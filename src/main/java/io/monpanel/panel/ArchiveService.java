@@ -0,0 +1,389 @@
+package io.monpanel.panel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Archives .tar.gz et .zip des fichiers des serveurs, créées et extraites en flux : les
+ * fichiers sont lus et écrits au fil de l'eau, sans copie intermédiaire en mémoire ni sur
+ * disque. Le gzip est compressé sur plusieurs cœurs (ParallelGzipOutputStream) au niveau
+ * panel.archives.compression-level ; le zip, dont chaque entrée dépend de la précédente,
+ * reste compressé sur un seul cœur.
+ */
+@Service
+public class ArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveService.class);
+
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+
+    public enum Format {
+        TAR_GZ(".tar.gz"), ZIP(".zip");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromName(String name) {
+            return "zip".equalsIgnoreCase(name) || ".zip".equalsIgnoreCase(name) ? ZIP : TAR_GZ;
+        }
+    }
+
+    private final int defaultLevel;
+    private final int blockSize;
+    private final int compressionThreads;
+    private final ExecutorService compressionPool;
+
+    public ArchiveService(@Value("${panel.archives.compression-level:6}") int defaultLevel,
+                          @Value("${panel.archives.compression-threads:0}") int compressionThreads,
+                          @Value("${panel.archives.block-size-bytes:1048576}") int blockSize) {
+        this.defaultLevel = clampLevel(defaultLevel);
+        this.blockSize = blockSize;
+        this.compressionThreads = compressionThreads > 0 ? compressionThreads : Runtime.getRuntime().availableProcessors();
+        // Travail purement CPU : des threads plateforme, autant que de cœurs.
+        AtomicInteger counter = new AtomicInteger();
+        this.compressionPool = Executors.newFixedThreadPool(this.compressionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "archive-gzip-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static int clampLevel(int level) {
+        return Math.max(0, Math.min(9, level));
+    }
+
+    /**
+     * Format d'une archive d'après son nom, ou null si elle n'est pas reconnue.
+     */
+    public static String archiveType(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz")) {
+            return "tar.gz";
+        }
+        if (lower.endsWith(".tar")) {
+            return "tar";
+        }
+        if (lower.endsWith(".zip")) {
+            return "zip";
+        }
+        return null;
+    }
+
+    /**
+     * Écrit source (fichier ou dossier, sous son propre nom) en archive dans out, puis ferme out.
+     * level à null : niveau par défaut.
+     */
+    public void write(Path source, Format format, Integer level, OutputStream out, Consumer<String> progress) throws IOException {
+        int compression = level == null ? defaultLevel : clampLevel(level);
+        Progress counter = new Progress(progress);
+        if (format == Format.ZIP) {
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024))) {
+                zip.setLevel(compression);
+                walk(source, (name, attributes, file) -> {
+                    ZipEntry entry = new ZipEntry(attributes.isDirectory() ? name + "/" : name);
+                    entry.setLastModifiedTime(attributes.lastModifiedTime());
+                    zip.putNextEntry(entry);
+                    if (file != null) {
+                        try (InputStream input = Files.newInputStream(file)) {
+                            counter.add(input.transferTo(zip));
+                        }
+                    }
+                    zip.closeEntry();
+                });
+            }
+        } else {
+            OutputStream gzip = compressionThreads > 1
+                ? new ParallelGzipOutputStream(out, compressionPool, compression, blockSize, compressionThreads * 2)
+                : new GZIPOutputStream(out, 64 * 1024) {
+                    {
+                        def.setLevel(compression);
+                    }
+                };
+            try (TarArchive.Writer tar = new TarArchive.Writer(gzip)) {
+                walk(source, (name, attributes, file) -> {
+                    long mtime = attributes.lastModifiedTime().toMillis();
+                    if (file == null) {
+                        tar.putDirectory(name, mtime);
+                        return;
+                    }
+                    try (InputStream input = Files.newInputStream(file)) {
+                        long copied = tar.putFile(name, attributes.size(), mtime, input);
+                        if (copied < attributes.size()) {
+                            log.warn("{} a raccourci pendant l'archivage, fin complétée par des zéros.", file);
+                        }
+                        counter.add(copied);
+                    }
+                });
+            }
+        }
+        counter.report(true);
+    }
+
+    /**
+     * Dépassement de la taille maximale autorisée pour une archive créée ou extraite.
+     */
+    public static class SizeLimitException extends IOException {
+        public SizeLimitException(long maxBytes) {
+            super("Écriture interrompue : plus de " + ServerStats.formatBinarySize(maxBytes) + " écrits.");
+        }
+    }
+
+    /**
+     * Crée l'archive à côté de source (nom.tar.gz, ou nom-1.tar.gz s'il existe déjà).
+     * Elle est écrite dans un fichier caché puis renommée : jamais d'archive à moitié écrite visible.
+     * Au-delà de maxBytes (Long.MAX_VALUE : sans limite), elle est abandonnée avec SizeLimitException.
+     */
+    public Path create(Path source, Format format, Integer level, long maxBytes, Consumer<String> progress) throws IOException {
+        String baseName = source.getFileName().toString();
+        Path target = source.resolveSibling(baseName + format.getExtension());
+        for (int i = 1; Files.exists(target); i++) {
+            target = source.resolveSibling(baseName + "-" + i + format.getExtension());
+        }
+        Path temp = target.resolveSibling("." + target.getFileName() + ".part");
+        try {
+            write(source, format, level, new LimitedOutputStream(Files.newOutputStream(temp), maxBytes), progress);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        log.info("Archive {} créée ({}).", target, ServerStats.formatBinarySize(Files.size(target)));
+        return target;
+    }
+
+    /**
+     * Extrait archive dans destination. Les entrées qui sortiraient de destination
+     * (chemins absolus, "..", dossiers remplacés par des liens) font échouer l'extraction ;
+     * les liens ne sont pas recréés. Au-delà de maxBytes écrits (Long.MAX_VALUE : sans limite), le fichier
+     * en cours est supprimé et SizeLimitException levée. Renvoie le nombre de fichiers extraits.
+     */
+    public int extract(Path archive, Path destination, long maxBytes, Consumer<String> progress) throws IOException {
+        String type = archiveType(archive.getFileName().toString());
+        if (type == null) {
+            throw new IllegalArgumentException("Format d'archive non pris en charge : " + archive.getFileName());
+        }
+        Path root = destination.toAbsolutePath().normalize();
+        Progress counter = new Progress(progress);
+        AtomicInteger files = new AtomicInteger();
+        long[] remaining = { Math.max(0, maxBytes) };
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(archive), 64 * 1024)) {
+            if (type.equals("zip")) {
+                ZipInputStream zip = new ZipInputStream(raw);
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    long mtime = entry.getLastModifiedTime() != null ? entry.getLastModifiedTime().toMillis() : -1;
+                    extractEntry(root, entry.getName(), entry.isDirectory(), mtime, zip, counter, files, remaining, maxBytes);
+                }
+            } else {
+                // GZIPInputStream lit aussi les gzip à plusieurs membres produits en parallèle.
+                InputStream tarStream = type.equals("tar.gz") ? new GZIPInputStream(raw, 64 * 1024) : raw;
+                TarArchive.read(tarStream, (name, directory, size, mtime, data) ->
+                    extractEntry(root, name, directory, mtime, data, counter, files, remaining, maxBytes));
+            }
+        }
+        counter.report(true);
+        log.info("Archive {} extraite dans {} ({} fichiers).", archive, destination, files.get());
+        return files.get();
+    }
+
+    private void extractEntry(Path root, String name, boolean directory, long mtimeMillis, InputStream data,
+                              Progress counter, AtomicInteger files, long[] remaining, long maxBytes) throws IOException {
+        Path target = resolveEntry(root, name);
+        if (target.equals(root)) {
+            return;
+        }
+        if (directory) {
+            createDirectories(root, target);
+            return;
+        }
+        createDirectories(root, target.getParent());
+        long written = 0;
+        try (OutputStream output = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE, LinkOption.NOFOLLOW_LINKS)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = data.read(buffer)) > 0) {
+                if (read > remaining[0]) {
+                    throw new SizeLimitException(maxBytes);
+                }
+                output.write(buffer, 0, read);
+                remaining[0] -= read;
+                written += read;
+            }
+        } catch (SizeLimitException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        counter.add(written);
+        if (mtimeMillis > 0) {
+            Files.setLastModifiedTime(target, FileTime.fromMillis(mtimeMillis));
+        }
+        files.incrementAndGet();
+    }
+
+    /**
+     * Crée dir et ses parents sous root, un élément à la fois et sans suivre les liens : un
+     * élément existant qui n'est pas un vrai dossier (lien vers l'extérieur...) fait échouer.
+     */
+    private static void createDirectories(Path root, Path dir) throws IOException {
+        Path current = root;
+        for (Path part : root.relativize(dir)) {
+            current = current.resolve(part);
+            if (Files.isDirectory(current, LinkOption.NOFOLLOW_LINKS)) {
+                continue;
+            }
+            if (Files.exists(current, LinkOption.NOFOLLOW_LINKS)) {
+                throw new IOException("Entrée d'archive sous un élément qui n'est pas un dossier : " + root.relativize(current));
+            }
+            Files.createDirectory(current);
+        }
+    }
+
+    private Path resolveEntry(Path root, String name) throws IOException {
+        String relative = name.replace('\\', '/');
+        while (relative.startsWith("./")) {
+            relative = relative.substring(2);
+        }
+        Path target = root.resolve(relative).normalize();
+        if (relative.startsWith("/") || !target.startsWith(root)) {
+            throw new IOException("Entrée d'archive hors du dossier de destination : " + name);
+        }
+        return target;
+    }
+
+    @FunctionalInterface
+    private interface EntryVisitor {
+        /** file est null pour un dossier. */
+        void visit(String name, BasicFileAttributes attributes, Path file) throws IOException;
+    }
+
+    /**
+     * Parcourt source en profondeur, sans suivre les liens symboliques (ignorés).
+     */
+    private void walk(Path source, EntryVisitor visitor) throws IOException {
+        Path base = source.toAbsolutePath().normalize().getParent();
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                visitor.visit(entryName(base, dir), attributes, null);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (attributes.isRegularFile() && !file.getFileName().toString().endsWith(".part")) {
+                    visitor.visit(entryName(base, file), attributes, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Fichier supprimé entre-temps par le serveur en marche : on continue sans lui.
+                log.warn("{} ignoré pendant l'archivage : {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String entryName(Path base, Path path) {
+        return base.relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    /**
+     * Refuse d'écrire plus de maxBytes dans le flux sous-jacent.
+     */
+    private static class LimitedOutputStream extends FilterOutputStream {
+        private final long maxBytes;
+        private long remaining;
+
+        LimitedOutputStream(OutputStream out, long maxBytes) {
+            super(out);
+            this.maxBytes = maxBytes;
+            this.remaining = Math.max(0, maxBytes);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > remaining) {
+                throw new SizeLimitException(maxBytes);
+            }
+            out.write(bytes, offset, length);
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Avancement envoyé au plus toutes les PROGRESS_INTERVAL_MS.
+     */
+    private static class Progress {
+        private final Consumer<String> sink;
+        private long bytes = 0;
+        private int entries = 0;
+        private long lastReport = System.currentTimeMillis();
+
+        Progress(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        void add(long count) {
+            bytes += count;
+            entries++;
+            report(false);
+        }
+
+        void report(boolean force) {
+            long now = System.currentTimeMillis();
+            if (sink != null && (force || now - lastReport >= PROGRESS_INTERVAL_MS)) {
+                lastReport = now;
+                sink.accept(entries + " fichiers, " + ServerStats.formatBinarySize(bytes));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compressionPool.shutdownNow();
+    }
+}
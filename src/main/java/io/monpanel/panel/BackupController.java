@@ -0,0 +1,69 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class BackupController {
+
+    @Autowired
+    private ServerRepository serverRepository;
+
+    @Autowired
+    private BackupService backupService;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private DirectoryListingCache directoryListingCache;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @GetMapping("/api/server/{id}/backups")
+    public ResponseEntity<List<BackupService.SnapshotInfo>> listBackups(@PathVariable Long id) throws IOException {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        return ResponseEntity.ok(backupService.listSnapshots(server));
+    }
+
+    @PostMapping("/api/server/{id}/backups")
+    public ResponseEntity<Job> createBackup(@PathVariable Long id) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        return ResponseEntity.accepted().body(jobService.submit("backup", server.getId(), job -> {
+            BackupService.SnapshotInfo info = backupService.backup(server, job::progress);
+            return "Sauvegarde " + info.id() + " créée (" + ServerStats.formatBinarySize(info.storedBytes()) + " de nouvelles données).";
+        }));
+    }
+
+    @PostMapping("/api/server/{id}/backups/{snapshotId}/restore")
+    public ResponseEntity<Job> restoreBackup(@PathVariable Long id, @PathVariable String snapshotId) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        return ResponseEntity.accepted().body(jobService.submit("restore", server.getId(), job -> {
+            backupService.restore(server, snapshotId, job::progress);
+            directoryListingCache.invalidate(Paths.get(server.getHostPath()));
+            searchIndexService.pathChanged(server, Paths.get(server.getHostPath()));
+            return "Sauvegarde " + snapshotId + " restaurée.";
+        }));
+    }
+
+    @DeleteMapping("/api/server/{id}/backups/{snapshotId}")
+    public ResponseEntity<?> deleteBackup(@PathVariable Long id, @PathVariable String snapshotId) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        try {
+            backupService.deleteSnapshot(server, snapshotId);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,771 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sauvegardes dédupliquées des dossiers des serveurs, dans un dépôt local (panel.backups.path) :
+ * chunks/ contient des morceaux découpés selon leur contenu (ContentChunker) et nommés par leur
+ * SHA-256, snapshots/&lt;serveur&gt;/ un manifeste par sauvegarde (liste des fichiers et de leurs
+ * morceaux). Un morceau déjà présent n'est jamais réécrit, quel que soit le serveur qui l'a produit.
+ *
+ * Une sauvegarde ne relit que les fichiers dont la taille ou la date ont changé depuis la
+ * précédente ; les autres reprennent leur liste de morceaux telle quelle. Si le serveur tourne,
+ * ces fichiers modifiés sont d'abord copiés à côté sans l'interrompre, puis ses écritures sont
+ * suspendues par RCON (save-off) juste le temps de recopier ceux qui ont encore changé ; le
+ * découpage, plus long, lit ensuite la copie. Après les sauvegardes
+ * planifiées, la politique de rétention est appliquée puis les morceaux plus référencés par aucun
+ * manifeste sont supprimés.
+ */
+@Service
+public class BackupService {
+
+    private static final Logger log = LoggerFactory.getLogger(BackupService.class);
+
+    private static final long PROGRESS_INTERVAL_MS = 2000;
+    private static final DateTimeFormatter ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
+    public record FileRecord(String path, long size, long lastModified, List<String> chunks) {
+    }
+
+    public record Snapshot(String id, Long serverId, long createdAt, long totalBytes, long storedBytes,
+                           int fileCount, int changedFiles, List<String> directories, List<FileRecord> files) {
+    }
+
+    /**
+     * Résumé d'une sauvegarde, gardé à côté du manifeste pour lister sans tout relire.
+     */
+    public record SnapshotInfo(String id, Long serverId, long createdAt, long totalBytes, long storedBytes,
+                               int fileCount, int changedFiles) {
+    }
+
+    private final ServerRepository serverRepository;
+    private final DockerService dockerService;
+    private final RconService rconService;
+    private final BlockingExecutor blockingExecutor;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Path chunksDir;
+    private final Path snapshotsDir;
+    private final Path stagingDir;
+    private final ContentChunker chunker;
+    private final ForkJoinPool filePool;
+    private final Semaphore concurrentBackups;
+    private final int keepLast;
+    private final int keepDaily;
+    private final int keepWeekly;
+    private final long pauseBudgetMs;
+    // Sauvegardes et restaurations en lecture, ramasse-miettes des morceaux en écriture.
+    private final ReentrantReadWriteLock repositoryLock = new ReentrantReadWriteLock();
+    private final Map<Long, ReentrantLock> serverLocks = new ConcurrentHashMap<>();
+
+    public BackupService(ServerRepository serverRepository, DockerService dockerService, RconService rconService,
+                         BlockingExecutor blockingExecutor,
+                         @Value("${panel.backups.path:backups}") String repositoryPath,
+                         @Value("${panel.backups.parallel-files:4}") int parallelFiles,
+                         @Value("${panel.backups.max-concurrent:4}") int maxConcurrent,
+                         @Value("${panel.backups.chunk-min-bytes:16384}") int chunkMin,
+                         @Value("${panel.backups.chunk-avg-bytes:65536}") int chunkAvg,
+                         @Value("${panel.backups.chunk-max-bytes:262144}") int chunkMax,
+                         @Value("${panel.backups.keep-last:3}") int keepLast,
+                         @Value("${panel.backups.keep-daily:7}") int keepDaily,
+                         @Value("${panel.backups.keep-weekly:4}") int keepWeekly,
+                         @Value("${panel.backups.pause-budget-ms:5000}") long pauseBudgetMs) {
+        this.serverRepository = serverRepository;
+        this.dockerService = dockerService;
+        this.rconService = rconService;
+        this.blockingExecutor = blockingExecutor;
+        Path repository = Paths.get(repositoryPath).toAbsolutePath().normalize();
+        this.chunksDir = repository.resolve("chunks");
+        this.snapshotsDir = repository.resolve("snapshots");
+        this.stagingDir = repository.resolve("staging");
+        this.chunker = new ContentChunker(chunkMin, chunkAvg, chunkMax);
+        this.filePool = new ForkJoinPool(Math.max(1, parallelFiles));
+        this.concurrentBackups = new Semaphore(Math.max(1, maxConcurrent));
+        this.keepLast = keepLast;
+        this.keepDaily = keepDaily;
+        this.keepWeekly = keepWeekly;
+        this.pauseBudgetMs = pauseBudgetMs;
+    }
+
+    public List<SnapshotInfo> listSnapshots(Server server) throws IOException {
+        Path dir = snapshotsDir.resolve(String.valueOf(server.getId()));
+        List<SnapshotInfo> infos = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return infos;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.info.json")) {
+            for (Path file : stream) {
+                infos.add(mapper.readValue(file.toFile(), SnapshotInfo.class));
+            }
+        }
+        infos.sort(Comparator.comparingLong(SnapshotInfo::createdAt).reversed());
+        return infos;
+    }
+
+    /**
+     * Sauvegarde le dossier du serveur et renvoie le résumé du nouveau snapshot.
+     */
+    public SnapshotInfo backup(Server server, Consumer<String> progress) throws Exception {
+        ReentrantLock serverLock = serverLocks.computeIfAbsent(server.getId(), id -> new ReentrantLock());
+        if (!serverLock.tryLock()) {
+            throw new IllegalStateException("Une sauvegarde ou restauration de ce serveur est déjà en cours.");
+        }
+        repositoryLock.readLock().lock();
+        try {
+            return doBackup(server, progress);
+        } finally {
+            repositoryLock.readLock().unlock();
+            serverLock.unlock();
+        }
+    }
+
+    private record Scan(List<String> directories, List<FileRecord> unchanged, List<FileRecord> changed) {
+    }
+
+    private SnapshotInfo doBackup(Server server, Consumer<String> progress) throws Exception {
+        long start = System.currentTimeMillis();
+        Path root = Paths.get(server.getHostPath()).toAbsolutePath().normalize();
+        Map<String, FileRecord> previous = new HashMap<>();
+        Optional<SnapshotInfo> latest = listSnapshots(server).stream().findFirst();
+        if (latest.isPresent()) {
+            readSnapshot(server, latest.get().id()).files().forEach(file -> previous.put(file.path(), file));
+        }
+
+        Path source = root;
+        Path staging = stagingDir.resolve(String.valueOf(server.getId()));
+        boolean savesResumed = true;
+        try {
+            Scan scan;
+            boolean running = server.getContainerId() != null && isRunning(server.getContainerId());
+            if (running) {
+                // Serveur en marche : les fichiers modifiés sont copiés une première fois sans
+                // l'interrompre, puis, écritures du monde suspendues et monde écrit, seuls ceux
+                // qui ont encore changé depuis cette copie sont recopiés. Le découpage lit la copie.
+                Scan preScan = scan(root, previous);
+                FileSystemUtils.deleteRecursively(staging);
+                Files.createDirectories(staging);
+                Map<String, FileRecord> staged = stage(root, staging, preScan.changed());
+                report(progress, staged.size() + " fichier(s) copié(s) avant la suspension des écritures.");
+                if (suspendSaves(server)) {
+                    long suspendedAt = System.currentTimeMillis();
+                    List<FileRecord> recopied;
+                    try {
+                        scan = scan(root, previous);
+                        recopied = scan.changed().stream()
+                            .filter(file -> !sameVersion(file, staged.get(file.path())))
+                            .toList();
+                        stage(root, staging, recopied);
+                    } finally {
+                        savesResumed = resumeSaves(server);
+                    }
+                    long pause = System.currentTimeMillis() - suspendedAt;
+                    if (pause > pauseBudgetMs) {
+                        log.warn("Sauvegardes de {} suspendues {} ms, au-delà du budget de {} ms ({} fichier(s) recopié(s) sur {}).",
+                            server.getName(), pause, pauseBudgetMs, recopied.size(), scan.changed().size());
+                    } else {
+                        log.info("Sauvegardes de {} suspendues {} ms (budget {} ms, {} fichier(s) recopié(s) sur {}).",
+                            server.getName(), pause, pauseBudgetMs, recopied.size(), scan.changed().size());
+                    }
+                    report(progress, "Écritures du monde suspendues " + pause + " ms (" + recopied.size() + " fichier(s) recopié(s)).");
+                    source = staging;
+                } else {
+                    log.warn("RCON indisponible pour {} : sauvegarde sans suspendre les écritures du serveur.", server.getName());
+                    scan = scan(root, previous);
+                }
+            } else {
+                scan = scan(root, previous);
+            }
+            List<FileRecord> changed = scan.changed();
+            report(progress, changed.size() + " fichier(s) modifié(s) sur " + (changed.size() + scan.unchanged().size()) + ".");
+
+            Path chunkSource = source;
+            AtomicLong storedBytes = new AtomicLong();
+            AtomicInteger done = new AtomicInteger();
+            AtomicLong lastReport = new AtomicLong(System.currentTimeMillis());
+            List<FileRecord> chunked = filePool.submit(() -> changed.parallelStream()
+                .map(file -> {
+                    FileRecord record = chunkFile(chunkSource, file, storedBytes);
+                    int count = done.incrementAndGet();
+                    long now = System.currentTimeMillis();
+                    long last = lastReport.get();
+                    if (now - last >= PROGRESS_INTERVAL_MS && lastReport.compareAndSet(last, now)) {
+                        report(progress, count + "/" + changed.size() + " fichiers lus, "
+                            + ServerStats.formatBinarySize(storedBytes.get()) + " de nouvelles données.");
+                    }
+                    return record;
+                })
+                .filter(record -> record != null)
+                .toList()).get();
+
+            List<FileRecord> files = new ArrayList<>(scan.unchanged());
+            files.addAll(chunked);
+            files.sort(Comparator.comparing(FileRecord::path));
+            long totalBytes = files.stream().mapToLong(FileRecord::size).sum();
+            long createdAt = System.currentTimeMillis();
+            String id = ID_FORMAT.format(Instant.ofEpochMilli(createdAt)) + "-" + UUID.randomUUID().toString().substring(0, 4);
+            Snapshot snapshot = new Snapshot(id, server.getId(), createdAt, totalBytes, storedBytes.get(),
+                files.size(), chunked.size(), scan.directories(), files);
+            SnapshotInfo info = writeSnapshot(snapshot);
+            log.info("Sauvegarde {} du serveur {} : {} fichiers ({}), {} modifiés, {} stockés en {} ms.", id, server.getName(),
+                files.size(), ServerStats.formatBinarySize(totalBytes), chunked.size(),
+                ServerStats.formatBinarySize(storedBytes.get()), System.currentTimeMillis() - start);
+            if (!savesResumed) {
+                // La sauvegarde est bonne, mais le serveur n'écrit plus son monde : la tâche échoue
+                // pour que ce soit vu.
+                report(progress, savesLeftOffMessage(server));
+                throw new IllegalStateException("Sauvegarde " + id + " créée, mais " + savesLeftOffMessage(server));
+            }
+            return info;
+        } finally {
+            FileSystemUtils.deleteRecursively(staging);
+        }
+    }
+
+    /**
+     * Relève les dossiers et fichiers de root ; ceux dont la taille et la date n'ont pas changé
+     * depuis le snapshot précédent reprennent sa liste de morceaux.
+     */
+    private Scan scan(Path root, Map<String, FileRecord> previous) throws IOException {
+        List<String> directories = new ArrayList<>();
+        List<FileRecord> unchanged = new ArrayList<>();
+        List<FileRecord> changed = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (!dir.equals(root)) {
+                    directories.add(relative(root, dir));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String path = relative(root, file);
+                long lastModified = attributes.lastModifiedTime().toMillis();
+                FileRecord known = previous.get(path);
+                if (known != null && known.size() == attributes.size() && known.lastModified() == lastModified) {
+                    unchanged.add(known);
+                } else {
+                    changed.add(new FileRecord(path, attributes.size(), lastModified, null));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                log.warn("{} ignoré pendant la sauvegarde : {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new Scan(directories, unchanged, changed);
+    }
+
+    /**
+     * Copie les fichiers dans staging, dates comprises, en remplaçant une copie précédente.
+     * Sous Linux, Files.copy passe par copy_file_range : sur btrfs ou xfs, la copie partage les
+     * blocs (reflink) et est quasi instantanée. Pas de liens physiques : Minecraft réécrit les
+     * fichiers de région sur place, la copie changerait avec eux dès la reprise des sauvegardes.
+     *
+     * Renvoie, par chemin, la taille et la date des fichiers restés identiques pendant leur copie
+     * (les autres sont à recopier).
+     */
+    private Map<String, FileRecord> stage(Path root, Path staging, List<FileRecord> files) throws Exception {
+        Map<String, FileRecord> copied = new ConcurrentHashMap<>();
+        filePool.submit(() -> files.parallelStream().forEach(file -> {
+            try {
+                Path source = root.resolve(file.path());
+                Path target = staging.resolve(file.path());
+                Files.createDirectories(target.getParent());
+                BasicFileAttributes before = Files.readAttributes(source, BasicFileAttributes.class);
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
+                BasicFileAttributes after = Files.readAttributes(source, BasicFileAttributes.class);
+                if (before.size() == after.size() && before.lastModifiedTime().equals(after.lastModifiedTime())) {
+                    copied.put(file.path(), new FileRecord(file.path(), after.size(), after.lastModifiedTime().toMillis(), null));
+                }
+            } catch (NoSuchFileException e) {
+                // Supprimé depuis le relevé : chunkFile l'ignorera.
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        })).get();
+        return copied;
+    }
+
+    private static boolean sameVersion(FileRecord file, FileRecord staged) {
+        return staged != null && staged.size() == file.size() && staged.lastModified() == file.lastModified();
+    }
+
+    /**
+     * save-off puis save-all flush : à la réponse, le monde est entièrement écrit et le serveur
+     * n'y touche plus. Faux si le serveur ne répond pas en RCON ; IllegalStateException si les
+     * sauvegardes n'ont pas pu être réactivées après un flush en échec.
+     */
+    private boolean suspendSaves(Server server) {
+        try {
+            rconService.execute(server, "save-off");
+        } catch (Exception e) {
+            log.debug("save-off refusé par {} : {}", server.getName(), e.getMessage());
+            return false;
+        }
+        try {
+            rconService.execute(server, "save-all flush");
+            return true;
+        } catch (Exception e) {
+            log.warn("save-all flush en échec sur {} : {}", server.getName(), e.getMessage());
+            if (!resumeSaves(server)) {
+                throw new IllegalStateException("Sauvegarde annulée : " + savesLeftOffMessage(server));
+            }
+            return false;
+        }
+    }
+
+    /**
+     * save-on, réessayé une fois sur une nouvelle connexion RCON. Faux si le serveur n'écrit
+     * toujours plus son monde.
+     */
+    private boolean resumeSaves(Server server) {
+        try {
+            rconService.execute(server, "save-on");
+            return true;
+        } catch (Exception e) {
+            log.warn("save-on en échec sur {} ({}), nouvel essai sur une nouvelle connexion.", server.getName(), e.getMessage());
+        }
+        rconService.disconnect(server);
+        try {
+            rconService.execute(server, "save-on");
+            return true;
+        } catch (Exception e) {
+            log.error("Impossible de réactiver les sauvegardes de {} (save-on) : {}. Le serveur n'écrit plus son monde sur le disque.",
+                server.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static String savesLeftOffMessage(Server server) {
+        return "les écritures du monde de " + server.getName() + " sont toujours suspendues (save-on refusé) : "
+            + "lancez save-on depuis la console ou redémarrez le serveur.";
+    }
+
+    /**
+     * Découpe un fichier et stocke ses morceaux absents du dépôt. Null si le fichier a disparu.
+     */
+    private FileRecord chunkFile(Path root, FileRecord file, AtomicLong storedBytes) {
+        Path source = root.resolve(file.path());
+        List<String> chunks = new ArrayList<>();
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream input = Files.newInputStream(source)) {
+                chunker.split(input, (buffer, offset, length) -> {
+                    digest.update(buffer, offset, length);
+                    String hash = HexFormat.of().formatHex(digest.digest());
+                    if (storeChunk(hash, buffer, offset, length)) {
+                        storedBytes.addAndGet(length);
+                    }
+                    chunks.add(hash);
+                });
+            }
+            // Taille et date relues avant la lecture : un fichier modifié pendant celle-ci sera
+            // vu comme changé à la prochaine sauvegarde.
+            return new FileRecord(file.path(), attributes.size(), attributes.lastModifiedTime().toMillis(), chunks);
+        } catch (IOException e) {
+            log.warn("{} ignoré pendant la sauvegarde : {}", source, e.getMessage());
+            return null;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Écrit le morceau s'il n'existe pas encore ; renvoie vrai s'il a été écrit.
+     */
+    private boolean storeChunk(String hash, byte[] buffer, int offset, int length) throws IOException {
+        Path target = chunkPath(hash);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(hash + ".tmp-" + UUID.randomUUID().toString().substring(0, 8));
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            output.write(buffer, offset, length);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Écrit entre-temps par une autre sauvegarde : même contenu.
+            Files.deleteIfExists(temp);
+            if (!Files.exists(target)) {
+                throw e;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private Path chunkPath(String hash) {
+        return chunksDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Remet le dossier du serveur dans l'état du snapshot. Le serveur doit être arrêté.
+     * Les fichiers identiques (même taille et même date) ne sont pas réécrits ; ceux qui
+     * n'existaient pas au moment du snapshot sont supprimés.
+     */
+    public void restore(Server server, String snapshotId, Consumer<String> progress) throws Exception {
+        if (server.getContainerId() != null && isRunning(server.getContainerId())) {
+            throw new IllegalStateException("Arrêtez le serveur avant de restaurer une sauvegarde.");
+        }
+        ReentrantLock serverLock = serverLocks.computeIfAbsent(server.getId(), id -> new ReentrantLock());
+        if (!serverLock.tryLock()) {
+            throw new IllegalStateException("Une sauvegarde ou restauration de ce serveur est déjà en cours.");
+        }
+        repositoryLock.readLock().lock();
+        try {
+            Snapshot snapshot = readSnapshot(server, snapshotId);
+            Path root = Paths.get(server.getHostPath()).toAbsolutePath().normalize();
+            Files.createDirectories(root);
+            for (String directory : snapshot.directories()) {
+                Files.createDirectories(resolveInside(root, directory));
+            }
+            AtomicInteger restored = new AtomicInteger();
+            filePool.submit(() -> snapshot.files().parallelStream().forEach(file -> {
+                try {
+                    if (restoreFile(root, file)) {
+                        int count = restored.incrementAndGet();
+                        if (count % 500 == 0) {
+                            report(progress, count + " fichier(s) restauré(s)...");
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Restauration de " + file.path() + " impossible : " + e.getMessage(), e);
+                }
+            })).get();
+            int removed = removeExtraneous(root, snapshot);
+            report(progress, restored.get() + " fichier(s) restauré(s), " + removed + " élément(s) supprimé(s).");
+            log.info("Serveur {} restauré depuis la sauvegarde {}.", server.getName(), snapshotId);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            repositoryLock.readLock().unlock();
+            serverLock.unlock();
+        }
+    }
+
+    private boolean restoreFile(Path root, FileRecord file) throws IOException {
+        Path target = resolveInside(root, file.path());
+        if (Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS)) {
+            BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.size() == file.size() && attributes.lastModifiedTime().toMillis() == file.lastModified()) {
+                return false;
+            }
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling("." + target.getFileName() + ".restore");
+        try (OutputStream output = Files.newOutputStream(temp)) {
+            for (String hash : file.chunks()) {
+                byte[] chunk = Files.readAllBytes(chunkPath(hash));
+                try {
+                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                    if (!HexFormat.of().formatHex(digest.digest(chunk)).equals(hash)) {
+                        throw new IOException("Morceau " + hash + " corrompu dans le dépôt.");
+                    }
+                } catch (java.security.NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+                output.write(chunk);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.setLastModifiedTime(temp, FileTime.fromMillis(file.lastModified()));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    private int removeExtraneous(Path root, Snapshot snapshot) throws IOException {
+        Set<String> keep = new HashSet<>(snapshot.directories());
+        snapshot.files().forEach(file -> keep.add(file.path()));
+        List<Path> extraneous = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                if (!dir.equals(root) && !keep.contains(relative(root, dir))) {
+                    extraneous.add(dir);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (!keep.contains(relative(root, file))) {
+                    extraneous.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (Path path : extraneous) {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                FileSystemUtils.deleteRecursively(path);
+            } else {
+                Files.deleteIfExists(path);
+            }
+        }
+        return extraneous.size();
+    }
+
+    public void deleteSnapshot(Server server, String snapshotId) throws IOException {
+        Path dir = snapshotsDir.resolve(String.valueOf(server.getId()));
+        Files.deleteIfExists(manifestPath(dir, snapshotId));
+        Files.deleteIfExists(infoPath(dir, snapshotId));
+    }
+
+    /**
+     * Rétention : les keep-last plus récents, plus le dernier de chacun des keep-daily derniers
+     * jours et des keep-weekly dernières semaines ayant une sauvegarde.
+     */
+    public int applyRetention(Server server) throws IOException {
+        List<SnapshotInfo> snapshots = listSnapshots(server);
+        Set<String> kept = new LinkedHashSet<>();
+        snapshots.stream().limit(Math.max(1, keepLast)).forEach(info -> kept.add(info.id()));
+        Set<LocalDate> days = new HashSet<>();
+        Set<String> weeks = new HashSet<>();
+        for (SnapshotInfo info : snapshots) {
+            LocalDate day = Instant.ofEpochMilli(info.createdAt()).atZone(ZoneId.systemDefault()).toLocalDate();
+            if (days.size() < keepDaily && days.add(day)) {
+                kept.add(info.id());
+            }
+            String week = day.get(IsoFields.WEEK_BASED_YEAR) + "-" + day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            if (weeks.size() < keepWeekly && weeks.add(week)) {
+                kept.add(info.id());
+            }
+        }
+        int deleted = 0;
+        for (SnapshotInfo info : snapshots) {
+            if (!kept.contains(info.id())) {
+                deleteSnapshot(server, info.id());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Supprime les morceaux qu'aucun manifeste ne référence plus. Bloque les sauvegardes
+     * pendant ce temps : un morceau tout juste écrit n'est référencé qu'une fois son manifeste écrit.
+     */
+    public long collectGarbage() throws IOException {
+        repositoryLock.writeLock().lock();
+        try {
+            if (!Files.isDirectory(chunksDir)) {
+                return 0;
+            }
+            Set<String> referenced = new HashSet<>();
+            if (Files.isDirectory(snapshotsDir)) {
+                try (DirectoryStream<Path> servers = Files.newDirectoryStream(snapshotsDir)) {
+                    for (Path serverDir : servers) {
+                        try (DirectoryStream<Path> manifests = Files.newDirectoryStream(serverDir, "*.json.gz")) {
+                            for (Path manifest : manifests) {
+                                readManifest(manifest).files().forEach(file -> referenced.addAll(file.chunks()));
+                            }
+                        }
+                    }
+                }
+            }
+            AtomicLong freed = new AtomicLong();
+            AtomicInteger removed = new AtomicInteger();
+            Files.walkFileTree(chunksDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (!referenced.contains(file.getFileName().toString())) {
+                        Files.delete(file);
+                        freed.addAndGet(attributes.size());
+                        removed.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            if (removed.get() > 0) {
+                log.info("Dépôt de sauvegardes : {} morceaux inutilisés supprimés ({}).", removed.get(),
+                    ServerStats.formatBinarySize(freed.get()));
+            }
+            return freed.get();
+        } finally {
+            repositoryLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sauvegarde planifiée de tous les serveurs (au plus panel.backups.max-concurrent à la fois),
+     * puis rétention et nettoyage du dépôt.
+     */
+    @Scheduled(cron = "${panel.backups.cron:-}")
+    public void backupAll() {
+        List<Future<?>> runs = new ArrayList<>();
+        for (Server server : serverRepository.findAll()) {
+            if (server.getHostPath() == null || !Files.isDirectory(Paths.get(server.getHostPath()))) {
+                continue;
+            }
+            runs.add(blockingExecutor.submit("backup-" + server.getId(), () -> {
+                concurrentBackups.acquire();
+                try {
+                    backup(server, null);
+                    applyRetention(server);
+                } catch (Exception e) {
+                    log.error("Sauvegarde planifiée du serveur {} en échec : {}", server.getName(), e.getMessage());
+                } finally {
+                    concurrentBackups.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> run : runs) {
+            try {
+                run.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Déjà journalisé.
+            }
+        }
+        try {
+            collectGarbage();
+        } catch (IOException e) {
+            log.error("Nettoyage du dépôt de sauvegardes impossible : {}", e.getMessage());
+        }
+    }
+
+    public Snapshot readSnapshot(Server server, String snapshotId) throws IOException {
+        Path manifest = manifestPath(snapshotsDir.resolve(String.valueOf(server.getId())), snapshotId);
+        if (!Files.exists(manifest)) {
+            throw new IllegalArgumentException("Sauvegarde introuvable : " + snapshotId);
+        }
+        return readManifest(manifest);
+    }
+
+    private Snapshot readManifest(Path manifest) throws IOException {
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(manifest))) {
+            return mapper.readValue(input, Snapshot.class);
+        }
+    }
+
+    private SnapshotInfo writeSnapshot(Snapshot snapshot) throws IOException {
+        Path dir = snapshotsDir.resolve(String.valueOf(snapshot.serverId()));
+        Files.createDirectories(dir);
+        Path manifest = manifestPath(dir, snapshot.id());
+        Path temp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(temp))) {
+            mapper.writeValue(output, snapshot);
+        }
+        Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE);
+        SnapshotInfo info = new SnapshotInfo(snapshot.id(), snapshot.serverId(), snapshot.createdAt(), snapshot.totalBytes(),
+            snapshot.storedBytes(), snapshot.fileCount(), snapshot.changedFiles());
+        mapper.writeValue(infoPath(dir, snapshot.id()).toFile(), info);
+        return info;
+    }
+
+    private static Path manifestPath(Path dir, String snapshotId) {
+        return dir.resolve(checkId(snapshotId) + ".json.gz");
+    }
+
+    private static Path infoPath(Path dir, String snapshotId) {
+        return dir.resolve(checkId(snapshotId) + ".info.json");
+    }
+
+    private static String checkId(String snapshotId) {
+        if (!snapshotId.matches("[0-9A-Za-z-]+")) {
+            throw new IllegalArgumentException("Identifiant de sauvegarde invalide.");
+        }
+        return snapshotId;
+    }
+
+    private boolean isRunning(String containerId) {
+        try {
+            return dockerService.listRunningContainerIds().stream().anyMatch(containerId::startsWith);
+        } catch (Exception e) {
+            // Dans le doute, on ne restaure pas sous un serveur peut-être en marche.
+            return true;
+        }
+    }
+
+    private static Path resolveInside(Path root, String relativePath) throws IOException {
+        Path target = root.resolve(relativePath).normalize();
+        if (!target.startsWith(root)) {
+            throw new IOException("Chemin hors du dossier du serveur : " + relativePath);
+        }
+        return target;
+    }
+
+    private static String relative(Path root, Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private static void report(Consumer<String> progress, String message) {
+        if (progress != null) {
+            progress.accept(message);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        filePool.shutdownNow();
+    }
+}
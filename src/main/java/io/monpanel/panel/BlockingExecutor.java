@@ -0,0 +1,73 @@
+package io.monpanel.panel;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Exécuteur partagé pour tout ce qui bloque sur des E/S : lecture des sorties de processus
+ * "docker", flux de console, envois WebSocket, téléchargements...
+ * Chaque tâche tourne sur un thread virtuel nommé, et le nombre de tâches simultanées est
+ * borné par panel.executor.max-concurrent-tasks : au-delà, les nouvelles tâches attendent.
+ */
+@Component
+public class BlockingExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockingExecutor.class);
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("panel-io-", 0).factory());
+    private final Semaphore permits;
+
+    public BlockingExecutor(@Value("${panel.executor.max-concurrent-tasks:2000}") int maxConcurrentTasks) {
+        this.permits = new Semaphore(maxConcurrentTasks);
+    }
+
+    public void execute(String name, Runnable task) {
+        executor.execute(() -> {
+            try {
+                run(name, () -> {
+                    task.run();
+                    return null;
+                });
+            } catch (Exception e) {
+                log.error("Erreur dans la tâche {} : {}", name, e.getMessage(), e);
+            }
+        });
+    }
+
+    public <T> Future<T> submit(String name, Callable<T> task) {
+        return executor.submit(() -> run(name, task));
+    }
+
+    /**
+     * Vue "Executor" dont toutes les tâches portent le même nom, pour les API qui en attendent un.
+     */
+    public Executor named(String name) {
+        return task -> execute(name, task);
+    }
+
+    private <T> T run(String name, Callable<T> task) throws Exception {
+        Thread.currentThread().setName(name);
+        permits.acquire();
+        try {
+            return task.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
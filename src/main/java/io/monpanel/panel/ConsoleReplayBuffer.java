@@ -0,0 +1,68 @@
+package io.monpanel.panel;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Derniers octets de sortie d'une console, dans un tableau circulaire de taille fixe.
+ * Rejoué tel quel aux sessions qui se connectent, pour qu'elles voient tout de suite
+ * ce qui vient de se passer sans relire les logs sur le disque.
+ */
+public class ConsoleReplayBuffer {
+
+    private final byte[] buffer;
+    private int next = 0;
+    private int size = 0;
+
+    public ConsoleReplayBuffer(int capacity) {
+        this.buffer = new byte[capacity];
+    }
+
+    public synchronized void append(byte[] bytes, int offset, int length) {
+        if (buffer.length == 0) {
+            return;
+        }
+        // Un bloc plus grand que le buffer : seule sa fin nous intéresse.
+        if (length > buffer.length) {
+            offset += length - buffer.length;
+            length = buffer.length;
+        }
+        int firstPart = Math.min(length, buffer.length - next);
+        System.arraycopy(bytes, offset, buffer, next, firstPart);
+        System.arraycopy(bytes, offset + firstPart, buffer, 0, length - firstPart);
+        next = (next + length) % buffer.length;
+        size = Math.min(buffer.length, size + length);
+    }
+
+    public void appendLine(String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        append(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Contenu du buffer, du plus ancien au plus récent. Si le buffer a déjà tourné, la
+     * première ligne (probablement tronquée) est retirée.
+     */
+    public synchronized byte[] snapshot() {
+        int start = (next - size + buffer.length) % Math.max(buffer.length, 1);
+        byte[] result = new byte[size];
+        int firstPart = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, result, 0, firstPart);
+        System.arraycopy(buffer, 0, result, firstPart, size - firstPart);
+        if (size < buffer.length) {
+            return result;
+        }
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] == '\n') {
+                byte[] trimmed = new byte[result.length - i - 1];
+                System.arraycopy(result, i + 1, trimmed, 0, trimmed.length);
+                return trimmed;
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+    }
+}
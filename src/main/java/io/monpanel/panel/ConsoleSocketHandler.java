@@ -1,8 +1,6 @@
 package io.monpanel.panel;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -19,19 +17,13 @@ public class ConsoleSocketHandler extends TextWebSocketHandler {
 
     private static final Logger log = LoggerFactory.getLogger(ConsoleSocketHandler.class);
     private final ServerRepository serverRepository;
-    private final Map<String, DockerProcess> runningProcesses = new ConcurrentHashMap<>();
+    private final ConsoleStreamManager consoleStreamManager;
+    // Session WebSocket -> flux partagé du conteneur qu'elle regarde.
+    private final Map<String, ConsoleStream> sessionStreams = new ConcurrentHashMap<>();
 
-    private static class DockerProcess {
-        final Process process;
-        final OutputStream stdin;
-        DockerProcess(Process process) {
-            this.process = process;
-            this.stdin = process.getOutputStream();
-        }
-    }
-
-    public ConsoleSocketHandler(ServerRepository serverRepository) {
+    public ConsoleSocketHandler(ServerRepository serverRepository, ConsoleStreamManager consoleStreamManager) {
         this.serverRepository = serverRepository;
+        this.consoleStreamManager = consoleStreamManager;
     }
 
     @Override
@@ -46,33 +38,18 @@ public class ConsoleSocketHandler extends TextWebSocketHandler {
             return;
         }
 
-        ProcessBuilder processBuilder = new ProcessBuilder("docker", "attach", server.getContainerId());
-        processBuilder.redirectErrorStream(true);
-
-        Process process = processBuilder.start();
-        runningProcesses.put(session.getId(), new DockerProcess(process));
-
-        new Thread(() -> {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null && session.isOpen()) {
-                    session.sendMessage(new TextMessage(line));
-                }
-            } catch (Exception e) {
-                log.warn("Erreur de lecture du log pour la session {} : {}", session.getId(), e.getMessage());
-            }
-        }).start();
+        ConsoleStream stream = consoleStreamManager.join(server.getContainerId(), session);
+        sessionStreams.put(session.getId(), stream);
     }
 
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String command = message.getPayload();
-        DockerProcess dockerProcess = runningProcesses.get(session.getId());
+        ConsoleStream stream = sessionStreams.get(session.getId());
 
-        if (dockerProcess != null && dockerProcess.process.isAlive()) {
+        if (stream != null) {
             try {
-                dockerProcess.stdin.write((command + "\n").getBytes());
-                dockerProcess.stdin.flush();
+                stream.write((command + "\n").getBytes(StandardCharsets.UTF_8));
             } catch (Exception e) {
                 log.error("Erreur d'écriture de la commande : {}", e.getMessage());
             }
@@ -81,10 +58,10 @@ public class ConsoleSocketHandler extends TextWebSocketHandler {
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        log.info("Session WebSocket fermée : {}. Arrêt du processus d'attachement.", session.getId());
-        DockerProcess dockerProcess = runningProcesses.remove(session.getId());
-        if (dockerProcess != null && dockerProcess.process.isAlive()) {
-            dockerProcess.process.destroyForcibly();
+        log.info("Session WebSocket fermée : {}. Détachement du flux de console.", session.getId());
+        ConsoleStream stream = sessionStreams.remove(session.getId());
+        if (stream != null) {
+            consoleStreamManager.leave(stream, session.getId());
         }
     }
 }
\ No newline at end of file
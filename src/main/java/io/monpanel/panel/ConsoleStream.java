@@ -0,0 +1,167 @@
+package io.monpanel.panel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Flux de console partagé d'un conteneur : une seule attache Docker, dont chaque ligne
+ * est diffusée à toutes les sessions WebSocket qui regardent ce conteneur.
+ * Les dernières lignes sont gardées dans un buffer de rejeu, envoyé à chaque nouvelle
+ * session dès sa connexion. Le cycle de vie (ouverture au premier spectateur, fermeture
+ * après le départ du dernier) est géré par ConsoleStreamManager.
+ */
+public class ConsoleStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsoleStream.class);
+
+    private final String containerId;
+    private final int maxBufferedChars;
+    private final int maxFrameChars;
+    private final Executor sendExecutor;
+    private final Map<String, ConsoleViewer> viewers = new ConcurrentHashMap<>();
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private final ConsoleReplayBuffer replay;
+    private DockerService.ConsoleAttachment attachment;
+    private volatile boolean closed = false;
+
+    ConsoleStream(String containerId, int maxBufferedChars, int maxFrameChars, Executor sendExecutor, int replayBytes) {
+        this.containerId = containerId;
+        this.maxBufferedChars = maxBufferedChars;
+        this.maxFrameChars = maxFrameChars;
+        this.sendExecutor = sendExecutor;
+        this.replay = new ConsoleReplayBuffer(replayBytes);
+    }
+
+    public String getContainerId() {
+        return containerId;
+    }
+
+    void open(DockerService dockerService, Runnable onEnd, int replayTailLines) throws IOException {
+        // Pré-remplit le rejeu avec la fin des logs Docker : une seule requête bornée,
+        // au lieu de laisser chaque client relire logs/latest.log.
+        if (replayTailLines > 0) {
+            try {
+                byte[] recent = dockerService.readRecentLogs(containerId, replayTailLines);
+                replay.append(recent, 0, recent.length);
+            } catch (Exception e) {
+                log.debug("Impossible de lire les derniers logs du conteneur {} : {}", containerId, e.getMessage());
+            }
+        }
+        attachment = dockerService.attachConsole(containerId, this::onOutput, () -> {
+            if (!closed) {
+                log.info("Fin du flux de console du conteneur {}.", containerId);
+                onEnd.run();
+            }
+        });
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    int viewerCount() {
+        return viewers.size();
+    }
+
+    void addViewer(WebSocketSession session) {
+        // Chaque session a sa propre file d'envoi bornée : un client lent perd ses
+        // lignes les plus anciennes au lieu de ralentir les autres ou le lecteur.
+        ConsoleViewer viewer = new ConsoleViewer(session, maxBufferedChars, maxFrameChars);
+        // Sous le même verrou que la diffusion : aucune ligne ne peut être ni perdue ni
+        // envoyée deux fois entre le rejeu et le direct.
+        synchronized (partialLine) {
+            String history = new String(replay.snapshot(), StandardCharsets.UTF_8);
+            if (!history.isEmpty()) {
+                if (history.endsWith("\n")) {
+                    history = history.substring(0, history.length() - 1);
+                }
+                for (String line : history.split("\n", -1)) {
+                    viewer.enqueue(line.replace("\r", ""));
+                }
+            }
+            viewers.put(session.getId(), viewer);
+        }
+        viewer.scheduleFlush(sendExecutor);
+    }
+
+    void removeViewer(String sessionId) {
+        viewers.remove(sessionId);
+    }
+
+    public void write(byte[] bytes) throws IOException {
+        if (closed || attachment == null) {
+            throw new IOException("La console du conteneur " + containerId + " est fermée.");
+        }
+        attachment.write(bytes);
+    }
+
+    private void onOutput(byte[] bytes) {
+        synchronized (partialLine) {
+            int lineStart = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    partialLine.write(bytes, lineStart, i - lineStart);
+                    String line = partialLine.toString(StandardCharsets.UTF_8).replace("\r", "");
+                    replay.appendLine(line);
+                    broadcast(line);
+                    partialLine.reset();
+                    lineStart = i + 1;
+                }
+            }
+            partialLine.write(bytes, lineStart, bytes.length - lineStart);
+        }
+    }
+
+    private void broadcast(String line) {
+        for (ConsoleViewer viewer : viewers.values()) {
+            if (viewer.isOpen() && viewer.enqueue(line)) {
+                viewer.scheduleFlush(sendExecutor);
+            }
+        }
+    }
+
+    /**
+     * Appelé à chaque tick : envoie ce qui s'est accumulé depuis, regroupé en une trame.
+     */
+    void flushPending() {
+        for (ConsoleViewer viewer : viewers.values()) {
+            if (viewer.isOpen() && viewer.hasPending()) {
+                viewer.scheduleFlush(sendExecutor);
+            }
+        }
+    }
+
+    void close() {
+        closed = true;
+        if (attachment != null) {
+            try {
+                attachment.close();
+            } catch (IOException e) {
+                log.debug("Fermeture de l'attache du conteneur {} : {}", containerId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Flux terminé côté Docker (conteneur arrêté) : on ferme les sessions restantes.
+     */
+    void closeViewers() {
+        for (ConsoleViewer viewer : viewers.values()) {
+            try {
+                viewer.getSession().close(CloseStatus.NORMAL);
+            } catch (IOException e) {
+                log.debug("Fermeture de la session {} : {}", viewer.getId(), e.getMessage());
+            }
+        }
+        viewers.clear();
+    }
+}
@@ -0,0 +1,204 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketSession;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Registre des flux de console partagés, un par conteneur, comptés par référence :
+ * le premier spectateur ouvre l'attache Docker, elle est fermée quand le dernier est
+ * parti depuis panel.console.linger-ms.
+ *
+ * Le verrou du registre ne couvre que les tables : l'ouverture d'une attache (lecture des
+ * derniers logs, attach Docker) se fait hors verrou, une seule fois par conteneur, les autres
+ * spectateurs du même conteneur attendant son résultat.
+ */
+@Service
+public class ConsoleStreamManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsoleStreamManager.class);
+
+    private final DockerService dockerService;
+    private final int sendBufferBytes;
+    private final int frameMaxBytes;
+    private final int replayBytes;
+    private final int replayTailLines;
+    private final long lingerMs;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Protégées par lock.
+    private final Map<String, ConsoleStream> streams = new HashMap<>();
+    private final Map<String, CompletableFuture<ConsoleStream>> opening = new HashMap<>();
+    // Les envois WebSocket (potentiellement bloquants) ne se font jamais sur le thread lecteur.
+    private final Executor sendExecutor;
+    private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "console-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ConsoleStreamManager(DockerService dockerService, BlockingExecutor blockingExecutor,
+                                @Value("${panel.console.send-buffer-bytes:262144}") int sendBufferBytes,
+                                @Value("${panel.console.frame-max-bytes:65536}") int frameMaxBytes,
+                                @Value("${panel.console.flush-interval-ms:50}") long flushIntervalMs,
+                                @Value("${panel.console.replay-bytes:65536}") int replayBytes,
+                                @Value("${panel.console.replay-tail-lines:200}") int replayTailLines,
+                                @Value("${panel.console.linger-ms:30000}") long lingerMs) {
+        this.dockerService = dockerService;
+        this.sendExecutor = blockingExecutor.named("console-sender");
+        this.sendBufferBytes = sendBufferBytes;
+        this.frameMaxBytes = frameMaxBytes;
+        this.replayBytes = replayBytes;
+        this.replayTailLines = replayTailLines;
+        this.lingerMs = lingerMs;
+        flushScheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public ConsoleStream join(String containerId, WebSocketSession session) throws IOException {
+        while (true) {
+            CompletableFuture<ConsoleStream> pending;
+            boolean opener = false;
+            lock.lock();
+            try {
+                ConsoleStream stream = streams.get(containerId);
+                if (stream != null && !stream.isClosed()) {
+                    stream.addViewer(session);
+                    return stream;
+                }
+                pending = opening.get(containerId);
+                if (pending == null) {
+                    pending = new CompletableFuture<>();
+                    opening.put(containerId, pending);
+                    opener = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (opener) {
+                open(containerId, pending);
+            }
+            try {
+                pending.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ioException ? ioException : new IOException(cause.getMessage(), cause);
+            }
+            // Le flux est maintenant enregistré : on repasse par la table (il a pu se terminer entre-temps).
+        }
+    }
+
+    private void open(String containerId, CompletableFuture<ConsoleStream> pending) {
+        ConsoleStream newStream = new ConsoleStream(containerId, sendBufferBytes, frameMaxBytes, sendExecutor, replayBytes);
+        try {
+            newStream.open(dockerService, () -> onStreamEnded(newStream), replayTailLines);
+        } catch (IOException | RuntimeException e) {
+            lock.lock();
+            try {
+                opening.remove(containerId, pending);
+            } finally {
+                lock.unlock();
+            }
+            pending.completeExceptionally(e);
+            return;
+        }
+        lock.lock();
+        try {
+            streams.put(containerId, newStream);
+            opening.remove(containerId, pending);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Flux de console ouvert pour le conteneur {}.", containerId);
+        pending.complete(newStream);
+    }
+
+    public void leave(ConsoleStream stream, String sessionId) {
+        boolean idle;
+        lock.lock();
+        try {
+            stream.removeViewer(sessionId);
+            idle = stream.viewerCount() == 0;
+        } finally {
+            lock.unlock();
+        }
+        if (idle) {
+            // On garde l'attache (et son rejeu) un moment : un simple rechargement de page
+            // retrouve la console immédiatement.
+            if (lingerMs > 0) {
+                flushScheduler.schedule(() -> closeIfIdle(stream), lingerMs, TimeUnit.MILLISECONDS);
+            } else {
+                closeIfIdle(stream);
+            }
+        }
+    }
+
+    private void closeIfIdle(ConsoleStream stream) {
+        lock.lock();
+        try {
+            if (stream.viewerCount() != 0 || !streams.remove(stream.getContainerId(), stream)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        stream.close();
+        log.info("Plus aucun spectateur, flux de console fermé pour le conteneur {}.", stream.getContainerId());
+    }
+
+    private void onStreamEnded(ConsoleStream stream) {
+        lock.lock();
+        try {
+            streams.remove(stream.getContainerId(), stream);
+        } finally {
+            lock.unlock();
+        }
+        stream.close();
+        stream.closeViewers();
+    }
+
+    private void flushAll() {
+        List<ConsoleStream> current;
+        lock.lock();
+        try {
+            current = List.copyOf(streams.values());
+        } finally {
+            lock.unlock();
+        }
+        for (ConsoleStream stream : current) {
+            try {
+                stream.flushPending();
+            } catch (Exception e) {
+                log.warn("Erreur lors de l'envoi de la console du conteneur {} : {}", stream.getContainerId(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        List<ConsoleStream> current;
+        lock.lock();
+        try {
+            current = List.copyOf(streams.values());
+            streams.clear();
+        } finally {
+            lock.unlock();
+        }
+        current.forEach(ConsoleStream::close);
+    }
+}
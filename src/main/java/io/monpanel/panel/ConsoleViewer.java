@@ -0,0 +1,114 @@
+package io.monpanel.panel;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Une session WebSocket qui regarde un flux de console.
+ * Les lignes sont mises en file (bornée en taille) par le lecteur du conteneur, puis
+ * regroupées en trames et envoyées par un autre thread : un client lent ne bloque jamais
+ * la lecture. Quand la file déborde, les lignes les plus anciennes sont abandonnées et
+ * remplacées par un marqueur dans la trame suivante.
+ */
+public class ConsoleViewer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsoleViewer.class);
+
+    private final WebSocketSession session;
+    private final int maxBufferedChars;
+    private final int maxFrameChars;
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private int pendingChars = 0;
+    private long droppedLines = 0;
+    private boolean sending = false;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    ConsoleViewer(WebSocketSession session, int maxBufferedChars, int maxFrameChars) {
+        this.session = session;
+        this.maxBufferedChars = maxBufferedChars;
+        this.maxFrameChars = maxFrameChars;
+    }
+
+    public String getId() {
+        return session.getId();
+    }
+
+    public boolean isOpen() {
+        return session.isOpen();
+    }
+
+    WebSocketSession getSession() {
+        return session;
+    }
+
+    /**
+     * Appelé par le lecteur du conteneur : ne fait que mettre la ligne en file.
+     * Renvoie true si une trame complète est prête et mérite d'être envoyée sans attendre le tick.
+     */
+    synchronized boolean enqueue(String line) {
+        pending.addLast(line);
+        pendingChars += line.length() + 1;
+        while (pendingChars > maxBufferedChars && pending.size() > 1) {
+            pendingChars -= pending.removeFirst().length() + 1;
+            droppedLines++;
+        }
+        return !sending && pendingChars >= maxFrameChars;
+    }
+
+    synchronized boolean hasPending() {
+        return !sending && (!pending.isEmpty() || droppedLines > 0);
+    }
+
+    /**
+     * Programme un envoi sur l'exécuteur, sauf s'il y en a déjà un en attente pour cette session.
+     */
+    void scheduleFlush(Executor executor) {
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    private void flush() {
+        String frame;
+        synchronized (this) {
+            if (sending || (pending.isEmpty() && droppedLines == 0)) {
+                return;
+            }
+            StringBuilder builder = new StringBuilder();
+            if (droppedLines > 0) {
+                builder.append("[... ").append(droppedLines).append(" lignes ignorées, client trop lent ...]");
+                droppedLines = 0;
+            }
+            while (!pending.isEmpty() && (builder.length() == 0 || builder.length() + pending.peekFirst().length() < maxFrameChars)) {
+                String line = pending.removeFirst();
+                pendingChars -= line.length() + 1;
+                if (builder.length() > 0) {
+                    builder.append('\n');
+                }
+                builder.append(line);
+            }
+            frame = builder.toString();
+            sending = true;
+        }
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(new TextMessage(frame));
+            }
+        } catch (Exception e) {
+            log.warn("Erreur d'envoi de la console pour la session {} : {}", session.getId(), e.getMessage());
+        } finally {
+            synchronized (this) {
+                sending = false;
+            }
+        }
+    }
+}
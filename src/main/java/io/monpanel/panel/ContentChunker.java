@@ -0,0 +1,85 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Découpage d'un flux en morceaux de taille variable selon leur contenu (hachage « gear »,
+ * comme FastCDC) : les frontières dépendent des octets et non de leur position, si bien
+ * qu'une insertion au milieu d'un fichier ne décale pas tous les morceaux suivants. Deux
+ * versions d'un monde ne diffèrent alors que par les morceaux réellement modifiés.
+ */
+public final class ContentChunker {
+
+    /**
+     * Reçoit chaque morceau ; le tableau est réutilisé après l'appel.
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Graine fixe : les frontières doivent être identiques d'une exécution à l'autre.
+        SplittableRandom random = new SplittableRandom(0x6d6f6e70616e656cL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    /**
+     * averageSize est arrondi à une puissance de deux.
+     */
+    public ContentChunker(int minSize, int averageSize, int maxSize) {
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        int bits = 31 - Integer.numberOfLeadingZeros(Math.max(2, averageSize - minSize));
+        // Bits de poids fort : ceux qui dépendent des 64 derniers octets lus.
+        this.mask = ((1L << bits) - 1) << (64 - bits);
+    }
+
+    public void split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] buffer = new byte[maxSize * 2];
+        int start = 0;
+        int end = 0;
+        boolean eof = false;
+        while (true) {
+            if (!eof && end - start < maxSize) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                int read = in.readNBytes(buffer, end, buffer.length - end);
+                end += read;
+                eof = end < buffer.length;
+            }
+            if (start == end) {
+                return;
+            }
+            int length = cut(buffer, start, end - start);
+            consumer.accept(buffer, start, length);
+            start += length;
+        }
+    }
+
+    private int cut(byte[] buffer, int offset, int available) {
+        if (available <= minSize) {
+            return available;
+        }
+        int limit = Math.min(available, maxSize);
+        long hash = 0;
+        for (int i = Math.max(0, minSize - 64); i < limit; i++) {
+            hash = (hash << 1) + GEAR[buffer[offset + i] & 0xFF];
+            if (i >= minSize && (hash & mask) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,167 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Cache des listings de dossiers du gestionnaire de fichiers. Un listing est lu avec un seul
+ * readAttributes par entrée, puis gardé jusqu'à ce que le WatchService signale un changement
+ * dans le dossier (création, suppression, modification d'une entrée). Au plus
+ * panel.files.listing-cache-size dossiers sont surveillés, les moins récemment consultés
+ * sortant du cache en premier (les surveillances inotify sont limitées par l'hôte).
+ */
+@Service
+public class DirectoryListingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectoryListingCache.class);
+
+    /**
+     * Une entrée de dossier telle que lue sur le disque.
+     */
+    public record Entry(String name, boolean directory, long size, long lastModifiedMillis) {
+    }
+
+    private record Listing(List<Entry> entries, WatchKey key) {
+    }
+
+    private final int maxDirectories;
+    private final WatchService watchService;
+    private final Map<Path, Listing> listings;
+    // Incrémenté à chaque invalidation : un listing lu pendant un changement n'est pas mis en cache.
+    private final AtomicLong generation = new AtomicLong();
+
+    public DirectoryListingCache(BlockingExecutor blockingExecutor,
+                                 @Value("${panel.files.listing-cache-size:256}") int maxDirectories) {
+        this.maxDirectories = maxDirectories;
+        this.listings = new LinkedHashMap<>(16, 0.75f, true);
+        WatchService service = null;
+        if (maxDirectories > 0) {
+            try {
+                service = FileSystems.getDefault().newWatchService();
+            } catch (IOException e) {
+                log.warn("WatchService indisponible, listings non mis en cache : {}", e.getMessage());
+            }
+        }
+        this.watchService = service;
+        if (watchService != null) {
+            blockingExecutor.execute("file-watch", this::watchLoop);
+        }
+    }
+
+    /**
+     * Entrées du dossier, depuis le cache si rien n'y a changé depuis la dernière lecture.
+     */
+    public List<Entry> list(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        synchronized (listings) {
+            Listing cached = listings.get(key);
+            if (cached != null) {
+                return cached.entries();
+            }
+        }
+        if (watchService == null) {
+            return read(key);
+        }
+        long before = generation.get();
+        // Surveillance posée avant la lecture : un changement pendant celle-ci n'est pas manqué.
+        WatchKey watchKey = key.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        List<Entry> entries = read(key);
+        synchronized (listings) {
+            if (generation.get() == before && watchKey.isValid()) {
+                listings.put(key, new Listing(entries, watchKey));
+                evictOverflow();
+            } else if (!listings.containsKey(key)) {
+                watchKey.cancel();
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * À appeler après une modification faite par le panel lui-même, sans attendre l'événement.
+     */
+    public void invalidate(Path directory) {
+        Path key = directory.toAbsolutePath().normalize();
+        generation.incrementAndGet();
+        synchronized (listings) {
+            Listing removed = listings.remove(key);
+            if (removed != null) {
+                removed.key().cancel();
+            }
+        }
+    }
+
+    private List<Entry> read(Path directory) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(new Entry(path.getFileName().toString(), attributes.isDirectory(),
+                        attributes.size(), attributes.lastModifiedTime().toMillis()));
+                } catch (IOException e) {
+                    // Supprimé entre-temps, ou lien cassé.
+                    log.debug("Impossible de lire les attributs du fichier {}", path);
+                }
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private void evictOverflow() {
+        while (listings.size() > maxDirectories) {
+            Map.Entry<Path, Listing> eldest = listings.entrySet().iterator().next();
+            listings.remove(eldest.getKey());
+            eldest.getValue().key().cancel();
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Le détail des événements importe peu : le dossier entier est relu à la demande.
+                key.pollEvents();
+                Path directory = (Path) key.watchable();
+                generation.incrementAndGet();
+                synchronized (listings) {
+                    listings.remove(directory);
+                    // La surveillance sera reposée à la prochaine lecture : un dossier qui n'est
+                    // plus consulté ne garde pas de watch inotify.
+                    key.cancel();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Arrêt du panel.
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Espace disque utilisé par chaque serveur (son dossier servers/&lt;uuid&gt;), tenu à jour sans
+ * relancer de du : l'index garde la somme des fichiers de chaque dossier, recalculée pour les
+ * seuls dossiers signalés par le WatchService. Un scan complet en parallèle (fork-join sur
+ * l'arborescence) corrige périodiquement les écarts : événements perdus, dossiers au-delà de
+ * panel.disk.max-watched-directories, déplacements.
+ *
+ * Le quota (Server.disk, en Go) est appliqué aux écritures faites par le panel ; Docker
+ * n'offre pas de quota sur un dossier monté, un serveur qui le dépasse tout seul est signalé.
+ */
+@Service
+public class DiskUsageService {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskUsageService.class);
+
+    private static final long GIB = 1024L * 1024 * 1024;
+
+    public record DiskUsage(long usedBytes, long limitBytes, boolean overQuota, long lastScanAt) {
+    }
+
+    /**
+     * Index d'un serveur : somme des fichiers directement contenus dans chaque dossier.
+     */
+    private static class ServerIndex {
+        final Path root;
+        Map<Path, Long> directorySizes = new HashMap<>();
+        final Map<Path, WatchKey> watchKeys = new HashMap<>();
+        long totalBytes;
+        // Octets promis aux uploads par morceaux en cours (leurs fichiers temporaires ne sont pas comptés).
+        long reservedBytes;
+        long lastScanAt;
+        boolean overQuotaLogged;
+
+        ServerIndex(Path root) {
+            this.root = root;
+        }
+    }
+
+    private final ServerRepository serverRepository;
+    private final int maxWatchedDirectories;
+    private final ForkJoinPool scanPool;
+    private final WatchService watchService;
+    private final Map<Long, ServerIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<WatchKey, ServerIndex> watchedBy = new ConcurrentHashMap<>();
+    private final Set<WatchKey> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger watchCount = new AtomicInteger();
+
+    public DiskUsageService(ServerRepository serverRepository, BlockingExecutor blockingExecutor,
+                            @Value("${panel.disk.max-watched-directories:8192}") int maxWatchedDirectories,
+                            @Value("${panel.disk.scan-parallelism:0}") int scanParallelism) {
+        this.serverRepository = serverRepository;
+        this.maxWatchedDirectories = maxWatchedDirectories;
+        this.scanPool = new ForkJoinPool(scanParallelism > 0 ? scanParallelism : Runtime.getRuntime().availableProcessors());
+        WatchService service = null;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.warn("WatchService indisponible, l'usage disque ne sera mis à jour que par les scans : {}", e.getMessage());
+        }
+        this.watchService = service;
+        if (watchService != null) {
+            blockingExecutor.execute("disk-watch", this::watchLoop);
+        }
+    }
+
+    /**
+     * Usage actuel du serveur ; le premier appel pour un serveur pas encore indexé le scanne.
+     */
+    public DiskUsage getUsage(Server server) {
+        ServerIndex index = indexFor(server);
+        long limit = limitBytes(server);
+        synchronized (index) {
+            return new DiskUsage(index.totalBytes, limit, limit > 0 && index.totalBytes > limit, index.lastScanAt);
+        }
+    }
+
+    /**
+     * Vrai si écrire additionalBytes de plus ferait dépasser le quota du serveur.
+     */
+    public boolean wouldExceedQuota(Server server, long additionalBytes) {
+        long limit = limitBytes(server);
+        if (limit <= 0) {
+            return false;
+        }
+        ServerIndex index = indexFor(server);
+        synchronized (index) {
+            return index.totalBytes + index.reservedBytes + Math.max(0, additionalBytes) > limit;
+        }
+    }
+
+    /**
+     * Octets encore disponibles avant le quota (réservations déduites), Long.MAX_VALUE sans quota.
+     */
+    public long remainingBytes(Server server) {
+        long limit = limitBytes(server);
+        if (limit <= 0) {
+            return Long.MAX_VALUE;
+        }
+        ServerIndex index = indexFor(server);
+        synchronized (index) {
+            return Math.max(0, limit - index.totalBytes - index.reservedBytes);
+        }
+    }
+
+    /**
+     * Réserve bytes pour une écriture qui va durer (upload par morceaux), si le quota le permet :
+     * les réservations comptent dans wouldExceedQuota jusqu'à releaseReservation.
+     */
+    public boolean tryReserve(Server server, long bytes) {
+        long limit = limitBytes(server);
+        ServerIndex index = indexFor(server);
+        synchronized (index) {
+            if (limit > 0 && index.totalBytes + index.reservedBytes + Math.max(0, bytes) > limit) {
+                return false;
+            }
+            index.reservedBytes += Math.max(0, bytes);
+            return true;
+        }
+    }
+
+    public void releaseReservation(Long serverId, long bytes) {
+        ServerIndex index = indexes.get(serverId);
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            index.reservedBytes = Math.max(0, index.reservedBytes - Math.max(0, bytes));
+        }
+    }
+
+    public static String quotaMessage(Server server) {
+        return "Quota disque du serveur dépassé (" + server.getDisk() + " Go).";
+    }
+
+    private static long limitBytes(Server server) {
+        return server.getDisk() > 0 ? server.getDisk() * GIB : 0;
+    }
+
+    private ServerIndex indexFor(Server server) {
+        ServerIndex index = indexes.get(server.getId());
+        if (index != null) {
+            return index;
+        }
+        ServerIndex created = new ServerIndex(Paths.get(server.getHostPath()).toAbsolutePath().normalize());
+        ServerIndex existing = indexes.putIfAbsent(server.getId(), created);
+        if (existing != null) {
+            return existing;
+        }
+        rescan(created);
+        return created;
+    }
+
+    /**
+     * Scan complet de chaque serveur (arborescence parcourue en parallèle) ; oublie les serveurs supprimés.
+     */
+    @Scheduled(initialDelayString = "${panel.disk.initial-delay-ms:15000}", fixedDelayString = "${panel.disk.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        Set<Long> known = new HashSet<>();
+        for (Server server : serverRepository.findAll()) {
+            if (server.getHostPath() == null) {
+                continue;
+            }
+            known.add(server.getId());
+            ServerIndex index = indexes.get(server.getId());
+            if (index == null) {
+                index = indexFor(server);
+            } else {
+                rescan(index);
+            }
+            long limit = limitBytes(server);
+            synchronized (index) {
+                boolean overQuota = limit > 0 && index.totalBytes > limit;
+                if (overQuota && !index.overQuotaLogged) {
+                    log.warn("Le serveur {} dépasse son quota disque : {} / {}.", server.getName(),
+                        ServerStats.formatBinarySize(index.totalBytes), ServerStats.formatBinarySize(limit));
+                }
+                index.overQuotaLogged = overQuota;
+            }
+        }
+        indexes.keySet().stream().filter(id -> !known.contains(id)).toList().forEach(id -> {
+            ServerIndex removed = indexes.remove(id);
+            synchronized (removed) {
+                removed.watchKeys.values().forEach(this::cancel);
+                removed.watchKeys.clear();
+            }
+        });
+    }
+
+    private void rescan(ServerIndex index) {
+        Map<Path, Long> sizes = new ConcurrentHashMap<>();
+        if (Files.isDirectory(index.root)) {
+            scanPool.invoke(new ScanTask(index.root, sizes));
+        }
+        synchronized (index) {
+            index.directorySizes = new HashMap<>(sizes);
+            index.totalBytes = sizes.values().stream().mapToLong(Long::longValue).sum();
+            index.lastScanAt = System.currentTimeMillis();
+            syncWatches(index);
+        }
+    }
+
+    /**
+     * Une tâche par dossier : somme de ses fichiers, sous-dossiers confiés à d'autres tâches.
+     */
+    private static class ScanTask extends RecursiveAction {
+        private final Path directory;
+        private final Map<Path, Long> sizes;
+
+        ScanTask(Path directory, Map<Path, Long> sizes) {
+            this.directory = directory;
+            this.sizes = sizes;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanTask> subtasks = new ArrayList<>();
+            long sum = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isDirectory()) {
+                            subtasks.add(new ScanTask(child, sizes));
+                        } else if (!UploadService.isTempFile(child)) {
+                            sum += attributes.size();
+                        }
+                    } catch (IOException e) {
+                        // Supprimé pendant le scan.
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Dossier {} illisible pendant le scan : {}", directory, e.getMessage());
+            }
+            sizes.put(directory, sum);
+            invokeAll(subtasks);
+        }
+    }
+
+    /**
+     * Recalcule un dossier signalé : ses fichiers, et ses sous-dossiers apparus ou disparus.
+     * Comme rescan, le disque est lu hors du verrou de l'index ; seuls les écarts y sont appliqués.
+     */
+    private void refreshDirectory(ServerIndex index, Path directory) {
+        Set<Path> knownChildren;
+        synchronized (index) {
+            if (!index.directorySizes.containsKey(directory) && !directory.equals(index.root)) {
+                return;
+            }
+            knownChildren = index.directorySizes.keySet().stream()
+                .filter(path -> directory.equals(path.getParent()))
+                .collect(Collectors.toSet());
+        }
+        if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+            synchronized (index) {
+                removeSubtree(index, directory);
+            }
+            return;
+        }
+        long sum = 0;
+        Set<Path> childDirectories = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path child : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        childDirectories.add(child);
+                    } else if (!UploadService.isTempFile(child)) {
+                        sum += attributes.size();
+                    }
+                } catch (IOException e) {
+                    // Supprimé entre-temps.
+                }
+            }
+        } catch (IOException e) {
+            return;
+        }
+        // Sous-dossiers nouveaux (créés ou déplacés ici), scannés avant de reprendre le verrou.
+        Map<Path, Map<Path, Long>> newSubtrees = new HashMap<>();
+        for (Path child : childDirectories) {
+            if (!knownChildren.contains(child)) {
+                Map<Path, Long> sizes = new ConcurrentHashMap<>();
+                scanPool.invoke(new ScanTask(child, sizes));
+                newSubtrees.put(child, sizes);
+            }
+        }
+
+        synchronized (index) {
+            // Oublié (serveur rescanné ou dossier parent supprimé) pendant la lecture.
+            if (!index.directorySizes.containsKey(directory) && !directory.equals(index.root)) {
+                return;
+            }
+            Long previous = index.directorySizes.put(directory, sum);
+            index.totalBytes += sum - (previous == null ? 0 : previous);
+
+            // Sous-dossiers disparus (supprimés ou renommés).
+            index.directorySizes.keySet().stream()
+                .filter(path -> directory.equals(path.getParent()) && !childDirectories.contains(path))
+                .toList()
+                .forEach(path -> removeSubtree(index, path));
+            newSubtrees.forEach((child, sizes) -> {
+                if (!index.directorySizes.containsKey(child)) {
+                    index.directorySizes.putAll(sizes);
+                    index.totalBytes += sizes.values().stream().mapToLong(Long::longValue).sum();
+                }
+            });
+            syncWatches(index);
+        }
+    }
+
+    private void removeSubtree(ServerIndex index, Path directory) {
+        index.directorySizes.keySet().stream()
+            .filter(path -> path.startsWith(directory))
+            .toList()
+            .forEach(path -> {
+                index.totalBytes -= index.directorySizes.remove(path);
+                WatchKey key = index.watchKeys.remove(path);
+                if (key != null) {
+                    cancel(key);
+                }
+            });
+    }
+
+    /**
+     * Surveille les dossiers de l'index (dans la limite globale) et oublie ceux qui n'y sont plus.
+     */
+    private void syncWatches(ServerIndex index) {
+        if (watchService == null) {
+            return;
+        }
+        index.watchKeys.keySet().stream()
+            .filter(path -> !index.directorySizes.containsKey(path))
+            .toList()
+            .forEach(path -> cancel(index.watchKeys.remove(path)));
+        for (Path directory : index.directorySizes.keySet()) {
+            if (index.watchKeys.containsKey(directory) || watchCount.get() >= maxWatchedDirectories) {
+                continue;
+            }
+            try {
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                index.watchKeys.put(directory, key);
+                watchedBy.put(key, index);
+                watchCount.incrementAndGet();
+            } catch (IOException e) {
+                log.debug("Impossible de surveiller {} : {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    private void cancel(WatchKey key) {
+        if (watchedBy.remove(key) != null) {
+            watchCount.decrementAndGet();
+        }
+        key.cancel();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        log.debug("Événements disque perdus, le prochain scan corrigera l'index.");
+                    }
+                }
+                // Regroupés et traités par flushDirtyDirectories : un monde qui sauvegarde
+                // génère des centaines d'événements pour quelques dossiers.
+                dirtyKeys.add(key);
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Arrêt du panel.
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${panel.disk.flush-interval-ms:2000}")
+    public void flushDirtyDirectories() {
+        List<WatchKey> keys = new ArrayList<>(dirtyKeys);
+        dirtyKeys.removeAll(keys);
+        for (WatchKey key : keys) {
+            ServerIndex index = watchedBy.get(key);
+            if (index != null) {
+                refreshDirectory(index, (Path) key.watchable());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        scanPool.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
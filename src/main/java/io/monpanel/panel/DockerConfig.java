@@ -0,0 +1,48 @@
+package io.monpanel.panel;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.transport.DockerHttpClient;
+
+@Configuration
+public class DockerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DockerConfig.class);
+
+    /**
+     * Client Docker partagé par tout le panel. Il parle directement au socket du démon
+     * via un pool de connexions HTTP, au lieu de lancer un processus "docker" par appel.
+     * Le mode "cli" (panel.docker.mode=cli) désactive ce bean et garde l'ancien comportement.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "panel.docker.mode", havingValue = "api", matchIfMissing = true)
+    public DockerClient dockerClient(@Value("${panel.docker.host:}") String dockerHost,
+                                     @Value("${panel.docker.max-connections:100}") int maxConnections) {
+        DefaultDockerClientConfig.Builder configBuilder = DefaultDockerClientConfig.createDefaultConfigBuilder();
+        if (!dockerHost.isBlank()) {
+            configBuilder.withDockerHost(dockerHost);
+        }
+        DefaultDockerClientConfig config = configBuilder.build();
+
+        DockerHttpClient httpClient = new ApacheDockerHttpClient.Builder()
+            .dockerHost(config.getDockerHost())
+            .sslConfig(config.getSSLConfig())
+            .maxConnections(maxConnections)
+            .connectionTimeout(Duration.ofSeconds(30))
+            .build();
+
+        log.info("Client Docker (API) configuré sur {} avec {} connexions max.", config.getDockerHost(), maxConnections);
+        return DockerClientImpl.getInstance(config, httpClient);
+    }
+}
@@ -1,123 +1,533 @@
 package io.monpanel.panel;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.InspectImageResponse;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.command.UpdateContainerCmd;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.exception.NotModifiedException;
+import com.github.dockerjava.api.model.BlkioStatEntry;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.ContainerPort;
+import com.github.dockerjava.api.model.CpuStatsConfig;
+import com.github.dockerjava.api.model.ExposedPort;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.MemoryStatsConfig;
+import com.github.dockerjava.api.model.Ports;
+import com.github.dockerjava.api.model.PullResponseItem;
+import com.github.dockerjava.api.model.ResponseItem;
+import com.github.dockerjava.api.model.StatisticNetworksConfig;
+import com.github.dockerjava.api.model.Statistics;
+import com.github.dockerjava.api.model.StreamType;
+import com.github.dockerjava.api.model.Volume;
 
 @Service
 public class DockerService {
 
     private static final Logger log = LoggerFactory.getLogger(DockerService.class);
 
+    // Adresse de publication des ports réservés au panel (RCON).
+    private static final String LOOPBACK = "127.0.0.1";
+
+    // Absent quand panel.docker.mode=cli : on retombe alors sur les commandes "docker".
+    @Autowired(required = false)
+    private DockerClient dockerClient;
+
+    @Autowired
+    private BlockingExecutor blockingExecutor;
+
+    private boolean useApi() {
+        return dockerClient != null;
+    }
+
     // ===================================================================
-    // MÉTHODE DÉDIÉE ET FIABLE POUR MINECRAFT
+    // CONTENEUR D'UN SERVEUR (Minecraft, LLM, A1111, etc.)
     // ===================================================================
-    public String createMinecraftServer(Server server, GameEgg egg) throws Exception {
-        log.info("Création d'un serveur Minecraft avec la méthode dédiée.");
 
+    /**
+     * Crée et démarre le conteneur du serveur d'après sa spec de lancement (voir LaunchSpec).
+     */
+    public String createServerContainer(Server server, LaunchSpec spec, Consumer<String> progress) throws Exception {
+        log.info("Création du conteneur du serveur '{}' ({}).", server.getName(), spec.minecraft() ? "Minecraft" : "générique");
         Path hostPath = setupServerDirectories(server);
-        List<String> command = new ArrayList<>(List.of(
-            "docker", "run", "-d",
-            "--name", generateContainerName(server.getName()),
-            "--memory", server.getMemory() + "m",
-            "--cpus", String.valueOf(server.getCpu()),
-            "-v", hostPath.toAbsolutePath().toString() + ":/data",
-            "-p", server.getHostPort() + ":" + server.getHostPort(),
-            "-e", "EULA=TRUE"
-        ));
-        
-        if (egg.getEnvironment() != null) {
-            for (Map.Entry<String, String> entry : egg.getEnvironment().entrySet()) {
-                if (!"EULA".equalsIgnoreCase(entry.getKey())) {
-                    command.add("-e");
-                    command.add(entry.getKey() + "=" + entry.getValue());
-                }
-            }
-        }
-        
-        command.add(server.getDockerImage());
-        return executeDockerCommand(command);
+        return createContainer(spec, hostPath, progress, generateContainerName(server.getName()), true, Map.of());
     }
 
     // ===================================================================
-    // MÉTHODE GÉNÉRIQUE POUR LES AUTRES SERVICES (LLM, A1111, etc.)
+    // CONTENEURS "CHAUDS" (pool de pré-création, voir WarmPoolService)
     // ===================================================================
-    public String createGenericServer(Server server, GameEgg egg) throws Exception {
-        log.info("Création d'un serveur générique (non-Minecraft).");
-        
-        Path hostPath = setupServerDirectories(server);
-        List<String> command = new ArrayList<>(List.of(
-            "docker", "run", "-d",
-            "--name", generateContainerName(server.getName()),
-            "--memory", server.getMemory() + "m",
-            "--cpus", String.valueOf(server.getCpu()),
-            "-v", hostPath.toAbsolutePath().toString() + ":/data"
-        ));
-        
-        if (egg.getPorts() != null) {
-            for (Map.Entry<String, String> entry : egg.getPorts().entrySet()) {
-                command.add("-p");
-                command.add(entry.getKey() + ":" + entry.getValue());
+
+    /**
+     * Conteneur créé à l'avance, arrêté, avec son dossier de données déjà prêt. Ses ports
+     * (hostPort, RCON, ceux de spec) lui sont attribués à la création et repris par le serveur
+     * qui le réclame.
+     */
+    public record WarmContainer(String eggId, String containerId, String hostPath, int hostPort, LaunchSpec spec,
+                                Integer rconPort, String rconPassword) {
+    }
+
+    public static final String WARM_NAME_PREFIX = "panel-warm-";
+    private static final String HOST_PATH_LABEL = "io.monpanel.host-path";
+
+    /**
+     * Pré-crée un conteneur pour cet egg, sans le démarrer ni limiter ses ressources :
+     * nom, mémoire et CPU sont appliqués au moment où un serveur le réclame.
+     */
+    public WarmContainer createWarmContainer(Server template) throws Exception {
+        Path hostPath = setupServerDirectories(template);
+        String containerName = WARM_NAME_PREFIX + UUID.randomUUID().toString().substring(0, 8);
+        String containerId = createContainer(template.getLaunchSpec(), hostPath, line -> { }, containerName, false,
+            Map.of(HOST_PATH_LABEL, template.getHostPath()));
+        return new WarmContainer(template.getEggId(), containerId, template.getHostPath(), template.getHostPort(),
+            template.getLaunchSpec(), template.getRconPort(), template.getRconPassword());
+    }
+
+    /**
+     * Attribue un conteneur chaud à un serveur : renommage, limites de ressources, démarrage.
+     */
+    public String claimWarmContainer(WarmContainer warm, Server server) throws Exception {
+        String containerName = generateContainerName(server.getName());
+        if (useApi()) {
+            dockerClient.renameContainerCmd(warm.containerId()).withName(containerName).exec();
+        } else {
+            runDockerCli(List.of("docker", "rename", warm.containerId(), containerName));
+        }
+        updateResources(warm.containerId(), server.getMemory(), server.getCpu(), server.getBlkioWeight());
+        if (useApi()) {
+            dockerClient.startContainerCmd(warm.containerId()).exec();
+        } else {
+            runDockerCli(List.of("docker", "start", warm.containerId()));
+        }
+        server.setHostPath(warm.hostPath());
+        log.info("Conteneur chaud {} attribué au serveur '{}'.", warm.containerId(), server.getName());
+        return warm.containerId();
+    }
+
+    /**
+     * Applique mémoire (Mo), CPU et poids d'E/S disque (10-1000, null = inchangé) au conteneur,
+     * en marche ou non, sans le recréer. Mémoire ou CPU à 0 : inchangés.
+     */
+    public void updateResources(String containerId, int memory, double cpu, Integer blkioWeight) throws Exception {
+        long memoryBytes = memory * 1024L * 1024L;
+        if (useApi()) {
+            UpdateContainerCmd update = dockerClient.updateContainerCmd(containerId);
+            if (memory > 0) {
+                // Même swap que "docker run --memory" : le double de la mémoire.
+                update.withMemory(memoryBytes).withMemorySwap(memoryBytes * 2);
+            }
+            if (cpu > 0) {
+                update.withNanoCPUs((long) (cpu * 1_000_000_000L));
+            }
+            if (blkioWeight != null) {
+                update.withBlkioWeight(blkioWeight);
             }
+            update.exec();
+        } else {
+            List<String> command = new ArrayList<>(List.of("docker", "update"));
+            if (memory > 0) {
+                command.addAll(List.of("--memory", memory + "m", "--memory-swap", (memory * 2) + "m"));
+            }
+            if (cpu > 0) {
+                command.addAll(List.of("--cpus", String.valueOf(cpu)));
+            }
+            if (blkioWeight != null) {
+                command.addAll(List.of("--blkio-weight", String.valueOf(blkioWeight)));
+            }
+            command.add(containerId);
+            runDockerCli(command);
         }
-        
-        if (egg.getEnvironment() != null) {
-            for (Map.Entry<String, String> entry : egg.getEnvironment().entrySet()) {
-                command.add("-e");
-                command.add(entry.getKey() + "=" + entry.getValue());
+    }
+
+    /**
+     * Supprime les conteneurs chauds restés d'une exécution précédente (le pool est en mémoire)
+     * ainsi que leurs dossiers de données. Renvoie le nombre de conteneurs supprimés.
+     */
+    public int removeStaleWarmContainers() throws Exception {
+        Map<String, String> stale = new LinkedHashMap<>();
+        if (useApi()) {
+            dockerClient.listContainersCmd().withShowAll(true).withNameFilter(List.of(WARM_NAME_PREFIX)).exec().forEach(container -> {
+                boolean warmName = container.getNames() != null && Arrays.stream(container.getNames())
+                    .anyMatch(name -> name.startsWith("/" + WARM_NAME_PREFIX));
+                if (warmName) {
+                    String hostPath = container.getLabels() != null ? container.getLabels().get(HOST_PATH_LABEL) : null;
+                    stale.put(container.getId(), hostPath != null ? hostPath : "");
+                }
+            });
+        } else {
+            Process process = new ProcessBuilder("docker", "ps", "-a", "--filter", "name=" + WARM_NAME_PREFIX,
+                "--format", "{{.ID}}\t{{.Names}}\t{{.Label \"" + HOST_PATH_LABEL + "\"}}").start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                reader.lines().map(line -> line.split("\t", -1))
+                    .filter(parts -> parts.length == 3 && parts[1].startsWith(WARM_NAME_PREFIX))
+                    .forEach(parts -> stale.put(parts[0], parts[2]));
             }
+            process.waitFor();
+        }
+        for (Map.Entry<String, String> entry : stale.entrySet()) {
+            deleteServerContainer(entry.getKey());
+            deleteWarmDirectory(entry.getValue());
+        }
+        return stale.size();
+    }
+
+    /**
+     * Jette un conteneur chaud qui ne sera jamais attribué.
+     */
+    public void discardWarmContainer(WarmContainer warm) throws Exception {
+        deleteServerContainer(warm.containerId());
+        deleteWarmDirectory(warm.hostPath());
+    }
+
+    private void deleteWarmDirectory(String hostPath) throws IOException {
+        if (hostPath == null || hostPath.isBlank()) {
+            return;
+        }
+        Path directory = Paths.get(hostPath);
+        // Garde-fou : on ne supprime que des dossiers créés par le panel.
+        if (directory.startsWith(Paths.get("servers").toAbsolutePath())) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    private void runDockerCli(List<String> command) throws Exception {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream stream = process.getInputStream()) {
+            output = new String(stream.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        if (process.waitFor() != 0) {
+            throw new RuntimeException("Erreur Docker (" + String.join(" ", command.subList(0, 2)) + ") : " + output);
         }
-        
-        command.add(server.getDockerImage());
-        return executeDockerCommand(command);
     }
 
 
     // --- Fonctions utilitaires ---
 
+    /**
+     * Dossier de données du serveur : celui qu'il a déjà s'il est recréé (changement de port,
+     * de ressources...), sinon un nouveau dossier servers/<uuid>.
+     */
     private Path setupServerDirectories(Server server) throws IOException {
+        if (server.getHostPath() != null && !server.getHostPath().isBlank()) {
+            Path existing = Paths.get(server.getHostPath());
+            Files.createDirectories(existing);
+            return existing;
+        }
         String serverUuid = UUID.randomUUID().toString();
         Path hostPath = Paths.get("servers", serverUuid);
         Files.createDirectories(hostPath);
         server.setHostPath(hostPath.toAbsolutePath().toString());
         return hostPath;
     }
-    
+
     private String generateContainerName(String serverName) {
         return serverName.replaceAll("[^a-zA-Z0-9_.-]", "_") + "_" + System.currentTimeMillis();
     }
 
-    private String executeDockerCommand(List<String> command) throws Exception {
+    /**
+     * Crée (et démarre si start) le conteneur. Les ports sont donnés sous la forme "port hôte" -> "port conteneur".
+     * progress reçoit l'avancement (téléchargement de l'image notamment). Mémoire et CPU à 0 = sans limite.
+     */
+    private String createContainer(LaunchSpec spec, Path hostPath, Consumer<String> progress, String containerName,
+                                   boolean start, Map<String, String> labels) throws Exception {
+        if (useApi()) {
+            return createContainerViaApi(spec, containerName, hostPath, progress, start, labels);
+        }
+
+        List<String> command = new ArrayList<>(start ? List.of("docker", "run", "-d") : List.of("docker", "create"));
+        command.addAll(List.of("--name", containerName));
+        if (spec.memory() > 0) {
+            command.addAll(List.of("--memory", spec.memory() + "m"));
+        }
+        if (spec.cpu() > 0) {
+            command.addAll(List.of("--cpus", String.valueOf(spec.cpu())));
+        }
+        if (spec.blkioWeight() > 0) {
+            command.addAll(List.of("--blkio-weight", String.valueOf(spec.blkioWeight())));
+        }
+        command.addAll(List.of("-v", hostPath.toAbsolutePath().toString() + ":" + spec.mountPath()));
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            command.add("--label");
+            command.add(entry.getKey() + "=" + entry.getValue());
+        }
+        for (Map.Entry<String, String> entry : spec.ports().entrySet()) {
+            command.add("-p");
+            command.add((spec.isLoopbackOnly(entry.getValue()) ? LOOPBACK + ":" : "") + entry.getKey() + ":" + entry.getValue());
+            if (spec.isUdpPublished()) {
+                command.add("-p");
+                command.add(entry.getKey() + ":" + entry.getValue() + "/udp");
+            }
+        }
+        for (Map.Entry<String, String> entry : spec.environment().entrySet()) {
+            command.add("-e");
+            command.add(entry.getKey() + "=" + entry.getValue());
+        }
+        command.add(spec.image());
+        return executeDockerCommand(command, containerName, progress);
+    }
+
+    private String createContainerViaApi(LaunchSpec spec, String containerName, Path hostPath,
+                                          Consumer<String> progress, boolean start,
+                                          Map<String, String> labels) throws Exception {
+        log.info("Création du conteneur {} via l'API Docker (image {}).", containerName, spec.image());
+        try {
+            ensureImage(spec.image(), progress);
+
+            Ports portBindings = new Ports();
+            List<ExposedPort> exposedPorts = new ArrayList<>();
+            for (Map.Entry<String, String> entry : spec.ports().entrySet()) {
+                ExposedPort exposedPort = ExposedPort.tcp(Integer.parseInt(entry.getValue().trim()));
+                exposedPorts.add(exposedPort);
+                int hostPort = Integer.parseInt(entry.getKey().trim());
+                portBindings.bind(exposedPort, spec.isLoopbackOnly(entry.getValue())
+                    ? Ports.Binding.bindIpAndPort(LOOPBACK, hostPort) : Ports.Binding.bindPort(hostPort));
+                if (spec.isUdpPublished()) {
+                    ExposedPort udpPort = ExposedPort.udp(exposedPort.getPort());
+                    exposedPorts.add(udpPort);
+                    portBindings.bind(udpPort, Ports.Binding.bindPort(hostPort));
+                }
+            }
+            List<String> env = spec.environment().entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.toList());
+
+            HostConfig hostConfig = HostConfig.newHostConfig()
+                .withBinds(new Bind(hostPath.toAbsolutePath().toString(), new Volume(spec.mountPath())))
+                .withPortBindings(portBindings);
+            if (spec.memory() > 0) {
+                hostConfig.withMemory(spec.memory() * 1024L * 1024L);
+            }
+            if (spec.cpu() > 0) {
+                hostConfig.withNanoCPUs((long) (spec.cpu() * 1_000_000_000L));
+            }
+            if (spec.blkioWeight() > 0) {
+                hostConfig.withBlkioWeight(spec.blkioWeight());
+            }
+
+            CreateContainerResponse container = dockerClient.createContainerCmd(spec.image())
+                .withName(containerName)
+                .withEnv(env)
+                .withLabels(labels)
+                .withExposedPorts(exposedPorts)
+                .withHostConfig(hostConfig)
+                .exec();
+            if (start) {
+                progress.accept("Démarrage du conteneur " + containerName + "...");
+                dockerClient.startContainerCmd(container.getId()).exec();
+            }
+
+            log.info("Conteneur créé avec succès ! ID : {}", container.getId());
+            return container.getId().substring(0, 12);
+        } catch (Exception e) {
+            log.error("Impossible de créer le conteneur via l'API Docker.", e);
+            throw new Exception("Impossible de créer le conteneur Docker. Erreur : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Équivalent du pull implicite de "docker run" : l'API refuse de créer un conteneur
+     * si l'image n'est pas présente localement.
+     */
+    private void ensureImage(String image, Consumer<String> progress) throws Exception {
+        try {
+            dockerClient.inspectImageCmd(image).exec();
+        } catch (NotFoundException e) {
+            pullImage(image, progress);
+        }
+    }
+
+    // ===================================================================
+    // IMAGES (utilisé par ImageManager)
+    // ===================================================================
+
+    /**
+     * Image présente localement. sizeBytes est la taille totale de l'image (couches partagées comprises).
+     */
+    public record ImageDetails(String id, List<String> tags, List<String> digests, long sizeBytes) {
+    }
+
+    /**
+     * Télécharge l'image ; progress reçoit l'avancement couche par couche.
+     */
+    public void pullImage(String image, Consumer<String> progress) throws Exception {
+        log.info("Téléchargement de l'image {}...", image);
+        progress.accept("Téléchargement de l'image " + image + "...");
+        if (useApi()) {
+            PullImageResultCallback callback = new PullImageResultCallback() {
+                @Override
+                public void onNext(PullResponseItem item) {
+                    super.onNext(item);
+                    if (item.getStatus() != null) {
+                        String layer = item.getId() != null ? item.getId() + " : " : "";
+                        String detail = "";
+                        ResponseItem.ProgressDetail progressDetail = item.getProgressDetail();
+                        if (progressDetail != null && progressDetail.getCurrent() != null && progressDetail.getTotal() != null
+                                && progressDetail.getTotal() > 0) {
+                            detail = " " + ServerStats.formatBinarySize(progressDetail.getCurrent()) + " / "
+                                + ServerStats.formatBinarySize(progressDetail.getTotal());
+                        }
+                        progress.accept(layer + item.getStatus() + detail);
+                    }
+                }
+            };
+            int slash = image.lastIndexOf('/');
+            int colon = image.lastIndexOf(':');
+            boolean hasTagOrDigest = image.contains("@") || colon > slash;
+            // Sans tag, l'API téléchargerait TOUS les tags de l'image.
+            if (hasTagOrDigest) {
+                dockerClient.pullImageCmd(image).exec(callback).awaitCompletion();
+            } else {
+                dockerClient.pullImageCmd(image).withTag("latest").exec(callback).awaitCompletion();
+            }
+        } else {
+            Process process = new ProcessBuilder("docker", "pull", image).redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                reader.lines().forEach(progress);
+            }
+            if (process.waitFor() != 0) {
+                throw new RuntimeException("Échec du téléchargement de l'image " + image + ".");
+            }
+        }
+        log.info("Image {} téléchargée.", image);
+    }
+
+    /**
+     * Détails de l'image si elle est présente localement, null sinon.
+     */
+    public ImageDetails inspectImage(String image) throws Exception {
+        if (useApi()) {
+            try {
+                InspectImageResponse response = dockerClient.inspectImageCmd(image).exec();
+                return new ImageDetails(response.getId(),
+                    response.getRepoTags() != null ? response.getRepoTags() : List.of(),
+                    response.getRepoDigests() != null ? response.getRepoDigests() : List.of(),
+                    valueOf(response.getSize()));
+            } catch (NotFoundException e) {
+                return null;
+            }
+        }
+        Process process = new ProcessBuilder("docker", "image", "inspect", "--format",
+            "{{.Id}}|{{.Size}}|{{join .RepoTags \",\"}}|{{join .RepoDigests \",\"}}", image).start();
+        String line;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            line = reader.readLine();
+        }
+        if (process.waitFor() != 0 || line == null) {
+            return null;
+        }
+        String[] parts = line.split("\\|", -1);
+        return new ImageDetails(parts[0], splitList(parts[2]), splitList(parts[3]), Long.parseLong(parts[1]));
+    }
+
+    public List<ImageDetails> listImages() throws Exception {
+        if (useApi()) {
+            return dockerClient.listImagesCmd().exec().stream()
+                .map(image -> new ImageDetails(image.getId(),
+                    image.getRepoTags() != null ? List.of(image.getRepoTags()) : List.of(),
+                    image.getRepoDigests() != null ? List.of(image.getRepoDigests()) : List.of(),
+                    valueOf(image.getSize())))
+                .collect(Collectors.toList());
+        }
+        // Une ligne par tag : on regroupe par ID. La CLI ne donne qu'une taille arrondie.
+        Process process = new ProcessBuilder("docker", "image", "ls", "--no-trunc", "--format",
+            "{{.ID}}|{{.Repository}}:{{.Tag}}|{{.Digest}}|{{.Size}}").start();
+        Map<String, ImageDetails> images = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            reader.lines().map(line -> line.split("\\|", -1)).filter(parts -> parts.length == 4).forEach(parts -> {
+                ImageDetails previous = images.get(parts[0]);
+                List<String> tags = new ArrayList<>(previous != null ? previous.tags() : List.of());
+                if (!parts[1].contains("<none>")) {
+                    tags.add(parts[1]);
+                }
+                List<String> digests = new ArrayList<>(previous != null ? previous.digests() : List.of());
+                if (!parts[2].contains("<none>")) {
+                    digests.add(parts[1].substring(0, parts[1].lastIndexOf(':')) + "@" + parts[2]);
+                }
+                images.put(parts[0], new ImageDetails(parts[0], tags, digests, ServerStats.parseSize(parts[3])));
+            });
+        }
+        process.waitFor();
+        return new ArrayList<>(images.values());
+    }
+
+    public void removeImage(String imageId) throws Exception {
+        if (useApi()) {
+            dockerClient.removeImageCmd(imageId).exec();
+            return;
+        }
+        runDockerCli(List.of("docker", "rmi", imageId));
+    }
+
+    private static List<String> splitList(String text) {
+        return text.isBlank() ? List.of() : List.of(text.split(","));
+    }
+
+    private String executeDockerCommand(List<String> command, String containerName, Consumer<String> progress) throws Exception {
         log.info("Commande Docker complète en cours d'exécution : {}", String.join(" ", command));
-        
+
         try {
             ProcessBuilder processBuilder = new ProcessBuilder(command);
             Process process = processBuilder.start();
-            
+
+            // "docker run" écrit l'avancement du pull implicite sur stderr : on le relaie
+            // et on le garde pour le message d'erreur.
+            List<String> errorLines = new ArrayList<>();
+            try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = errorReader.readLine()) != null) {
+                    errorLines.add(line);
+                    progress.accept(line);
+                }
+            }
             process.waitFor();
-            
-            String containerName = command.get(4);
+
             Process inspectProcess = new ProcessBuilder("docker", "inspect", "--format", "{{.Id}}", containerName).start();
             String containerId = new BufferedReader(new InputStreamReader(inspectProcess.getInputStream())).readLine();
-            
+
             if (containerId == null || containerId.isBlank()) {
-                String error = new BufferedReader(new InputStreamReader(process.getErrorStream())).lines().collect(Collectors.joining("\n"));
+                String error = String.join("\n", errorLines);
                 log.error("Erreur Docker : {}", error);
                 throw new RuntimeException("N'a pas pu récupérer l'ID du conteneur après sa création. Erreur : " + error);
             }
@@ -130,51 +540,399 @@ public class DockerService {
             throw new Exception("Impossible de créer le conteneur Docker. Erreur : " + e.getMessage());
         }
     }
-    
+
     // --- Le reste des méthodes ---
-    
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     private static class DockerStatsData {
+        @JsonProperty("ID") String id;
         @JsonProperty("CPUPerc") String cpuPercent;
         @JsonProperty("MemUsage") String memoryUsage;
         @JsonProperty("NetIO") String netIO;
         @JsonProperty("BlockIO") String blockIO;
     }
 
-    public ServerStats getStats(String containerId) {
-        ServerStats stats = new ServerStats();
-        if (containerId == null || containerId.isBlank()) {
-            stats.setError("Container ID is missing.");
-            return stats;
+    public boolean isApiMode() {
+        return useApi();
+    }
+
+    /**
+     * Ports hôte publiés par les conteneurs démarrés (voir PortAllocator).
+     */
+    public Set<Integer> listPublishedPorts() throws Exception {
+        if (useApi()) {
+            return dockerClient.listContainersCmd().exec().stream()
+                .flatMap(container -> Arrays.stream(container.getPorts()))
+                .map(ContainerPort::getPublicPort)
+                .filter(port -> port != null && port > 0)
+                .collect(Collectors.toSet());
         }
-        try {
-            ProcessBuilder checkPb = new ProcessBuilder("docker", "inspect", "--format='{{.State.Running}}'", containerId);
-            Process checkP = checkPb.start();
-            String isRunning = new BufferedReader(new InputStreamReader(checkP.getInputStream())).readLine();
-            if (checkP.waitFor() != 0 || !"true".equals(isRunning.replace("'", ""))) {
-                return stats;
+        Process process = new ProcessBuilder("docker", "ps", "--format", "{{.Ports}}").start();
+        Set<Integer> ports = new HashSet<>();
+        // Format : "0.0.0.0:25565->25565/tcp, :::25565->25565/tcp"
+        Pattern published = Pattern.compile(":(\\d+)->");
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            reader.lines().forEach(line -> {
+                Matcher matcher = published.matcher(line);
+                while (matcher.find()) {
+                    ports.add(Integer.parseInt(matcher.group(1)));
+                }
+            });
+        }
+        if (process.waitFor() != 0) {
+            throw new RuntimeException("La commande 'docker ps' a échoué.");
+        }
+        return ports;
+    }
+
+    /**
+     * Identifiants courts (12 caractères) des conteneurs actuellement démarrés.
+     */
+    public Set<String> listRunningContainerIds() throws Exception {
+        if (useApi()) {
+            return dockerClient.listContainersCmd().withStatusFilter(List.of("running")).exec().stream()
+                .map(container -> container.getId().substring(0, 12))
+                .collect(Collectors.toSet());
+        }
+        Process process = new ProcessBuilder("docker", "ps", "-q", "--no-trunc").start();
+        Set<String> ids;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            ids = reader.lines()
+                .filter(line -> line.length() >= 12)
+                .map(line -> line.substring(0, 12))
+                .collect(Collectors.toSet());
+        }
+        if (process.waitFor() != 0) {
+            throw new RuntimeException("La commande 'docker ps' a échoué.");
+        }
+        return ids;
+    }
+
+    /**
+     * Abonnement longue durée aux stats d'un conteneur (mode API uniquement).
+     * Chaque échantillon reçu du démon est converti et passé à onSample ; onEnd est appelé
+     * quand le flux se termine (conteneur arrêté, erreur). Fermer le résultat coupe le flux.
+     */
+    public Closeable streamStats(String containerId, Consumer<ServerStats> onSample, Runnable onEnd) {
+        return dockerClient.statsCmd(containerId).exec(new ResultCallback.Adapter<Statistics>() {
+            @Override
+            public void onNext(Statistics statistics) {
+                ServerStats stats = new ServerStats();
+                applyStatistics(stats, statistics);
+                onSample.accept(stats);
             }
 
-            ProcessBuilder pb = new ProcessBuilder("docker", "stats", "--no-stream", "--format", "{{json .}}", containerId);
-            Process p = pb.start();
-            String statsJson = new BufferedReader(new InputStreamReader(p.getInputStream())).readLine();
-            p.waitFor();
+            @Override
+            public void onError(Throwable throwable) {
+                log.debug("Flux de stats interrompu pour le conteneur {} : {}", containerId, throwable.getMessage());
+                super.onError(throwable);
+                onEnd.run();
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                onEnd.run();
+            }
+        });
+    }
 
+    /**
+     * Mode CLI : un seul processus "docker stats" (sans --no-stream) pour tous les conteneurs
+     * démarrés, au lieu d'un processus par requête. onSample reçoit l'ID court et l'échantillon.
+     */
+    public Process streamAllStatsViaCli(BiConsumer<String, ServerStats> onSample) throws IOException {
+        Process process = new ProcessBuilder("docker", "stats", "--format", "{{json .}}").start();
+        blockingExecutor.execute("docker-stats-reader", () -> {
             ObjectMapper mapper = new ObjectMapper();
-            DockerStatsData data = mapper.readValue(statsJson, DockerStatsData.class);
-            
-            stats.setCpuPercent(data.cpuPercent);
-            stats.setMemoryUsage(data.memoryUsage);
-            stats.setNetIO(data.netIO);
-            stats.setBlockIO(data.blockIO);
-            stats.setOffline(false);
-
-            return stats;
-        } catch (Exception e) {
-            log.warn("Impossible de récupérer les stats pour le conteneur {}: {}", containerId, e.getMessage());
-            stats.setError(e.getMessage());
-            return stats;
+            try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    // Chaque rafraîchissement est précédé de codes d'effacement d'écran.
+                    int start = line.indexOf('{');
+                    if (start < 0) {
+                        continue;
+                    }
+                    DockerStatsData data = mapper.readValue(line.substring(start), DockerStatsData.class);
+                    if (data.id == null || data.id.length() < 12) {
+                        continue;
+                    }
+                    ServerStats stats = new ServerStats();
+                    applyCliStats(stats, data);
+                    onSample.accept(data.id.substring(0, 12), stats);
+                }
+            } catch (Exception e) {
+                log.warn("Lecture du flux 'docker stats' interrompue : {}", e.getMessage());
+            }
+        });
+        return process;
+    }
+
+    /**
+     * Flux "docker attach" ouvert sur un conteneur : on peut écrire sur son entrée standard
+     * et le fermer. La sortie est livrée au callback passé à attachConsole.
+     */
+    public interface ConsoleAttachment extends Closeable {
+        void write(byte[] bytes) throws IOException;
+    }
+
+    /**
+     * Entrée standard de l'attache API : les écritures sont mises en file et lues par le
+     * thread du transport Docker. Contrairement à PipedInputStream, le thread écrivain
+     * peut se terminer sans casser le flux.
+     */
+    private static class StdinPipe extends InputStream {
+        private static final byte[] EOF = new byte[0];
+        private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+        private byte[] current = new byte[0];
+        private int position = 0;
+        private volatile boolean closed = false;
+
+        void push(byte[] bytes) throws IOException {
+            if (closed) {
+                throw new IOException("Entrée standard fermée.");
+            }
+            chunks.add(bytes.clone());
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (position >= current.length) {
+                if (current == EOF) {
+                    return -1;
+                }
+                try {
+                    current = chunks.take();
+                    position = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                chunks.add(EOF);
+            }
+        }
+    }
+
+    /**
+     * Ouvre un seul flux d'attache sur le conteneur. onOutput reçoit les octets bruts
+     * (stdout et stderr mélangés) et onEnd est appelé quand le flux se termine.
+     */
+    public ConsoleAttachment attachConsole(String containerId, Consumer<byte[]> onOutput, Runnable onEnd) throws IOException {
+        if (useApi()) {
+            StdinPipe stdin = new StdinPipe();
+            ResultCallback.Adapter<Frame> callback = dockerClient.attachContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withFollowStream(true)
+                .withStdIn(stdin)
+                .exec(new ResultCallback.Adapter<Frame>() {
+                    @Override
+                    public void onNext(Frame frame) {
+                        onOutput.accept(frame.getPayload());
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        log.debug("Attache du conteneur {} interrompue : {}", containerId, throwable.getMessage());
+                        super.onError(throwable);
+                        onEnd.run();
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        super.onComplete();
+                        onEnd.run();
+                    }
+                });
+            return new ConsoleAttachment() {
+                @Override
+                public void write(byte[] bytes) throws IOException {
+                    stdin.push(bytes);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    stdin.close();
+                    callback.close();
+                }
+            };
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder("docker", "attach", containerId);
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+        blockingExecutor.execute("console-" + containerId, () -> {
+            byte[] buffer = new byte[8192];
+            try (InputStream output = process.getInputStream()) {
+                int read;
+                while ((read = output.read(buffer)) != -1) {
+                    onOutput.accept(Arrays.copyOf(buffer, read));
+                }
+            } catch (IOException e) {
+                log.debug("Lecture de 'docker attach' interrompue pour {} : {}", containerId, e.getMessage());
+            } finally {
+                onEnd.run();
+            }
+        });
+        OutputStream stdin = process.getOutputStream();
+        // ReentrantLock : l'écriture dans le tube peut bloquer, sans immobiliser de thread porteur.
+        ReentrantLock stdinLock = new ReentrantLock();
+        return new ConsoleAttachment() {
+            @Override
+            public void write(byte[] bytes) throws IOException {
+                stdinLock.lock();
+                try {
+                    stdin.write(bytes);
+                    stdin.flush();
+                } finally {
+                    stdinLock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        };
+    }
+
+    /**
+     * Dernières lignes de sortie du conteneur (stdout et stderr), sans suivre le flux.
+     * Sert à pré-remplir le buffer de rejeu quand on ouvre une console.
+     */
+    public byte[] readRecentLogs(String containerId, int tailLines) throws Exception {
+        if (useApi()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            dockerClient.logContainerCmd(containerId)
+                .withStdOut(true)
+                .withStdErr(true)
+                .withTail(tailLines)
+                .exec(new ResultCallback.Adapter<Frame>() {
+                    @Override
+                    public void onNext(Frame frame) {
+                        output.writeBytes(frame.getPayload());
+                    }
+                })
+                .awaitCompletion(10, TimeUnit.SECONDS);
+            return output.toByteArray();
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder("docker", "logs", "--tail", String.valueOf(tailLines), containerId);
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
+        try (InputStream output = process.getInputStream()) {
+            byte[] bytes = output.readAllBytes();
+            process.waitFor(10, TimeUnit.SECONDS);
+            return bytes;
+        }
+    }
+
+    /**
+     * Convertit un échantillon brut de l'API dans le même format que "docker stats".
+     */
+    private void applyStatistics(ServerStats stats, Statistics statistics) {
+        double cpuPercent = 0.0;
+        CpuStatsConfig cpu = statistics.getCpuStats();
+        CpuStatsConfig preCpu = statistics.getPreCpuStats();
+        if (cpu != null && preCpu != null && cpu.getCpuUsage() != null && preCpu.getCpuUsage() != null) {
+            long cpuDelta = valueOf(cpu.getCpuUsage().getTotalUsage()) - valueOf(preCpu.getCpuUsage().getTotalUsage());
+            long systemDelta = valueOf(cpu.getSystemCpuUsage()) - valueOf(preCpu.getSystemCpuUsage());
+            long onlineCpus = valueOf(cpu.getOnlineCpus());
+            if (onlineCpus == 0 && cpu.getCpuUsage().getPercpuUsage() != null) {
+                onlineCpus = cpu.getCpuUsage().getPercpuUsage().size();
+            }
+            if (cpuDelta > 0 && systemDelta > 0) {
+                cpuPercent = (double) cpuDelta / systemDelta * onlineCpus * 100.0;
+            }
+        }
+
+        long memoryUsage = 0;
+        long memoryLimit = 0;
+        MemoryStatsConfig memory = statistics.getMemoryStats();
+        if (memory != null) {
+            memoryUsage = valueOf(memory.getUsage());
+            memoryLimit = valueOf(memory.getLimit());
+            // Comme la CLI : on retire le cache de page (cgroup v1) ou inactive_file (cgroup v2).
+            if (memory.getStats() != null) {
+                long cache = memory.getStats().getTotalInactiveFile() != null
+                    ? memory.getStats().getTotalInactiveFile()
+                    : valueOf(memory.getStats().getInactiveFile());
+                if (cache < memoryUsage) {
+                    memoryUsage -= cache;
+                }
+            }
         }
+
+        long rx = 0;
+        long tx = 0;
+        if (statistics.getNetworks() != null) {
+            for (StatisticNetworksConfig network : statistics.getNetworks().values()) {
+                rx += valueOf(network.getRxBytes());
+                tx += valueOf(network.getTxBytes());
+            }
+        }
+
+        long blockRead = 0;
+        long blockWrite = 0;
+        if (statistics.getBlkioStats() != null && statistics.getBlkioStats().getIoServiceBytesRecursive() != null) {
+            for (BlkioStatEntry entry : statistics.getBlkioStats().getIoServiceBytesRecursive()) {
+                if ("read".equalsIgnoreCase(entry.getOp())) {
+                    blockRead += valueOf(entry.getValue());
+                } else if ("write".equalsIgnoreCase(entry.getOp())) {
+                    blockWrite += valueOf(entry.getValue());
+                }
+            }
+        }
+
+        stats.setCpuFraction(cpuPercent / 100.0);
+        stats.setMemoryBytes(memoryUsage);
+        stats.setMemoryLimitBytes(memoryLimit);
+        stats.setRxBytes(rx);
+        stats.setTxBytes(tx);
+        stats.setBlockReadBytes(blockRead);
+        stats.setBlockWriteBytes(blockWrite);
+        stats.setOffline(false);
+    }
+
+    /**
+     * Remplit les champs numériques à partir d'une ligne JSON de "docker stats" (mode CLI).
+     */
+    private void applyCliStats(ServerStats stats, DockerStatsData data) {
+        String cpu = data.cpuPercent != null ? data.cpuPercent.replace("%", "").trim() : "";
+        stats.setCpuFraction(cpu.isEmpty() || "--".equals(cpu) ? 0.0 : Double.parseDouble(cpu) / 100.0);
+        long[] memory = ServerStats.parseSizePair(data.memoryUsage);
+        stats.setMemoryBytes(memory[0]);
+        stats.setMemoryLimitBytes(memory[1]);
+        long[] network = ServerStats.parseSizePair(data.netIO);
+        stats.setRxBytes(network[0]);
+        stats.setTxBytes(network[1]);
+        long[] block = ServerStats.parseSizePair(data.blockIO);
+        stats.setBlockReadBytes(block[0]);
+        stats.setBlockWriteBytes(block[1]);
+        stats.setOffline(false);
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
     }
 
     public void deleteServerContainer(String containerId) throws Exception {
@@ -182,6 +940,10 @@ public class DockerService {
             log.info("Aucun ID de conteneur fourni, suppression ignorée.");
             return;
         }
+        if (useApi()) {
+            deleteServerContainerViaApi(containerId);
+            return;
+        }
         try {
             log.info("Tentative d'arrêt du conteneur : {}", containerId);
             try {
@@ -206,10 +968,32 @@ public class DockerService {
         }
     }
 
+    private void deleteServerContainerViaApi(String containerId) throws Exception {
+        try {
+            log.info("Tentative d'arrêt du conteneur : {}", containerId);
+            try {
+                dockerClient.stopContainerCmd(containerId).exec();
+            } catch (Exception e) {
+                log.warn("Impossible d'arrêter le conteneur (il est peut-être déjà arrêté) : {}", e.getMessage());
+            }
+            log.info("Tentative de suppression du conteneur : {}", containerId);
+            dockerClient.removeContainerCmd(containerId).exec();
+            log.info("Conteneur {} supprimé avec succès !", containerId);
+        } catch (Exception e) {
+            log.error("Impossible de supprimer le conteneur Docker {}.", containerId, e);
+            throw new Exception("Impossible de supprimer le conteneur Docker. Erreur : " + e.getMessage());
+        }
+    }
+
     public void performServerAction(String containerId, String action) throws Exception {
         if (containerId == null || containerId.isEmpty()) {
             throw new Exception("ID de conteneur invalide.");
         }
+        if (useApi()) {
+            performServerActionViaApi(containerId, action);
+            log.info("Action '{}' exécutée avec succès pour le conteneur {}", action, containerId);
+            return;
+        }
         ProcessBuilder pb = new ProcessBuilder("docker", action, containerId);
         Process process = pb.start();
         int exitCode = process.waitFor();
@@ -219,19 +1003,36 @@ public class DockerService {
         }
         log.info("Action '{}' exécutée avec succès pour le conteneur {}", action, containerId);
     }
-    
-    public void pullLlmModel(String containerId, String modelName) throws Exception {
+
+    private void performServerActionViaApi(String containerId, String action) throws Exception {
+        try {
+            switch (action) {
+                case "start" -> dockerClient.startContainerCmd(containerId).exec();
+                case "stop" -> dockerClient.stopContainerCmd(containerId).exec();
+                case "restart" -> dockerClient.restartContainerCmd(containerId).exec();
+                case "kill" -> dockerClient.killContainerCmd(containerId).exec();
+                case "pause" -> dockerClient.pauseContainerCmd(containerId).exec();
+                case "unpause" -> dockerClient.unpauseContainerCmd(containerId).exec();
+                default -> throw new IllegalArgumentException("Action inconnue : " + action);
+            }
+        } catch (NotModifiedException e) {
+            // Déjà dans l'état demandé (ex : "start" sur un conteneur démarré), comme la CLI.
+            log.info("Le conteneur {} est déjà dans l'état demandé par '{}'.", containerId, action);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Erreur Docker lors de l'action '" + action + "': " + e.getMessage());
+        }
+    }
+
+    public void pullLlmModel(String containerId, String modelName, Consumer<String> progress) throws Exception {
         if (containerId == null || containerId.isBlank() || modelName == null || modelName.isBlank()) {
             throw new IllegalArgumentException("L'ID du conteneur et le nom du modèle sont requis.");
         }
         log.info("Tentative de téléchargement du modèle '{}' pour le conteneur {}", modelName, containerId);
         List<String> command = List.of("docker", "exec", containerId, "ollama", "pull", modelName);
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            Process process = processBuilder.start();
-            new Thread(() -> new BufferedReader(new InputStreamReader(process.getInputStream())).lines().forEach(log::info)).start();
-            new Thread(() -> new BufferedReader(new InputStreamReader(process.getErrorStream())).lines().forEach(log::error)).start();
-            int exitCode = process.waitFor();
+            int exitCode = execInContainer(command, progress);
             if (exitCode != 0) {
                 log.error("La commande 'ollama pull' a échoué avec le code de sortie : {}", exitCode);
                 throw new RuntimeException("Échec du téléchargement du modèle. Vérifiez les logs pour plus de détails.");
@@ -243,7 +1044,7 @@ public class DockerService {
         }
     }
 
-    public void installA1111Model(String containerId, String modelUrl) throws Exception {
+    public void installA1111Model(String containerId, String modelUrl, Consumer<String> progress) throws Exception {
         if (containerId == null || modelUrl == null || !modelUrl.startsWith("http")) {
             throw new IllegalArgumentException("ID de conteneur et URL de modèle valides requis.");
         }
@@ -255,11 +1056,7 @@ public class DockerService {
         log.info("Téléchargement du modèle A1111 depuis {} vers {}", modelUrl, destinationPath);
         List<String> command = List.of("docker", "exec", containerId, "wget", modelUrl, "-O", destinationPath);
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            Process process = processBuilder.start();
-            new Thread(() -> new BufferedReader(new InputStreamReader(process.getInputStream())).lines().forEach(log::info)).start();
-            new Thread(() -> new BufferedReader(new InputStreamReader(process.getErrorStream())).lines().forEach(log::error)).start();
-            int exitCode = process.waitFor();
+            int exitCode = execInContainer(command, progress);
             if (exitCode != 0) {
                 throw new RuntimeException("Échec de la commande wget pour le téléchargement du modèle.");
             }
@@ -269,4 +1066,58 @@ public class DockerService {
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exécute une commande "docker exec <conteneur> ..." et renvoie son code de sortie.
+     * La sortie est redirigée vers les logs du panel et, ligne par ligne, vers progress.
+     */
+    private int execInContainer(List<String> command, Consumer<String> progress) throws Exception {
+        String containerId = command.get(2);
+        if (useApi()) {
+            String[] cmd = command.subList(3, command.size()).toArray(new String[0]);
+            ExecCreateCmdResponse exec = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmd)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec();
+            dockerClient.execStartCmd(exec.getId()).exec(new ResultCallback.Adapter<Frame>() {
+                @Override
+                public void onNext(Frame frame) {
+                    String output = new String(frame.getPayload(), StandardCharsets.UTF_8).stripTrailing();
+                    if (frame.getStreamType() == StreamType.STDERR) {
+                        log.error(output);
+                    } else {
+                        log.info(output);
+                    }
+                    forwardLines(output, progress);
+                }
+            }).awaitCompletion();
+            Long exitCode = dockerClient.inspectExecCmd(exec.getId()).exec().getExitCodeLong();
+            return exitCode != null ? exitCode.intValue() : -1;
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        Process process = processBuilder.start();
+        blockingExecutor.execute("exec-out-" + containerId, () -> new BufferedReader(new InputStreamReader(process.getInputStream())).lines().forEach(line -> {
+            log.info(line);
+            forwardLines(line, progress);
+        }));
+        blockingExecutor.execute("exec-err-" + containerId, () -> new BufferedReader(new InputStreamReader(process.getErrorStream())).lines().forEach(line -> {
+            log.error(line);
+            forwardLines(line, progress);
+        }));
+        return process.waitFor();
+    }
+
+    /**
+     * Les barres de progression (ollama, wget) réécrivent la même ligne avec des \r :
+     * chaque état est relayé comme une ligne à part.
+     */
+    private static void forwardLines(String output, Consumer<String> progress) {
+        for (String line : output.split("[\r\n]+")) {
+            if (!line.isBlank()) {
+                progress.accept(line.strip());
+            }
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package io.monpanel.panel;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
@@ -17,68 +30,263 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
+/**
+ * Catalogue des Eggs, rangés en catégorie/sous-catégorie/egg.json : ceux du classpath, puis ceux
+ * du dossier panel.eggs.path (même arborescence), qui remplacent ceux du classpath de même
+ * identifiant. Ce dossier est surveillé : un egg ajouté, modifié ou supprimé est pris en compte
+ * sans redémarrer le panel.
+ *
+ * Les eggs importés d'un dépôt communautaire (voir EggSyncService) s'y ajoutent.
+ *
+ * Le catalogue et ses index (par identifiant, image, nom et catégorie) sont immuables et
+ * remplacés d'un bloc à chaque rechargement : les lectures ne prennent aucun verrou.
+ */
 @Service
 public class EggService {
 
     private static final Logger log = LoggerFactory.getLogger(EggService.class);
 
-    // La structure de données est maintenant une "Map dans une Map" pour gérer les sous-catégories
-    private final Map<String, Map<String, List<GameEgg>>> cachedEggs = new TreeMap<>();
+    private record Catalog(Map<String, Map<String, List<GameEgg>>> grouped, List<GameEgg> all,
+                           Map<String, GameEgg> byId, Map<String, GameEgg> byImage, Map<String, GameEgg> byName) {
+    }
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingExecutor blockingExecutor;
+    private final Path externalDir;
+    private final long reloadDelayMs;
+    private volatile Catalog catalog = build(List.of());
+    // Eggs du classpath et du dossier local, et eggs importés du dépôt distant (EggSyncService).
+    private volatile Map<String, GameEgg> localEggs = Map.of();
+    private Map<String, GameEgg> remoteEggs = Map.of();
+    private WatchService watchService;
+
+    public EggService(BlockingExecutor blockingExecutor,
+                      @Value("${panel.eggs.path:eggs}") String externalPath,
+                      @Value("${panel.eggs.reload-delay-ms:500}") long reloadDelayMs) {
+        this.blockingExecutor = blockingExecutor;
+        this.externalDir = Paths.get(externalPath).toAbsolutePath().normalize();
+        this.reloadDelayMs = reloadDelayMs;
+    }
 
     @PostConstruct
     public void init() {
         log.info("Chargement des Eggs par catégorie et sous-catégorie...");
+        reload();
+        if (Files.isDirectory(externalDir)) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                registerDirectories();
+                blockingExecutor.execute("egg-watch", this::watchLoop);
+                log.info("Dossier d'Eggs {} surveillé.", externalDir);
+            } catch (IOException e) {
+                log.warn("Impossible de surveiller le dossier d'Eggs {} : {}", externalDir, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Relit tous les Eggs et remplace le catalogue. Un fichier illisible (en cours d'écriture...)
+     * garde la version déjà chargée.
+     */
+    public synchronized void reload() {
+        Catalog previous = catalog;
+        Map<String, GameEgg> eggs = new TreeMap<>();
         try {
             PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-            // Le pattern scanne maintenant un niveau de dossier plus profond
-            Resource[] resources = resolver.getResources("classpath:eggs/*/*/*.json");
-            ObjectMapper mapper = new ObjectMapper();
+            for (Resource resource : resolver.getResources("classpath:eggs/*/*/*.json")) {
+                // L'URL plutôt qu'un Path : les ressources peuvent être dans le jar.
+                String[] parts = resource.getURL().getPath().split("/");
+                String id = eggId(parts[parts.length - 3], parts[parts.length - 2], parts[parts.length - 1]);
+                try (InputStream inputStream = resource.getInputStream()) {
+                    eggs.put(id, parse(id, inputStream));
+                } catch (IOException e) {
+                    log.error("Egg {} illisible : {}", id, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Impossible de charger les Eggs du classpath.", e);
+        }
+        if (Files.isDirectory(externalDir)) {
+            try (DirectoryStream<Path> categories = Files.newDirectoryStream(externalDir, Files::isDirectory)) {
+                for (Path category : categories) {
+                    try (DirectoryStream<Path> subCategories = Files.newDirectoryStream(category, Files::isDirectory)) {
+                        for (Path subCategory : subCategories) {
+                            try (DirectoryStream<Path> files = Files.newDirectoryStream(subCategory, "*.json")) {
+                                for (Path file : files) {
+                                    String id = eggId(category.getFileName().toString(), subCategory.getFileName().toString(),
+                                        file.getFileName().toString());
+                                    try (InputStream inputStream = Files.newInputStream(file)) {
+                                        eggs.put(id, parse(id, inputStream));
+                                    } catch (IOException e) {
+                                        log.warn("Egg {} illisible, version précédente conservée : {}", id, e.getMessage());
+                                        GameEgg kept = previous.byId().get(id);
+                                        if (kept != null) {
+                                            eggs.put(id, kept);
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Impossible de lire le dossier d'Eggs {} : {}", externalDir, e.getMessage());
+            }
+        }
+        if (eggs.isEmpty()) {
+            log.warn("Aucun Egg trouvé. Créez une structure de dossiers comme 'resources/eggs/jeux/minecraft/paper.json'.");
+        }
+        localEggs = eggs;
+        publish();
+        log.info("{} Eggs chargés.", eggs.size());
+    }
 
-            if (resources.length == 0) {
-                log.warn("Aucun Egg trouvé. Créez une structure de dossiers comme 'resources/eggs/jeux/minecraft/paper.json'.");
-                return;
+    /**
+     * Remplace les eggs importés du dépôt distant. Un egg local de même identifiant reste prioritaire.
+     */
+    public synchronized void setRemoteEggs(Map<String, GameEgg> eggs) {
+        remoteEggs = eggs;
+        publish();
+    }
+
+    private void publish() {
+        // Eggs locaux en premier : ils l'emportent aussi pour la recherche par image.
+        List<GameEgg> eggs = new ArrayList<>(localEggs.values());
+        remoteEggs.forEach((id, egg) -> {
+            if (!localEggs.containsKey(id)) {
+                eggs.add(egg);
             }
+        });
+        catalog = build(eggs);
+    }
 
-            for (Resource resource : resources) {
-                try (InputStream inputStream = resource.getInputStream()) {
-                    GameEgg egg = mapper.readValue(inputStream, GameEgg.class);
-
-                    // On extrait les noms de catégorie et sous-catégorie depuis le chemin du fichier
-                    Path filePath = Paths.get(resource.getURI());
-                    Path subCategoryPath = filePath.getParent();
-                    Path categoryPath = subCategoryPath.getParent();
-                    
-                    String subCategoryName = subCategoryPath.getFileName().toString();
-                    String categoryName = categoryPath.getFileName().toString();
-                    
-                    String capCat = capitalize(categoryName);
-                    String capSub = capitalize(subCategoryName);
-
-                    // On ajoute l'Egg dans la structure de Map imbriquée
-                    cachedEggs.computeIfAbsent(capCat, k -> new TreeMap<>())
-                              .computeIfAbsent(capSub, k -> new ArrayList<>())
-                              .add(egg);
-
-                    log.info("Egg '{}' chargé dans {} -> {}", egg.getName(), capCat, capSub);
+    private GameEgg parse(String id, InputStream inputStream) throws IOException {
+        GameEgg egg = mapper.readValue(inputStream, GameEgg.class);
+        egg.setId(id);
+        String[] parts = id.split("/");
+        egg.setCategory(capitalize(parts[0]));
+        egg.setSubCategory(capitalize(parts[1]));
+        return egg;
+    }
+
+    private static Catalog build(List<GameEgg> eggs) {
+        Map<String, Map<String, List<GameEgg>>> grouped = new TreeMap<>();
+        Map<String, GameEgg> byId = new LinkedHashMap<>();
+        Map<String, GameEgg> byImage = new LinkedHashMap<>();
+        Map<String, GameEgg> byName = new LinkedHashMap<>();
+        for (GameEgg egg : eggs) {
+            grouped.computeIfAbsent(egg.getCategory(), k -> new TreeMap<>())
+                   .computeIfAbsent(egg.getSubCategory(), k -> new ArrayList<>())
+                   .add(egg);
+            byId.put(egg.getId(), egg);
+            // Plusieurs eggs peuvent partager une image (Vanilla et Paper) : le premier l'emporte.
+            if (egg.getDocker_image() != null) {
+                byImage.putIfAbsent(egg.getDocker_image(), egg);
+            }
+            if (egg.getName() != null) {
+                byName.putIfAbsent(egg.getName(), egg);
+            }
+        }
+        Map<String, Map<String, List<GameEgg>>> frozen = new TreeMap<>();
+        grouped.forEach((category, subCategories) -> {
+            Map<String, List<GameEgg>> frozenSub = new TreeMap<>();
+            subCategories.forEach((subCategory, list) -> frozenSub.put(subCategory, List.copyOf(list)));
+            frozen.put(category, Collections.unmodifiableMap(frozenSub));
+        });
+        return new Catalog(Collections.unmodifiableMap(frozen), List.copyOf(eggs), Collections.unmodifiableMap(byId),
+            Collections.unmodifiableMap(byImage), Collections.unmodifiableMap(byName));
+    }
+
+    // Catégorie -> sous-catégorie -> eggs, pour la page de création de serveur.
+    public Map<String, Map<String, List<GameEgg>>> getGroupedEggs() {
+        return catalog.grouped();
+    }
+
+    public List<GameEgg> getAllEggs() {
+        return catalog.all();
+    }
+
+    /**
+     * Eggs du classpath et du dossier local seulement, sans ceux du dépôt distant.
+     */
+    public List<GameEgg> getLocalEggs() {
+        return List.copyOf(localEggs.values());
+    }
+
+    public Map<String, List<GameEgg>> findByCategory(String category) {
+        return catalog.grouped().getOrDefault(capitalize(category), Map.of());
+    }
+
+    public Optional<GameEgg> findById(String id) {
+        return Optional.ofNullable(id == null ? null : catalog.byId().get(id));
+    }
+
+    public Optional<GameEgg> findByName(String name) {
+        return Optional.ofNullable(name == null ? null : catalog.byName().get(name));
+    }
+
+    public Optional<GameEgg> findByDockerImage(String dockerImage) {
+        return Optional.ofNullable(dockerImage == null ? null : catalog.byImage().get(dockerImage));
+    }
+
+    private void registerDirectories() throws IOException {
+        // Enregistrer un dossier déjà surveillé renvoie la même clé : sans effet.
+        externalDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        try (DirectoryStream<Path> categories = Files.newDirectoryStream(externalDir, Files::isDirectory)) {
+            for (Path category : categories) {
+                category.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                try (DirectoryStream<Path> subCategories = Files.newDirectoryStream(category, Files::isDirectory)) {
+                    for (Path subCategory : subCategories) {
+                        subCategory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                    }
                 }
             }
-            log.info("Chargement des Eggs terminé.");
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Impossible de charger les Eggs locaux.", e);
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                // Une copie ou un éditeur produit une rafale d'événements : on attend qu'elle
+                // se calme avant de tout relire une seule fois.
+                do {
+                    key.pollEvents();
+                    key.reset();
+                    key = watchService.poll(reloadDelayMs, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                reload();
+                try {
+                    registerDirectories();
+                } catch (IOException e) {
+                    log.warn("Surveillance du dossier d'Eggs incomplète : {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Arrêt du panel.
         }
     }
 
-    // La méthode pour la vue renvoie maintenant la nouvelle structure de données
-    public Map<String, Map<String, List<GameEgg>>> getGroupedEggs() {
-        return this.cachedEggs;
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private static String eggId(String category, String subCategory, String fileName) {
+        return category + "/" + subCategory + "/" + fileName.substring(0, fileName.length() - ".json".length());
     }
 
-    private String capitalize(String s) {
+    private static String capitalize(String s) {
         if (s == null || s.isEmpty()) {
             return s;
         }
         return s.substring(0, 1).toUpperCase() + s.substring(1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,311 @@
+package io.monpanel.panel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Import des eggs d'un dépôt communautaire (panel.eggs.repository : dépôt GitHub "owner/repo",
+ * URL git, ou dossier local déjà synchronisé) au format Pelican/Pterodactyl.
+ *
+ * Chaque fichier converti est rangé dans un cache disque adressé par le SHA-256 de son contenu
+ * (objects-vN/) : à la synchronisation suivante, seuls les fichiers au contenu inconnu sont relus,
+ * en parallèle. Le résultat complet est aussi écrit dans catalog-vN.json, relu tel quel au
+ * démarrage : le catalogue est disponible tout de suite, sans rien analyser. N change avec la
+ * conversion, pour que les eggs déjà convertis soient relus.
+ *
+ * Seuls les eggs lançables tels quels sont importés : ceux qui ont besoin de leur script
+ * d'installation (téléchargement du serveur dans le volume) sont ignorés.
+ */
+@Service
+public class EggSyncService {
+
+    private static final Logger log = LoggerFactory.getLogger(EggSyncService.class);
+
+    private static final int CACHE_VERSION = 3;
+
+    /**
+     * Un fichier du dépôt ; egg est null si ce n'est pas un egg (autre JSON).
+     */
+    public record Entry(String path, String hash, GameEgg egg) {
+    }
+
+    private final EggService eggService;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String repository;
+    private final Path cacheDir;
+    private final int parallelism;
+    // Dernier résultat, par chemin dans le dépôt.
+    private volatile Map<String, Entry> entries = Map.of();
+
+    public EggSyncService(EggService eggService,
+                          @Value("${panel.eggs.repository:}") String repository,
+                          @Value("${panel.eggs.cache-path:cache/eggs}") String cachePath,
+                          @Value("${panel.eggs.sync-parallelism:0}") int parallelism) {
+        this.eggService = eggService;
+        this.repository = repository.trim();
+        this.cacheDir = Paths.get(cachePath).toAbsolutePath().normalize();
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    @PostConstruct
+    public void loadCachedCatalog() {
+        Path catalog = cacheDir.resolve("catalog-v" + CACHE_VERSION + ".json");
+        if (repository.isEmpty() || !Files.isRegularFile(catalog)) {
+            return;
+        }
+        try {
+            List<Entry> cached = mapper.readValue(catalog.toFile(), new TypeReference<List<Entry>>() { });
+            Map<String, Entry> byPath = new LinkedHashMap<>();
+            cached.forEach(entry -> byPath.put(entry.path(), entry));
+            publish(byPath);
+            log.info("{} eggs du dépôt {} chargés depuis le cache.", cached.stream().filter(entry -> entry.egg() != null).count(),
+                repository);
+        } catch (IOException e) {
+            log.warn("Cache des eggs illisible, il sera reconstruit : {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${panel.eggs.sync-initial-delay-ms:10000}", fixedDelayString = "${panel.eggs.sync-interval-ms:21600000}")
+    public void sync() {
+        if (repository.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Path root = checkout();
+            List<Path> files = new ArrayList<>();
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    return !dir.equals(root) && dir.getFileName().toString().startsWith(".")
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && file.getFileName().toString().endsWith(".json")) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            Map<String, Entry> previous = entries;
+            AtomicInteger parsed = new AtomicInteger();
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            List<Entry> result;
+            try {
+                result = pool.submit(() -> files.parallelStream()
+                    .map(file -> load(root, file, previous, parsed))
+                    .filter(entry -> entry != null)
+                    .toList()).get();
+            } finally {
+                pool.shutdown();
+            }
+
+            Map<String, Entry> byPath = new LinkedHashMap<>();
+            result.forEach(entry -> byPath.put(entry.path(), entry));
+            writeCatalog(result);
+            publish(byPath);
+            log.info("Dépôt d'eggs {} synchronisé : {} fichiers, {} analysés, {} eggs, en {} ms.", repository, files.size(),
+                parsed.get(), byPath.values().stream().filter(entry -> entry.egg() != null).count(),
+                System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Synchronisation du dépôt d'eggs {} impossible : {}", repository, e.getMessage());
+        }
+    }
+
+    /**
+     * Entrée d'un fichier du dépôt : reprise telle quelle si son contenu n'a pas changé, relue
+     * depuis le cache si ce contenu y est déjà, analysée sinon.
+     */
+    private Entry load(Path root, Path file, Map<String, Entry> previous, AtomicInteger parsed) {
+        String path = root.relativize(file).toString().replace('\\', '/');
+        try {
+            byte[] content = Files.readAllBytes(file);
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+            Entry known = previous.get(path);
+            if (known != null && known.hash().equals(hash)) {
+                return known;
+            }
+            Path object = cacheDir.resolve("objects-v" + CACHE_VERSION).resolve(hash.substring(0, 2)).resolve(hash + ".json");
+            GameEgg egg;
+            if (Files.isRegularFile(object)) {
+                egg = mapper.readValue(object.toFile(), GameEgg.class);
+            } else {
+                egg = convert(content);
+                parsed.incrementAndGet();
+                Files.createDirectories(object.getParent());
+                Path temp = object.resolveSibling(hash + ".tmp-" + Thread.currentThread().threadId());
+                mapper.writeValue(temp.toFile(), egg);
+                Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (egg != null) {
+                placeInCatalog(egg, path);
+            }
+            return new Entry(path, hash, egg);
+        } catch (IOException e) {
+            log.debug("Egg {} ignoré : {}", path, e.getMessage());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Conversion d'un egg Pelican/Pterodactyl (PTDL) : image (la première proposée), variables
+     * avec leur valeur par défaut, commande de démarrage dans STARTUP (lue par les images yolks)
+     * et SERVER_PORT, rempli avec le port attribué au serveur (LaunchSpec, qui ajoute SERVER_MEMORY
+     * et SERVER_IP). Le dossier du serveur est monté sur /home/container, où les images yolks
+     * lancent la commande. Null si le JSON n'est pas un egg, ou si l'egg ne peut pas tourner sans
+     * son script d'installation.
+     */
+    private GameEgg convert(byte[] content) throws IOException {
+        JsonNode root = mapper.readTree(content);
+        if (root == null || !root.hasNonNull("name")) {
+            return null;
+        }
+        String image = null;
+        JsonNode images = root.get("docker_images");
+        if (images != null && images.isObject() && images.size() > 0) {
+            image = images.elements().next().asText();
+        } else if (root.hasNonNull("image")) {
+            image = root.get("image").asText();
+        }
+        if (image == null || image.isBlank()) {
+            return null;
+        }
+        if (!root.path("scripts").path("installation").path("script").asText("").isBlank()) {
+            log.debug("Egg {} ignoré : script d'installation non pris en charge.", root.get("name").asText());
+            return null;
+        }
+        Map<String, String> environment = new LinkedHashMap<>();
+        JsonNode variables = root.get("variables");
+        if (variables != null && variables.isArray()) {
+            for (JsonNode variable : variables) {
+                if (variable.hasNonNull("env_variable")) {
+                    environment.put(variable.get("env_variable").asText(), variable.path("default_value").asText(""));
+                }
+            }
+        }
+        if (root.hasNonNull("startup")) {
+            environment.put("STARTUP", root.get("startup").asText());
+        }
+        environment.put(LaunchSpec.SERVER_PORT, "");
+        GameEgg egg = new GameEgg();
+        egg.setName(root.get("name").asText());
+        egg.setDocker_image(image);
+        egg.setEnvironment(environment);
+        egg.setMount_path("/home/container");
+        return egg;
+    }
+
+    /**
+     * Identifiant et catégories d'après le chemin : game_eggs/minecraft/java/paper/egg-paper.json
+     * devient "Game" -> "Minecraft".
+     */
+    private static void placeInCatalog(GameEgg egg, String path) {
+        egg.setId(path.substring(0, path.length() - ".json".length()));
+        String[] parts = path.split("/");
+        String category = parts.length > 1 ? parts[0] : "divers";
+        if (category.endsWith("_eggs")) {
+            category = category.substring(0, category.length() - "_eggs".length());
+        }
+        egg.setCategory(capitalize(category.replace('_', ' ')));
+        egg.setSubCategory(parts.length > 2 ? capitalize(parts[1].replace('_', ' ')) : "Autres");
+    }
+
+    private void publish(Map<String, Entry> byPath) {
+        entries = byPath;
+        Map<String, GameEgg> eggs = new HashMap<>();
+        for (Entry entry : byPath.values()) {
+            if (entry.egg() != null) {
+                eggs.put(entry.egg().getId(), entry.egg());
+            }
+        }
+        eggService.setRemoteEggs(eggs);
+    }
+
+    private void writeCatalog(List<Entry> result) throws IOException {
+        Files.createDirectories(cacheDir);
+        Path catalog = cacheDir.resolve("catalog-v" + CACHE_VERSION + ".json");
+        Path temp = catalog.resolveSibling(catalog.getFileName() + ".tmp");
+        mapper.writeValue(temp.toFile(), result);
+        Files.move(temp, catalog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Dossier local utilisé tel quel ; sinon clone superficiel dans le cache, mis à jour ensuite.
+     */
+    private Path checkout() throws IOException, InterruptedException {
+        Path local = Paths.get(repository);
+        if (Files.isDirectory(local)) {
+            return local.toAbsolutePath().normalize();
+        }
+        String url = repository.contains("://") || repository.startsWith("git@")
+            ? repository : "https://github.com/" + repository + ".git";
+        Path dir = cacheDir.resolve("repository");
+        if (Files.isDirectory(dir.resolve(".git"))) {
+            git("-C", dir.toString(), "pull", "--ff-only", "--depth", "1");
+        } else {
+            FileSystemUtils.deleteRecursively(dir);
+            Files.createDirectories(cacheDir);
+            git("clone", "--depth", "1", url, dir.toString());
+        }
+        return dir;
+    }
+
+    private void git(String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(arguments));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            output = reader.lines().collect(Collectors.joining("\n"));
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("git " + arguments[0] + " a échoué : " + output);
+        }
+    }
+
+    private static String capitalize(String s) {
+        if (s == null || s.isEmpty()) {
+            return s;
+        }
+        return s.substring(0, 1).toUpperCase() + s.substring(1);
+    }
+}
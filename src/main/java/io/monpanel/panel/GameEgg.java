@@ -1,19 +1,49 @@
 package io.monpanel.panel;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class GameEgg {
 
+    // Renseignés par EggService d'après l'emplacement du fichier (categorie/sous-categorie/nom.json).
+    private String id;
+    private String category;
+    private String subCategory;
+
     private String name;
     private String docker_image;
     private String view_type = "server"; 
     private Map<String, String> ports;
     private Map<String, String> environment;
+    // Dossier du conteneur où est monté celui du serveur (null : /data, celui des images itzg et
+    // des eggs locaux ; /home/container pour les eggs Pelican importés).
+    private String mount_path;
 
     // --- Getters et Setters pour TOUS les champs ---
 
+    public String getId() {
+        return id;
+    }
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getSubCategory() {
+        return subCategory;
+    }
+    public void setSubCategory(String subCategory) {
+        this.subCategory = subCategory;
+    }
+
     public String getName() { 
         return name; 
     }
@@ -48,4 +78,17 @@ public class GameEgg {
     public void setEnvironment(Map<String, String> environment) { 
         this.environment = environment; 
     }
+
+    public String getMount_path() {
+        return mount_path;
+    }
+    public void setMount_path(String mount_path) {
+        this.mount_path = mount_path;
+    }
+
+    // Les serveurs Minecraft (image itzg) publient le port choisi par l'utilisateur au lieu des ports de l'egg.
+    @JsonIgnore
+    public boolean isMinecraft() {
+        return "server".equals(view_type) && docker_image != null && docker_image.contains("itzg/minecraft-server");
+    }
 }
\ No newline at end of file
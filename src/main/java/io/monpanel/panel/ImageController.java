@@ -0,0 +1,27 @@
+package io.monpanel.panel;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class ImageController {
+
+    @Autowired
+    private ImageManager imageManager;
+
+    @GetMapping("/admin/api/images")
+    public List<ImageManager.ImageState> listImages() {
+        return imageManager.getStates();
+    }
+
+    @PostMapping("/admin/api/images/refresh")
+    public ResponseEntity<String> refreshImages() {
+        imageManager.refresh();
+        return ResponseEntity.accepted().body("Vérification des images lancée.");
+    }
+}
@@ -0,0 +1,296 @@
+package io.monpanel.panel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Gère les images Docker des eggs : les pré-télécharge en arrière-plan (au plus
+ * panel.images.max-concurrent-pulls à la fois) pour que la première création d'un serveur
+ * ne paie pas le pull, suit leur état, et libère de la place sous panel.images.disk-budget-bytes
+ * en supprimant les images inutilisées les moins récemment utilisées.
+ *
+ * Seules les images connues du panel (catalogue d'eggs ou serveurs existants) sont
+ * concernées : les autres images de l'hôte ne sont jamais supprimées.
+ */
+@Service
+public class ImageManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageManager.class);
+
+    public enum Status { ABSENT, QUEUED, PULLING, PRESENT, FAILED, EVICTED }
+
+    /**
+     * État d'une image du catalogue, tel qu'exposé par /admin/api/images. Les changements de
+     * status se font par compare-and-set : une image en file ou en cours de pull (QUEUED,
+     * PULLING) n'est touchée que par son pull.
+     */
+    public static class ImageState {
+        private final String image;
+        private final AtomicReference<Status> status = new AtomicReference<>(Status.ABSENT);
+        private volatile String imageId;
+        private volatile String digest;
+        private volatile long sizeBytes;
+        private volatile long lastUsed;
+        private volatile String lastProgress;
+        private volatile String error;
+
+        ImageState(String image) {
+            this.image = image;
+        }
+
+        public String getImage() { return image; }
+        public Status getStatus() { return status.get(); }
+        public String getImageId() { return imageId; }
+        public String getDigest() { return digest; }
+        public long getSizeBytes() { return sizeBytes; }
+        public long getLastUsed() { return lastUsed; }
+        public String getLastProgress() { return lastProgress; }
+        public String getError() { return error; }
+
+        /**
+         * Passe à next, sauf si un pull est en file ou en cours. Faux dans ce cas.
+         */
+        boolean moveIfIdle(Status next) {
+            while (true) {
+                Status current = status.get();
+                if (current == Status.QUEUED || current == Status.PULLING) {
+                    return false;
+                }
+                if (status.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private final DockerService dockerService;
+    private final EggService eggService;
+    private final ServerRepository serverRepository;
+    private final BlockingExecutor blockingExecutor;
+    private final boolean prepullEnabled;
+    private final long diskBudgetBytes;
+    private final Semaphore pullPermits;
+    private final Map<String, ImageState> states = new ConcurrentHashMap<>();
+    // Une seule éviction à la fois ; pas de synchronized autour des appels Docker bloquants.
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public ImageManager(DockerService dockerService, EggService eggService, ServerRepository serverRepository,
+                        BlockingExecutor blockingExecutor,
+                        @Value("${panel.images.prepull-enabled:true}") boolean prepullEnabled,
+                        @Value("${panel.images.max-concurrent-pulls:2}") int maxConcurrentPulls,
+                        @Value("${panel.images.disk-budget-bytes:0}") long diskBudgetBytes) {
+        this.dockerService = dockerService;
+        this.eggService = eggService;
+        this.serverRepository = serverRepository;
+        this.blockingExecutor = blockingExecutor;
+        this.prepullEnabled = prepullEnabled;
+        this.diskBudgetBytes = diskBudgetBytes;
+        this.pullPermits = new Semaphore(Math.max(1, maxConcurrentPulls));
+    }
+
+    /**
+     * Nom canonique d'une image ("repo" et "repo:latest" désignent la même).
+     */
+    static String normalize(String image) {
+        int slash = image.lastIndexOf('/');
+        int colon = image.lastIndexOf(':');
+        return image.contains("@") || colon > slash ? image : image + ":latest";
+    }
+
+    public List<ImageState> getStates() {
+        List<ImageState> result = new ArrayList<>(states.values());
+        result.sort(Comparator.comparing(ImageState::getImage));
+        return result;
+    }
+
+    /**
+     * À appeler quand un conteneur est créé depuis cette image : la rend prioritaire face à l'éviction.
+     */
+    public void markUsed(String image) {
+        ImageState state = states.computeIfAbsent(normalize(image), ImageState::new);
+        state.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Met à jour l'état des images du catalogue et lance le pull de celles qui manquent.
+     */
+    @Scheduled(initialDelayString = "${panel.images.initial-delay-ms:5000}", fixedDelayString = "${panel.images.refresh-interval-ms:600000}")
+    public void refresh() {
+        Set<String> catalog;
+        try {
+            catalog = catalogImages();
+            for (String image : catalog) {
+                ImageState state = states.computeIfAbsent(image, ImageState::new);
+                Status current = state.getStatus();
+                if (current == Status.QUEUED || current == Status.PULLING) {
+                    continue;
+                }
+                DockerService.ImageDetails details = dockerService.inspectImage(image);
+                if (details != null) {
+                    if (state.moveIfIdle(Status.PRESENT)) {
+                        applyDetails(state, details);
+                    }
+                } else if (current != Status.EVICTED) {
+                    // Une image évincée n'est pas re-téléchargée d'office : elle le sera à la prochaine création.
+                    state.status.compareAndSet(current, Status.ABSENT);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Impossible de vérifier les images Docker : {}", e.getMessage());
+            return;
+        }
+        evictIfNeeded();
+        if (prepullEnabled && !overBudget()) {
+            states.values().stream()
+                .filter(state -> catalog.contains(state.image))
+                .filter(state -> state.getStatus() == Status.ABSENT || state.getStatus() == Status.FAILED)
+                .forEach(this::schedulePull);
+        }
+    }
+
+    /**
+     * Met l'image en file de pull, sauf si elle y est déjà ou en cours de pull (deux
+     * rafraîchissements simultanés ne la téléchargent qu'une fois).
+     */
+    public void schedulePull(ImageState state) {
+        if (!state.moveIfIdle(Status.QUEUED)) {
+            return;
+        }
+        blockingExecutor.execute("image-pull", () -> {
+            try {
+                pullPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                state.status.set(Status.PULLING);
+                state.error = null;
+                dockerService.pullImage(state.image, line -> state.lastProgress = line);
+                DockerService.ImageDetails details = dockerService.inspectImage(state.image);
+                if (details != null) {
+                    applyDetails(state, details);
+                    state.status.set(Status.PRESENT);
+                } else {
+                    state.status.set(Status.ABSENT);
+                }
+                log.info("Image {} pré-téléchargée.", state.image);
+            } catch (Exception e) {
+                state.status.set(Status.FAILED);
+                state.error = e.getMessage();
+                log.warn("Pré-téléchargement de l'image {} échoué : {}", state.image, e.getMessage());
+            } finally {
+                pullPermits.release();
+            }
+        });
+    }
+
+    /**
+     * Supprime les images du panel non utilisées par un serveur, de la moins récemment
+     * utilisée à la plus récente, jusqu'à repasser sous le budget disque.
+     */
+    @Scheduled(initialDelayString = "${panel.images.initial-delay-ms:5000}", fixedDelayString = "${panel.images.eviction-interval-ms:300000}")
+    public void evictIfNeeded() {
+        if (diskBudgetBytes <= 0) {
+            return;
+        }
+        // Une éviction déjà en cours fera le travail.
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<DockerService.ImageDetails> images = dockerService.listImages();
+            long total = images.stream().mapToLong(DockerService.ImageDetails::sizeBytes).sum();
+            if (total <= diskBudgetBytes) {
+                return;
+            }
+            Set<String> inUse = new HashSet<>();
+            serverRepository.findAll().forEach(server -> {
+                if (server.getDockerImage() != null) {
+                    inUse.add(normalize(server.getDockerImage()));
+                }
+            });
+            List<ImageState> candidates = new ArrayList<>();
+            for (DockerService.ImageDetails details : images) {
+                for (String tag : details.tags()) {
+                    ImageState state = states.get(tag);
+                    if (state != null && !inUse.contains(tag) && state.getStatus() == Status.PRESENT) {
+                        state.imageId = details.id();
+                        state.sizeBytes = details.sizeBytes();
+                        candidates.add(state);
+                    }
+                }
+            }
+            candidates.sort(Comparator.comparingLong(ImageState::getLastUsed));
+            for (ImageState state : candidates) {
+                if (total <= diskBudgetBytes) {
+                    break;
+                }
+                try {
+                    dockerService.removeImage(state.image);
+                    total -= state.sizeBytes;
+                    state.status.compareAndSet(Status.PRESENT, Status.EVICTED);
+                    log.info("Image {} supprimée pour libérer {} (budget {}).", state.image,
+                        ServerStats.formatBinarySize(state.sizeBytes), ServerStats.formatBinarySize(diskBudgetBytes));
+                } catch (Exception e) {
+                    // Typiquement : un conteneur (chaud, arrêté...) l'utilise encore.
+                    log.debug("Image {} non supprimée : {}", state.image, e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Impossible d'appliquer le budget disque des images : {}", e.getMessage());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean overBudget() {
+        if (diskBudgetBytes <= 0) {
+            return false;
+        }
+        long total = states.values().stream()
+            .filter(state -> state.getStatus() == Status.PRESENT)
+            .mapToLong(ImageState::getSizeBytes)
+            .sum();
+        return total >= diskBudgetBytes;
+    }
+
+    /**
+     * Images suivies et pré-téléchargées : celles des eggs locaux et celles des serveurs existants.
+     * Les centaines d'images du dépôt d'eggs distant ne sont téléchargées qu'à la création d'un serveur.
+     */
+    private Set<String> catalogImages() {
+        Set<String> images = new HashSet<>();
+        for (GameEgg egg : eggService.getLocalEggs()) {
+            if (egg.getDocker_image() != null && !egg.getDocker_image().isBlank()) {
+                images.add(normalize(egg.getDocker_image()));
+            }
+        }
+        for (Server server : serverRepository.findAll()) {
+            if (server.getDockerImage() != null && !server.getDockerImage().isBlank()) {
+                images.add(normalize(server.getDockerImage()));
+            }
+        }
+        return images;
+    }
+
+    private void applyDetails(ImageState state, DockerService.ImageDetails details) {
+        state.imageId = details.id();
+        state.sizeBytes = details.sizeBytes();
+        state.digest = details.digests().isEmpty() ? null : details.digests().get(0);
+    }
+}
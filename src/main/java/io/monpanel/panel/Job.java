@@ -0,0 +1,186 @@
+package io.monpanel.panel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Une opération longue (création de conteneur, téléchargement de modèle...) exécutée en
+ * arrière-plan. Garde les dernières lignes de progression et les pousse aux clients
+ * abonnés à son flux SSE.
+ */
+public class Job {
+
+    public enum Status { PENDING, RUNNING, SUCCEEDED, FAILED }
+
+    private static final int MAX_PROGRESS_LINES = 200;
+
+    private final String id;
+    private final String type;
+    private final Long serverId;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long finishedAt = 0;
+    private volatile Status status = Status.PENDING;
+    private volatile String message;
+    private volatile String lastProgress;
+    private final ArrayDeque<String> progress = new ArrayDeque<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Un client SSE. Tant que son historique n'est pas envoyé, les événements en direct sont mis
+     * de côté (backlog) puis envoyés après lui, dans l'ordre.
+     */
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final List<String[]> backlog = new ArrayList<>();
+        boolean live;
+        boolean completed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public Job(String id, String type, Long serverId) {
+        this.id = id;
+        this.type = type;
+        this.serverId = serverId;
+    }
+
+    public String getId() { return id; }
+    public String getType() { return type; }
+    public Long getServerId() { return serverId; }
+    public long getCreatedAt() { return createdAt; }
+    public long getFinishedAt() { return finishedAt; }
+    public Status getStatus() { return status; }
+    public String getMessage() { return message; }
+    public String getLastProgress() { return lastProgress; }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    /**
+     * Ajoute une ligne de progression (sortie du processus, état du pull...).
+     */
+    public void progress(String line) {
+        if (line == null || line.isBlank()) {
+            return;
+        }
+        List<Subscriber> targets;
+        synchronized (progress) {
+            progress.addLast(line);
+            if (progress.size() > MAX_PROGRESS_LINES) {
+                progress.removeFirst();
+            }
+            lastProgress = line;
+            // Ajout et liste des abonnés dans la même section : un abonné qui arrive a la ligne soit
+            // dans son historique, soit en direct, jamais les deux. L'envoi se fait hors verrou.
+            targets = List.copyOf(subscribers);
+        }
+        send(targets, "progress", line);
+    }
+
+    public List<String> getProgressLines() {
+        synchronized (progress) {
+            return List.copyOf(progress);
+        }
+    }
+
+    void start() {
+        status = Status.RUNNING;
+        send(List.copyOf(subscribers), "status", status.name());
+    }
+
+    void finish(Status finalStatus, String finalMessage) {
+        message = finalMessage;
+        finishedAt = System.currentTimeMillis();
+        status = finalStatus;
+        List<Subscriber> targets = List.copyOf(subscribers);
+        send(targets, "status", status.name());
+        // Un abonné dont l'historique est encore en cours d'envoi se termine lui-même (subscribe).
+        targets.forEach(this::complete);
+    }
+
+    /**
+     * Abonne un client : il reçoit d'abord l'historique, puis le direct.
+     */
+    void subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        List<String> history;
+        synchronized (progress) {
+            history = List.copyOf(progress);
+            subscribers.add(subscriber);
+        }
+        try {
+            emitter.send(SseEmitter.event().name("status").data(status.name()));
+            for (String line : history) {
+                emitter.send(SseEmitter.event().name("progress").data(line));
+            }
+            // Puis ce qui est arrivé pendant l'envoi de l'historique, jusqu'à rattraper le direct.
+            while (true) {
+                List<String[]> pending;
+                synchronized (subscriber) {
+                    if (subscriber.backlog.isEmpty()) {
+                        subscriber.live = true;
+                        break;
+                    }
+                    pending = List.copyOf(subscriber.backlog);
+                    subscriber.backlog.clear();
+                }
+                for (String[] event : pending) {
+                    emitter.send(SseEmitter.event().name(event[0]).data(event[1]));
+                }
+            }
+        } catch (Exception e) {
+            subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+            return;
+        }
+        // La tâche a pu se terminer entre-temps : on n'attend pas un événement qui ne viendra plus.
+        if (isFinished()) {
+            complete(subscriber);
+        }
+    }
+
+    /**
+     * Envoie "done" et ferme le flux, une seule fois, et seulement une fois l'historique envoyé.
+     */
+    private void complete(Subscriber subscriber) {
+        synchronized (subscriber) {
+            if (!subscriber.live || subscriber.completed) {
+                return;
+            }
+            subscriber.completed = true;
+        }
+        subscribers.remove(subscriber);
+        try {
+            subscriber.emitter.send(SseEmitter.event().name("done").data(message != null ? message : ""));
+        } catch (Exception e) {
+            // Client déjà parti.
+        }
+        subscriber.emitter.complete();
+    }
+
+    private void send(List<Subscriber> targets, String event, String data) {
+        for (Subscriber subscriber : targets) {
+            synchronized (subscriber) {
+                if (!subscriber.live) {
+                    subscriber.backlog.add(new String[] { event, data });
+                    continue;
+                }
+            }
+            try {
+                subscriber.emitter.send(SseEmitter.event().name(event).data(data));
+            } catch (Exception e) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package io.monpanel.panel;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class JobController {
+
+    @Autowired
+    private JobService jobService;
+
+    @GetMapping("/api/jobs/{id}")
+    public ResponseEntity<Job> getJob(@PathVariable String id) {
+        return jobService.get(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/api/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        return jobService.get(id)
+            .map(job -> ResponseEntity.ok(jobService.subscribe(job)))
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
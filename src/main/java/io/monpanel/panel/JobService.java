@@ -0,0 +1,76 @@
+package io.monpanel.panel;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Exécute les opérations longues en arrière-plan : l'endpoint qui les lance répond tout de
+ * suite avec l'ID de la tâche, suivie ensuite via /api/jobs/{id} et son flux d'événements.
+ * Les tâches terminées sont oubliées après panel.jobs.retention-ms.
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    /**
+     * Le travail d'une tâche. Renvoie le message de succès ; une exception la marque en échec.
+     */
+    @FunctionalInterface
+    public interface JobTask {
+        String run(Job job) throws Exception;
+    }
+
+    private final BlockingExecutor blockingExecutor;
+    private final long retentionMs;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public JobService(BlockingExecutor blockingExecutor,
+                      @Value("${panel.jobs.retention-ms:3600000}") long retentionMs) {
+        this.blockingExecutor = blockingExecutor;
+        this.retentionMs = retentionMs;
+    }
+
+    public Job submit(String type, Long serverId, JobTask task) {
+        Job job = new Job(UUID.randomUUID().toString(), type, serverId);
+        jobs.put(job.getId(), job);
+        blockingExecutor.execute("job-" + type + "-" + job.getId().substring(0, 8), () -> {
+            job.start();
+            try {
+                String result = task.run(job);
+                job.finish(Job.Status.SUCCEEDED, result);
+                log.info("Tâche {} ({}) terminée : {}", job.getId(), type, result);
+            } catch (Exception e) {
+                log.error("Tâche {} ({}) en échec : {}", job.getId(), type, e.getMessage());
+                job.finish(Job.Status.FAILED, e.getMessage());
+            }
+        });
+        return job;
+    }
+
+    public Optional<Job> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public SseEmitter subscribe(Job job) {
+        // Pas de timeout : un pull d'image ou de modèle peut durer très longtemps.
+        SseEmitter emitter = new SseEmitter(0L);
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${panel.jobs.cleanup-interval-ms:60000}")
+    public void purgeFinishedJobs() {
+        long limit = System.currentTimeMillis() - retentionMs;
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt() < limit);
+    }
+}
@@ -0,0 +1,164 @@
+package io.monpanel.panel;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Tout ce qu'il faut pour (re)créer le conteneur d'un serveur, résolu une fois à partir de son
+ * egg : image, ports ("port hôte" -> "port conteneur"), environnement, limites (mémoire en
+ * Mo, CPU, poids d'E/S disque ; 0 = sans limite) et dossier du conteneur où monter celui du
+ * serveur (/data si absent, comme avant son ajout). Stocké avec le serveur (LaunchSpecConverter)
+ * pour qu'une recréation n'ait plus besoin du catalogue d'eggs.
+ *
+ * version est celle du format : une spec plus ancienne que CURRENT_VERSION est résolue à
+ * nouveau depuis l'egg à la prochaine recréation.
+ *
+ * Les ports hôte viennent de PortAllocator ; pour Minecraft, le port RCON du serveur (s'il en
+ * a un) est publié vers celui du conteneur, avec son mot de passe, sur 127.0.0.1 seulement.
+ * Les eggs Pelican n'ont pas de ports : leur serveur écoute sur SERVER_PORT, qui reçoit le port
+ * attribué, publié tel quel en TCP et en UDP.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record LaunchSpec(int version, String image, Map<String, String> ports, Map<String, String> environment,
+                         int memory, double cpu, int blkioWeight, boolean minecraft, String mountPath) {
+
+    public static final int CURRENT_VERSION = 2;
+
+    static final String DEFAULT_MOUNT_PATH = "/data";
+
+    // Ports d'écoute par défaut de l'image itzg/minecraft-server.
+    static final String MINECRAFT_GAME_PORT = "25565";
+    static final String MINECRAFT_RCON_PORT = "25575";
+
+    // Variables des eggs Pelican/Pterodactyl fournies par le panel : port d'écoute, mémoire (Mo)
+    // et adresse d'écoute, utilisées par les commandes de démarrage ({{SERVER_MEMORY}}...).
+    static final String SERVER_PORT = "SERVER_PORT";
+    static final String SERVER_MEMORY = "SERVER_MEMORY";
+    static final String SERVER_IP = "SERVER_IP";
+    // SERVER_MEMORY d'un serveur sans limite : un -Xmx{{SERVER_MEMORY}}M doit rester valide.
+    static final int UNLIMITED_SERVER_MEMORY = 1024;
+
+    public LaunchSpec {
+        if (mountPath == null || mountPath.isBlank()) {
+            mountPath = DEFAULT_MOUNT_PATH;
+        }
+    }
+
+    public static LaunchSpec resolve(Server server, GameEgg egg) {
+        boolean minecraft = egg.isMinecraft();
+        Map<String, String> environment = new LinkedHashMap<>();
+        if (minecraft) {
+            environment.put("EULA", "TRUE");
+        }
+        if (egg.getEnvironment() != null) {
+            for (Map.Entry<String, String> entry : egg.getEnvironment().entrySet()) {
+                if (!minecraft || !"EULA".equalsIgnoreCase(entry.getKey())) {
+                    environment.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        // Les serveurs Minecraft publient le port attribué au serveur, les autres ceux de l'egg
+        // (que ProvisioningService remplace ensuite par des ports attribués, voir withPorts).
+        Map<String, String> ports;
+        if (minecraft) {
+            ports = minecraftPorts(server.getHostPort(), server.getRconPort());
+            if (server.getRconPort() != null) {
+                environment.put("ENABLE_RCON", "true");
+                if (server.getRconPassword() != null) {
+                    environment.put("RCON_PASSWORD", server.getRconPassword());
+                }
+            }
+        } else if (usesServerPort(egg)) {
+            String port = String.valueOf(server.getHostPort());
+            ports = server.getHostPort() > 0 ? Map.of(port, port) : Map.of();
+            environment.put(SERVER_PORT, port);
+            environment.put(SERVER_MEMORY, serverMemory(server.getMemory()));
+            environment.put(SERVER_IP, "0.0.0.0");
+        } else {
+            ports = egg.getPorts() != null ? new LinkedHashMap<>(egg.getPorts()) : Map.of();
+        }
+        return new LaunchSpec(CURRENT_VERSION, egg.getDocker_image(), ports, environment,
+            server.getMemory(), server.getCpu(), server.getBlkioWeight() != null ? server.getBlkioWeight() : 0, minecraft,
+            egg.getMount_path());
+    }
+
+    private static String serverMemory(int memory) {
+        return String.valueOf(memory > 0 ? memory : UNLIMITED_SERVER_MEMORY);
+    }
+
+    /**
+     * Egg sans ports qui attend son port dans SERVER_PORT (eggs importés du dépôt distant).
+     */
+    static boolean usesServerPort(GameEgg egg) {
+        return !egg.isMinecraft() && (egg.getPorts() == null || egg.getPorts().isEmpty())
+            && egg.getEnvironment() != null && egg.getEnvironment().containsKey(SERVER_PORT);
+    }
+
+    static Map<String, String> minecraftPorts(int hostPort, Integer rconPort) {
+        Map<String, String> ports = new LinkedHashMap<>();
+        ports.put(String.valueOf(hostPort), MINECRAFT_GAME_PORT);
+        if (rconPort != null) {
+            ports.put(String.valueOf(rconPort), MINECRAFT_RCON_PORT);
+        }
+        return ports;
+    }
+
+    /**
+     * Vrai si ce port du conteneur ne doit être publié que sur la boucle locale (RCON : seul le
+     * panel s'y connecte).
+     */
+    public boolean isLoopbackOnly(String containerPort) {
+        return minecraft && MINECRAFT_RCON_PORT.equals(containerPort.trim());
+    }
+
+    /**
+     * Vrai si les ports sont publiés en UDP en plus de TCP : un egg Pelican ne dit pas quel
+     * protocole écoute sur SERVER_PORT, et beaucoup de jeux (Valheim, Rust...) sont en UDP.
+     */
+    @JsonIgnore
+    public boolean isUdpPublished() {
+        return !minecraft && environment.containsKey(SERVER_PORT);
+    }
+
+    @JsonIgnore
+    public boolean isCurrent() {
+        return version == CURRENT_VERSION;
+    }
+
+    /**
+     * Remplace le port hôte oldPort par newPort, vers le même port du conteneur. Les autres
+     * ports (RCON, ports secondaires d'un egg) sont conservés.
+     */
+    public LaunchSpec withHostPort(int oldPort, int newPort) {
+        Map<String, String> changed = new LinkedHashMap<>();
+        boolean found = false;
+        for (Map.Entry<String, String> entry : ports.entrySet()) {
+            if (entry.getKey().equals(String.valueOf(oldPort))) {
+                changed.put(String.valueOf(newPort), entry.getValue());
+                found = true;
+            } else {
+                changed.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (!found) {
+            changed.put(String.valueOf(newPort), minecraft ? MINECRAFT_GAME_PORT : String.valueOf(oldPort));
+        }
+        return withPorts(changed);
+    }
+
+    public LaunchSpec withPorts(Map<String, String> ports) {
+        return new LaunchSpec(version, image, ports, environment, memory, cpu, blkioWeight, minecraft, mountPath);
+    }
+
+    public LaunchSpec withLimits(int memory, double cpu, int blkioWeight) {
+        Map<String, String> changed = environment;
+        if (environment.containsKey(SERVER_MEMORY)) {
+            changed = new LinkedHashMap<>(environment);
+            changed.put(SERVER_MEMORY, serverMemory(memory));
+        }
+        return new LaunchSpec(version, image, ports, changed, memory, cpu, blkioWeight, minecraft, mountPath);
+    }
+}
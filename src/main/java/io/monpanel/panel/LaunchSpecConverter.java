@@ -0,0 +1,41 @@
+package io.monpanel.panel;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * LaunchSpec stockée en JSON compact dans une colonne de la table servers.
+ */
+@Converter
+public class LaunchSpecConverter implements AttributeConverter<LaunchSpec, String> {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Override
+    public String convertToDatabaseColumn(LaunchSpec spec) {
+        if (spec == null) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(spec);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("LaunchSpec non sérialisable", e);
+        }
+    }
+
+    @Override
+    public LaunchSpec convertToEntityAttribute(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(json, LaunchSpec.class);
+        } catch (JsonProcessingException e) {
+            // Illisible (format inconnu) : la spec sera résolue à nouveau depuis l'egg.
+            return null;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package io.monpanel.panel;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PanelApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,115 @@
+package io.monpanel.panel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression gzip sur plusieurs cœurs, à la manière de pigz : le flux est découpé en blocs
+ * compressés chacun en parallèle comme un membre gzip indépendant, puis écrits dans l'ordre.
+ * Des membres concaténés forment un fichier gzip valide (RFC 1952), lu normalement par
+ * gzip, tar ou GZIPInputStream. Le nombre de blocs en vol est borné : la mémoire utilisée
+ * ne dépend pas de la taille du flux.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int blockSize;
+    private final int maxInFlight;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int blockLength = 0;
+    private boolean closed = false;
+
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int level, int blockSize, int maxInFlight) {
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int copied = Math.min(length, blockSize - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, copied);
+            blockLength += copied;
+            offset += copied;
+            length -= copied;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int dataLength = blockLength;
+        pending.addLast(executor.submit(() -> compress(data, dataLength)));
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pending.size() >= maxInFlight) {
+            writeNext();
+        }
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gzip.write(data, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private void writeNext() throws IOException {
+        Future<byte[]> next = pending.pollFirst();
+        try {
+            out.write(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compression interrompue.");
+        } catch (ExecutionException e) {
+            throw new IOException("Échec de la compression : " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0 || pending.isEmpty()) {
+                // Un flux vide donne quand même un membre gzip (vide) valide.
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+            out.close();
+        }
+    }
+}
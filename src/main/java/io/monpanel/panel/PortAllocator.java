@@ -0,0 +1,279 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Attribution des ports hôte (jeu, RCON, ports des eggs). Les ports de la plage
+ * panel.ports.range-start..range-end sont suivis dans un BitSet ; ceux qu'un egg impose hors de
+ * la plage (11434 pour Ollama...) dans un petit ensemble à part.
+ *
+ * L'état est reconstruit au démarrage depuis les serveurs enregistrés et les ports
+ * publiés par les conteneurs en marche ; un port libre pour nous mais déjà écouté par un autre
+ * programme est détecté en essayant de s'y lier. Un port est marqué sous le verrou avant d'être
+ * essayé : des créations simultanées ne peuvent pas recevoir le même port. Les appels bloquants
+ * (essai de liaison, Docker, base) se font hors du verrou.
+ */
+@Service
+public class PortAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(PortAllocator.class);
+
+    private final ServerRepository serverRepository;
+    private final DockerService dockerService;
+    private final int rangeStart;
+    private final int rangeEnd;
+    private final BitSet used;
+    private final Set<Integer> usedOutsideRange = new HashSet<>();
+    private int cursor;
+    private volatile boolean reconciled;
+
+    public PortAllocator(ServerRepository serverRepository, DockerService dockerService,
+                         @Value("${panel.ports.range-start:25565}") int rangeStart,
+                         @Value("${panel.ports.range-end:26564}") int rangeEnd) {
+        this.serverRepository = serverRepository;
+        this.dockerService = dockerService;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = Math.max(rangeStart, rangeEnd);
+        this.used = new BitSet(this.rangeEnd - rangeStart + 1);
+    }
+
+    /**
+     * Premier port libre de la plage (en reprenant après le dernier attribué).
+     */
+    public int allocate() {
+        ensureReconciled();
+        int size = rangeEnd - rangeStart + 1;
+        for (int tried = 0; tried < size; tried++) {
+            int port = markNextFree();
+            if (port < 0) {
+                break;
+            }
+            if (isBindable(port)) {
+                return port;
+            }
+            // Pris par un programme hors du panel : reste marqué, on passe au suivant.
+            log.debug("Port {} déjà écouté sur l'hôte, ignoré.", port);
+        }
+        throw new IllegalStateException("Plus aucun port libre entre " + rangeStart + " et " + rangeEnd + ".");
+    }
+
+    // Marque le premier port libre après le curseur (en repartant du début de la plage), -1 s'il n'y en a plus.
+    private synchronized int markNextFree() {
+        int size = rangeEnd - rangeStart + 1;
+        int index = used.nextClearBit(cursor);
+        if (index >= size) {
+            index = used.nextClearBit(0);
+            if (index >= size) {
+                return -1;
+            }
+        }
+        used.set(index);
+        cursor = index + 1;
+        return rangeStart + index;
+    }
+
+    /**
+     * Le port demandé s'il est libre, sinon un autre de la plage.
+     */
+    public int allocatePreferred(int port) {
+        ensureReconciled();
+        if (port > 0 && tryMark(port)) {
+            return port;
+        }
+        return allocate();
+    }
+
+    /**
+     * Réserve exactement ce port. IllegalStateException s'il est déjà pris.
+     */
+    public int reserve(int port) {
+        ensureReconciled();
+        if (port <= 0 || port > 65535) {
+            throw new IllegalStateException("Port invalide : " + port);
+        }
+        if (!tryMark(port)) {
+            throw new IllegalStateException("Le port " + port + " est déjà utilisé.");
+        }
+        return port;
+    }
+
+    /**
+     * Attribue les ports d'un serveur (ou d'un conteneur chaud) d'après son egg, et résout sa spec.
+     * Minecraft : port de jeu (hostPort s'il est demandé, sinon automatique) et port RCON avec un
+     * mot de passe aléatoire. Eggs Pelican : un port (hostPort s'il est libre) passé dans SERVER_PORT.
+     * Autres eggs : chaque port de l'egg est gardé s'il est libre, remplacé sinon, et le premier
+     * devient le port principal. Rien n'est retenu si une attribution échoue.
+     */
+    public void assign(Server server, GameEgg egg) {
+        if (egg.isMinecraft()) {
+            int gamePort = server.getHostPort() > 0 ? reserve(server.getHostPort()) : allocate();
+            try {
+                server.setRconPort(allocate());
+            } catch (IllegalStateException e) {
+                release(gamePort);
+                throw e;
+            }
+            server.setHostPort(gamePort);
+            server.setRconPassword(RconService.generatePassword());
+            server.setLaunchSpec(LaunchSpec.resolve(server, egg));
+            return;
+        }
+        if (LaunchSpec.usesServerPort(egg)) {
+            server.setHostPort(allocatePreferred(server.getHostPort()));
+            server.setLaunchSpec(LaunchSpec.resolve(server, egg));
+            return;
+        }
+        LaunchSpec spec = LaunchSpec.resolve(server, egg);
+        Map<String, String> ports = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, String> entry : spec.ports().entrySet()) {
+                int port = allocatePreferred(parsePort(entry.getKey()));
+                ports.put(String.valueOf(port), entry.getValue());
+            }
+        } catch (IllegalStateException e) {
+            ports.keySet().forEach(port -> release(Integer.parseInt(port)));
+            throw e;
+        }
+        server.setHostPort(ports.isEmpty() ? 0 : Integer.parseInt(ports.keySet().iterator().next()));
+        server.setLaunchSpec(spec.withPorts(ports));
+    }
+
+    public synchronized void release(int port) {
+        if (inRange(port)) {
+            used.clear(port - rangeStart);
+        } else {
+            usedOutsideRange.remove(port);
+        }
+    }
+
+    /**
+     * Libère tous les ports d'un serveur (supprimé, ou création échouée).
+     */
+    public synchronized void release(Server server) {
+        for (int port : portsOf(server)) {
+            release(port);
+        }
+    }
+
+    /**
+     * Libère les ports publiés par une spec (conteneur chaud jeté).
+     */
+    public synchronized void release(LaunchSpec spec) {
+        for (int port : portsOf(spec)) {
+            release(port);
+        }
+    }
+
+    private boolean tryMark(int port) {
+        synchronized (this) {
+            boolean free = inRange(port) ? !used.get(port - rangeStart) : !usedOutsideRange.contains(port);
+            if (!free) {
+                return false;
+            }
+            mark(port);
+        }
+        if (!isBindable(port)) {
+            release(port);
+            return false;
+        }
+        return true;
+    }
+
+    private void mark(int port) {
+        if (inRange(port)) {
+            used.set(port - rangeStart);
+        } else {
+            usedOutsideRange.add(port);
+        }
+    }
+
+    private boolean inRange(int port) {
+        return port >= rangeStart && port <= rangeEnd;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        ensureReconciled();
+    }
+
+    private void ensureReconciled() {
+        if (reconciled) {
+            return;
+        }
+        // Lus hors du verrou ; deux premiers appels simultanés les lisent chacun, sans conséquence.
+        Set<Integer> taken = new HashSet<>();
+        for (Server server : serverRepository.findAll()) {
+            taken.addAll(portsOf(server));
+        }
+        try {
+            taken.addAll(dockerService.listPublishedPorts());
+        } catch (Exception e) {
+            log.warn("Ports publiés par Docker illisibles, seuls les serveurs enregistrés sont pris en compte : {}", e.getMessage());
+        }
+        synchronized (this) {
+            if (reconciled) {
+                return;
+            }
+            taken.forEach(this::mark);
+            reconciled = true;
+            log.info("Ports : {} utilisés dans la plage {}-{}.", used.cardinality(), rangeStart, rangeEnd);
+        }
+    }
+
+    private static Set<Integer> portsOf(Server server) {
+        Set<Integer> ports = new HashSet<>();
+        if (server.getHostPort() > 0) {
+            ports.add(server.getHostPort());
+        }
+        if (server.getRconPort() != null) {
+            ports.add(server.getRconPort());
+        }
+        ports.addAll(portsOf(server.getLaunchSpec()));
+        return ports;
+    }
+
+    private static Set<Integer> portsOf(LaunchSpec spec) {
+        Set<Integer> ports = new HashSet<>();
+        if (spec != null && spec.ports() != null) {
+            for (String hostPort : spec.ports().keySet()) {
+                int port = parsePort(hostPort);
+                if (port > 0) {
+                    ports.add(port);
+                }
+            }
+        }
+        return ports;
+    }
+
+    // 0 pour un port mal formé dans un egg.
+    private static int parsePort(String port) {
+        try {
+            return Integer.parseInt(port.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isBindable(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.bind(new InetSocketAddress(port));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package io.monpanel.panel;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Création et recréation des conteneurs de serveurs, partagées par les contrôleurs.
+ * Ces opérations peuvent durer plusieurs minutes (pull d'image) : elles sont lancées
+ * comme des tâches JobService et leur avancement est suivi via /api/jobs/{id}.
+ */
+@Service
+public class ProvisioningService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProvisioningService.class);
+
+    private final ServerRepository serverRepository;
+    private final EggService eggService;
+    private final DockerService dockerService;
+    private final JobService jobService;
+    private final StatsCollector statsCollector;
+    private final WarmPoolService warmPoolService;
+    private final ImageManager imageManager;
+    private final PortAllocator portAllocator;
+
+    public ProvisioningService(ServerRepository serverRepository, EggService eggService, DockerService dockerService,
+                               JobService jobService, StatsCollector statsCollector, WarmPoolService warmPoolService,
+                               ImageManager imageManager, PortAllocator portAllocator) {
+        this.serverRepository = serverRepository;
+        this.eggService = eggService;
+        this.dockerService = dockerService;
+        this.jobService = jobService;
+        this.statsCollector = statsCollector;
+        this.warmPoolService = warmPoolService;
+        this.imageManager = imageManager;
+        this.portAllocator = portAllocator;
+    }
+
+    public Optional<GameEgg> findEggByImage(String dockerImage) {
+        return eggService.findByDockerImage(dockerImage);
+    }
+
+    public Optional<GameEgg> findEgg(String eggId, String dockerImage) {
+        return eggService.findById(eggId).or(() -> eggService.findByDockerImage(dockerImage));
+    }
+
+    /**
+     * Le serveur est enregistré tout de suite (sans conteneur) pour apparaître dans la liste ;
+     * il est retiré si la création échoue.
+     *
+     * Ses ports sont attribués avant l'enregistrement (voir assignPorts) : hostPort est le port
+     * demandé pour un serveur Minecraft (IllegalStateException s'il est déjà pris), 0 pour
+     * laisser le panel choisir.
+     */
+    public Job createServer(Server server, GameEgg egg) {
+        server.setEggId(egg.getId());
+        // Un conteneur pré-créé du pool, s'il y en a un, évite pull, création et préparation du dossier.
+        DockerService.WarmContainer warm = warmPoolService.take(egg, server.getHostPort()).orElse(null);
+        Server saved;
+        try {
+            assignPorts(server, egg, warm);
+            saved = serverRepository.save(server);
+        } catch (RuntimeException e) {
+            portAllocator.release(server);
+            if (warm != null) {
+                warmPoolService.discard(warm, false);
+            }
+            throw e;
+        }
+        return jobService.submit("create-server", saved.getId(), job -> {
+            try {
+                String containerId = null;
+                if (warm != null) {
+                    try {
+                        containerId = warmPoolService.claim(warm, saved);
+                        imageManager.markUsed(egg.getDocker_image());
+                        job.progress("Conteneur pré-créé attribué.");
+                    } catch (Exception e) {
+                        // Ses ports restent ceux du serveur : le conteneur est recréé à l'identique.
+                        job.progress("Conteneur pré-créé inutilisable, création d'un nouveau conteneur...");
+                    }
+                }
+                if (containerId == null) {
+                    containerId = createContainer(saved, saved.getLaunchSpec(), job::progress);
+                }
+                saved.setContainerId(containerId);
+                serverRepository.save(saved);
+                statsCollector.reconcile();
+                return "Le serveur '" + saved.getName() + "' a été créé avec succès !";
+            } catch (Exception e) {
+                log.error("Création du serveur {} échouée, retrait du panel.", saved.getName());
+                serverRepository.delete(saved);
+                portAllocator.release(saved);
+                throw new Exception("Impossible de créer le serveur : " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Le nouveau port est réservé tout de suite (IllegalStateException s'il est déjà pris) ;
+     * l'ancien n'est libéré qu'une fois le conteneur recréé.
+     */
+    public Job changePort(Server server, int newPort) throws Exception {
+        LaunchSpec spec = launchSpecFor(server);
+        int oldPort = server.getHostPort();
+        portAllocator.reserve(newPort);
+        return jobService.submit("change-port", server.getId(), job -> {
+            try {
+                job.progress("Suppression de l'ancien conteneur...");
+                dockerService.deleteServerContainer(server.getContainerId());
+                server.setHostPort(newPort);
+                server.setLaunchSpec(spec.withHostPort(oldPort, newPort));
+                String newContainerId = createContainer(server, server.getLaunchSpec(), job::progress);
+                server.setContainerId(newContainerId);
+                serverRepository.save(server);
+                portAllocator.release(oldPort);
+                statsCollector.reconcile();
+                return "Le port a été changé et le serveur a été redémarré avec succès.";
+            } catch (Exception e) {
+                portAllocator.release(newPort);
+                throw new Exception("Erreur lors du changement de port : " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Change mémoire (Mo), CPU et poids d'E/S disque du conteneur en place, sans redémarrage,
+     * puis les enregistre avec le serveur. blkioWeight null = inchangé.
+     */
+    public void updateResources(Server server, int memory, double cpu, Integer blkioWeight) throws Exception {
+        if (server.getContainerId() != null) {
+            dockerService.updateResources(server.getContainerId(), memory, cpu, blkioWeight);
+        }
+        server.setMemory(memory);
+        server.setCpu(cpu);
+        if (blkioWeight != null) {
+            server.setBlkioWeight(blkioWeight);
+        }
+        if (server.getLaunchSpec() != null) {
+            server.setLaunchSpec(server.getLaunchSpec().withLimits(memory, cpu,
+                server.getBlkioWeight() != null ? server.getBlkioWeight() : 0));
+        }
+        serverRepository.save(server);
+        log.info("Ressources du serveur '{}' mises à jour : {} Mo, {} CPU{}.", server.getName(), memory, cpu,
+            blkioWeight != null ? ", poids E/S " + blkioWeight : "");
+    }
+
+    /**
+     * Spec de lancement enregistrée avec le serveur. Pour un serveur créé avant son ajout (ou
+     * d'une version de format plus ancienne), elle est résolue depuis l'egg (par identifiant,
+     * à défaut par image) puis enregistrée.
+     */
+    public LaunchSpec launchSpecFor(Server server) throws Exception {
+        LaunchSpec spec = server.getLaunchSpec();
+        if (spec != null && spec.isCurrent()) {
+            return spec;
+        }
+        GameEgg egg = eggService.findById(server.getEggId())
+            .or(() -> eggService.findByDockerImage(server.getDockerImage()))
+            .orElseThrow(() -> new Exception("Configuration (Egg) introuvable."));
+        server.setEggId(egg.getId());
+        server.setLaunchSpec(LaunchSpec.resolve(server, egg));
+        serverRepository.save(server);
+        return server.getLaunchSpec();
+    }
+
+    public Job pullLlmModel(Server server, String modelName) {
+        return jobService.submit("llm-pull", server.getId(), job -> {
+            dockerService.pullLlmModel(server.getContainerId(), modelName, job::progress);
+            return "Modèle '" + modelName + "' téléchargé.";
+        });
+    }
+
+    public Job installA1111Model(Server server, String modelUrl) {
+        return jobService.submit("a1111-install", server.getId(), job -> {
+            dockerService.installA1111Model(server.getContainerId(), modelUrl, job::progress);
+            return "Modèle installé.";
+        });
+    }
+
+    /**
+     * Un serveur qui reçoit un conteneur chaud reprend ses ports, déjà attribués et publiés ; les
+     * autres reçoivent les leurs de PortAllocator.
+     */
+    private void assignPorts(Server server, GameEgg egg, DockerService.WarmContainer warm) {
+        if (warm == null) {
+            portAllocator.assign(server, egg);
+            return;
+        }
+        server.setHostPort(warm.hostPort());
+        server.setRconPort(warm.rconPort());
+        server.setRconPassword(warm.rconPassword());
+        server.setLaunchSpec(warm.spec().withLimits(server.getMemory(), server.getCpu(),
+            server.getBlkioWeight() != null ? server.getBlkioWeight() : 0));
+    }
+
+    private String createContainer(Server server, LaunchSpec spec, Consumer<String> progress) throws Exception {
+        imageManager.markUsed(spec.image());
+        return dockerService.createServerContainer(server, spec, progress);
+    }
+}
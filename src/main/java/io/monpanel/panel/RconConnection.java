@@ -0,0 +1,210 @@
+package io.monpanel.panel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connexion RCON (protocole Source, utilisé aussi par Minecraft) authentifiée et gardée ouverte.
+ * Plusieurs commandes peuvent être en vol sur la même socket : chacune est suivie d'un paquet
+ * vide dont la réponse marque la fin de la sienne (une réponse longue arrive en plusieurs
+ * paquets, sans autre indication de fin). Commandes en identifiants impairs, marqueurs en pairs.
+ */
+public final class RconConnection implements AutoCloseable {
+
+    private static final int TYPE_RESPONSE = 0;
+    private static final int TYPE_COMMAND = 2;
+    private static final int TYPE_AUTH_RESPONSE = 2;
+    private static final int TYPE_AUTH = 3;
+    private static final int MAX_PACKET_BYTES = 1 << 20;
+
+    private static final class Pending {
+        final StringBuilder body = new StringBuilder();
+        final CompletableFuture<String> result = new CompletableFuture<>();
+    }
+
+    private final String target;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    // Écritures sur la socket (bloquantes) : un ReentrantLock plutôt qu'un moniteur.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicInteger ids = new AtomicInteger(-1);
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    private RconConnection(String target, Socket socket) throws IOException {
+        this.target = target;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Ouvre et authentifie la connexion, puis lance la lecture des réponses sur blockingExecutor.
+     */
+    public static RconConnection open(String host, int port, String password, int timeoutMs,
+                                      BlockingExecutor blockingExecutor) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), timeoutMs);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMs);
+            RconConnection connection = new RconConnection(host + ":" + port, socket);
+            connection.authenticate(password);
+            // Une fois authentifiée, la connexion peut rester muette aussi longtemps qu'on veut.
+            socket.setSoTimeout(0);
+            blockingExecutor.execute("rcon-" + port, connection::readLoop);
+            return connection;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void authenticate(String password) throws IOException {
+        int id = ids.addAndGet(2);
+        writeLock.lock();
+        try {
+            writePacket(id, TYPE_AUTH, password);
+            out.flush();
+        } finally {
+            writeLock.unlock();
+        }
+        // Les serveurs Source envoient d'abord une réponse vide, puis le résultat de l'authentification.
+        while (true) {
+            ByteBuffer packet = readPacket();
+            int responseId = packet.getInt();
+            int type = packet.getInt();
+            if (type == TYPE_AUTH_RESPONSE) {
+                if (responseId == -1) {
+                    throw new IOException("Mot de passe RCON refusé par " + target);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Envoie la commande sans attendre ; le résultat est complété à la fin de sa réponse.
+     * Annuler le résultat (délai dépassé) oublie la requête : une réponse tardive est ignorée.
+     * Une IOException ici signifie que rien n'a été envoyé sur une socket vivante.
+     */
+    public CompletableFuture<String> send(String command) throws IOException {
+        if (closed) {
+            throw new IOException("Connexion RCON fermée");
+        }
+        int id = ids.addAndGet(2);
+        Pending request = new Pending();
+        pending.put(id, request);
+        request.result.whenComplete((response, error) -> pending.remove(id, request));
+        try {
+            writeLock.lock();
+            try {
+                writePacket(id, TYPE_COMMAND, command);
+                writePacket(id + 1, TYPE_RESPONSE, "");
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            pending.remove(id);
+            close();
+            throw e;
+        }
+        lastUsed = System.currentTimeMillis();
+        return request.result;
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                ByteBuffer packet = readPacket();
+                int id = packet.getInt();
+                packet.getInt();
+                if ((id & 1) != 0) {
+                    Pending request = pending.get(id);
+                    if (request != null) {
+                        request.body.append(readBody(packet));
+                    }
+                } else {
+                    Pending request = pending.remove(id - 1);
+                    if (request != null) {
+                        request.result.complete(request.body.toString());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Socket fermée par le serveur de jeu ou par close().
+        } finally {
+            close();
+        }
+    }
+
+    private void writePacket(int id, int type, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer packet = ByteBuffer.allocate(14 + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        packet.putInt(10 + bytes.length).putInt(id).putInt(type).put(bytes).put((byte) 0).put((byte) 0);
+        out.write(packet.array());
+    }
+
+    private ByteBuffer readPacket() throws IOException {
+        byte[] header = new byte[4];
+        in.readFully(header);
+        int length = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (length < 10 || length > MAX_PACKET_BYTES) {
+            throw new IOException("Paquet RCON invalide (" + length + " octets) de " + target);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String readBody(ByteBuffer packet) {
+        // Corps terminé par deux octets nuls.
+        int length = Math.max(0, packet.remaining() - 2);
+        return new String(packet.array(), packet.position(), length, StandardCharsets.UTF_8);
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public String getTarget() {
+        return target;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Déjà fermée.
+        }
+        IOException cause = new EOFException("Connexion RCON à " + target + " fermée");
+        pending.values().forEach(request -> request.result.completeExceptionally(cause));
+        pending.clear();
+    }
+}
@@ -0,0 +1,223 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Envoi de commandes RCON aux serveurs de jeu (console web, sauvegardes à chaud). Une connexion
+ * authentifiée est gardée par serveur et partagée par toutes les commandes, qui s'y suivent sans
+ * attendre les réponses des précédentes ; elle est rouverte si elle est tombée et fermée après
+ * panel.rcon.idle-ms sans commande.
+ *
+ * Port : celui du serveur (attribué par PortAllocator à la création), sinon, pour un serveur plus
+ * ancien, le port du jeu + 1. Mot de passe : celui du serveur, sinon rcon.password de son
+ * server.properties, relu seulement à l'ouverture d'une connexion ; sans l'un ni l'autre, la
+ * commande échoue.
+ */
+@Service
+public class RconService {
+
+    private static final Logger log = LoggerFactory.getLogger(RconService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private record Endpoint(String host, int port, String password) {
+    }
+
+    private record Pooled(Endpoint endpoint, RconConnection connection) {
+    }
+
+    private final BlockingExecutor blockingExecutor;
+    private final String host;
+    private final int timeoutMs;
+    private final long idleMs;
+    private final Map<Long, Pooled> connections = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> connectLocks = new ConcurrentHashMap<>();
+
+    public RconService(BlockingExecutor blockingExecutor,
+                       @Value("${panel.rcon.host:127.0.0.1}") String host,
+                       @Value("${panel.rcon.timeout-ms:10000}") int timeoutMs,
+                       @Value("${panel.rcon.idle-ms:300000}") long idleMs) {
+        this.blockingExecutor = blockingExecutor;
+        this.host = host;
+        this.timeoutMs = timeoutMs;
+        this.idleMs = idleMs;
+    }
+
+    /**
+     * Exécute la commande et renvoie la réponse du serveur.
+     */
+    public String execute(Server server, String command) throws Exception {
+        return executeAll(server, List.of(command)).get(0);
+    }
+
+    /**
+     * Envoie toutes les commandes d'un coup sur la connexion du serveur, puis attend les réponses,
+     * dans l'ordre des commandes.
+     */
+    public List<String> executeAll(Server server, List<String> commands) throws Exception {
+        List<CompletableFuture<String>> responses = new ArrayList<>(commands.size());
+        for (String command : commands) {
+            responses.add(send(server, command));
+        }
+        List<String> results = new ArrayList<>(commands.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (CompletableFuture<String> response : responses) {
+                results.add(response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            // Délai dépassé ou échec : les réponses encore attendues sont abandonnées, et
+            // retirées des requêtes en cours de la connexion.
+            responses.forEach(response -> response.cancel(false));
+        }
+        log.debug("RCON {} : {} commande(s) exécutée(s).", server.getName(), commands.size());
+        return results;
+    }
+
+    private CompletableFuture<String> send(Server server, String command) throws IOException {
+        RconConnection connection = connection(server);
+        try {
+            return connection.send(command);
+        } catch (IOException e) {
+            // Connexion tombée depuis la dernière commande (serveur redémarré...) : rien n'a été
+            // envoyé, on réessaie une fois sur une nouvelle connexion.
+            return connection(server).send(command);
+        }
+    }
+
+    private RconConnection connection(Server server) throws IOException {
+        Pooled pooled = connections.get(server.getId());
+        if (pooled != null && pooled.connection().isOpen() && reusable(pooled.endpoint(), server)) {
+            return pooled.connection();
+        }
+        // ReentrantLock plutôt que synchronized : connexion et authentification bloquent, et ne
+        // doivent pas immobiliser le thread porteur d'un thread virtuel.
+        ReentrantLock connectLock = connectLocks.computeIfAbsent(server.getId(), id -> new ReentrantLock());
+        connectLock.lock();
+        try {
+            pooled = connections.get(server.getId());
+            if (pooled != null && pooled.connection().isOpen() && reusable(pooled.endpoint(), server)) {
+                return pooled.connection();
+            }
+            if (pooled != null) {
+                pooled.connection().close();
+            }
+            Endpoint endpoint = endpoint(server);
+            RconConnection connection = RconConnection.open(endpoint.host(), endpoint.port(), endpoint.password(),
+                timeoutMs, blockingExecutor);
+            connections.put(server.getId(), new Pooled(endpoint, connection));
+            log.info("Connexion RCON ouverte vers {} ({}).", server.getName(), connection.getTarget());
+            return connection;
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    /**
+     * Mot de passe aléatoire pour le RCON d'un nouveau serveur.
+     */
+    public static String generatePassword() {
+        byte[] bytes = new byte[18];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private int port(Server server) {
+        return server.getRconPort() != null ? server.getRconPort() : server.getHostPort() + 1;
+    }
+
+    /**
+     * Vrai si la connexion ouverte vers endpoint convient toujours au serveur. Un mot de passe
+     * venu de server.properties est gardé dans l'Endpoint plutôt que relu à chaque commande.
+     */
+    private boolean reusable(Endpoint endpoint, Server server) {
+        String password = server.getRconPassword();
+        return endpoint.host().equals(host) && endpoint.port() == port(server)
+            && (password == null || password.isEmpty() || endpoint.password().equals(password));
+    }
+
+    private Endpoint endpoint(Server server) {
+        String password = server.getRconPassword();
+        if (password == null || password.isEmpty()) {
+            password = passwordFromProperties(server);
+        }
+        if (password == null) {
+            throw new IllegalStateException("Aucun mot de passe RCON pour " + server.getName()
+                + " : ni le serveur ni son server.properties (rcon.password) n'en donnent.");
+        }
+        return new Endpoint(host, port(server), password);
+    }
+
+    private static String passwordFromProperties(Server server) {
+        if (server.getHostPath() == null) {
+            return null;
+        }
+        Path file = Paths.get(server.getHostPath(), "server.properties");
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        String password = properties.getProperty("rcon.password");
+        return password == null || password.isBlank() ? null : password.trim();
+    }
+
+    /**
+     * Ferme la connexion d'un serveur (supprimé, ou identifiants RCON modifiés).
+     */
+    public void disconnect(Server server) {
+        connectLocks.remove(server.getId());
+        Pooled pooled = connections.remove(server.getId());
+        if (pooled != null) {
+            pooled.connection().close();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${panel.rcon.idle-ms:300000}")
+    public void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        connections.entrySet().removeIf(entry -> {
+            RconConnection connection = entry.getValue().connection();
+            if (!connection.isOpen() || now - connection.getLastUsed() > idleMs) {
+                connection.close();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(pooled -> pooled.connection().close());
+        connections.clear();
+    }
+}
@@ -0,0 +1,635 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Recherche plein texte dans les fichiers d'un serveur. Chaque serveur a un index inversé
+ * (mot → fichiers qui le contiennent), construit en arrière-plan à la première recherche puis
+ * tenu à jour par le gestionnaire de fichiers et par un rafraîchissement périodique qui ne relit
+ * que les fichiers dont la taille ou la date ont changé. L'index ne sert qu'à trouver les
+ * fichiers candidats : les lignes renvoyées sont toujours relues dans le fichier, donc jamais
+ * périmées. Tant qu'un index n'est pas prêt, ou si la requête ne contient
+ * aucun mot indexable, on parcourt l'arborescence en parallèle (grep).
+ *
+ * Sont ignorés : les fichiers binaires, ceux de plus de panel.search.max-file-bytes et les
+ * formats connus comme binaires (régions .mca, .jar, images, archives...).
+ */
+@Service
+public class SearchIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final int MAX_LINE_LENGTH = 200;
+    private static final int VERIFY_BATCH = 64;
+    private static final Set<String> BINARY_EXTENSIONS = Set.of(
+        "mca", "mcr", "mcc", "jar", "class", "zip", "gz", "tgz", "xz", "bz2", "7z", "rar",
+        "png", "jpg", "jpeg", "gif", "webp", "ico", "ogg", "mp3", "wav", "dat", "dat_old", "nbt",
+        "db", "sqlite", "mv.db", "so", "dll", "exe", "bin", "lock", "safetensors", "ckpt", "pt", "gguf");
+
+    public record SearchHit(String path, int line, String text) {
+    }
+
+    public record SearchResult(List<SearchHit> hits, boolean indexed, boolean truncated, long tookMs) {
+    }
+
+    private record FileEntry(String path, long size, long lastModified) {
+    }
+
+    private record IndexedFile(FileEntry entry, Set<String> tokens, boolean longTokens) {
+    }
+
+    /**
+     * Liste d'identifiants de fichiers, croissants (les ajouts se font toujours en fin).
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Index d'un serveur. Un fichier modifié reçoit un nouvel identifiant ; l'ancien devient
+     * une entrée morte, ignorée jusqu'au compactage. keysByGram range chaque mot de postings
+     * sous chacune de ses paires de caractères, pour ne pas parcourir tous les mots quand la
+     * requête peut en être une partie. longTokenFiles : fichiers dont un mot a été tronqué à
+     * MAX_TOKEN_LENGTH (la fin de ce mot n'est pas indexée).
+     */
+    private static class ServerIndex {
+        final Path root;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        List<FileEntry> entries = new ArrayList<>();
+        Map<String, Integer> idsByPath = new HashMap<>();
+        TreeMap<String, Postings> postings = new TreeMap<>();
+        Map<String, List<String>> keysByGram = new HashMap<>();
+        Postings longTokenFiles = new Postings();
+        int deadEntries;
+        volatile boolean ready;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        ServerIndex(Path root) {
+            this.root = root;
+        }
+    }
+
+    private final BlockingExecutor blockingExecutor;
+    private final long maxFileBytes;
+    private final long idleMs;
+    private final Map<Long, ServerIndex> indexes = new ConcurrentHashMap<>();
+
+    public SearchIndexService(BlockingExecutor blockingExecutor,
+                              @Value("${panel.search.max-file-bytes:1048576}") long maxFileBytes,
+                              @Value("${panel.search.idle-ms:3600000}") long idleMs) {
+        this.blockingExecutor = blockingExecutor;
+        this.maxFileBytes = maxFileBytes;
+        this.idleMs = idleMs;
+    }
+
+    /**
+     * Lignes contenant query (sans tenir compte de la casse ASCII), sous directory.
+     */
+    public SearchResult search(Server server, Path directory, String query, int limit) throws IOException {
+        long start = System.currentTimeMillis();
+        String needle = query.toLowerCase(Locale.ROOT);
+        byte[] needleBytes = needle.getBytes(StandardCharsets.UTF_8);
+        ServerIndex index = ensureIndex(server);
+        String prefix = relative(index.root, directory);
+        List<String> tokens = tokenizeQuery(needle);
+
+        List<Path> candidates;
+        boolean indexed = index.ready && !tokens.isEmpty();
+        if (indexed) {
+            candidates = indexCandidates(index, tokens, prefix);
+        } else {
+            candidates = walkEligible(directory);
+        }
+        List<SearchHit> hits = new ArrayList<>();
+        boolean truncated = grepAll(index.root, candidates, needleBytes, limit, hits);
+        return new SearchResult(hits, indexed, truncated, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * À appeler après une écriture du panel sur path (fichier ou dossier, créé ou modifié).
+     */
+    public void pathChanged(Server server, Path path) {
+        ServerIndex index = indexes.get(server.getId());
+        if (index != null && index.ready) {
+            blockingExecutor.execute("search-update", () -> refresh(index, path));
+        }
+    }
+
+    /**
+     * À appeler après la suppression (ou le déplacement) de path par le panel.
+     */
+    public void pathRemoved(Server server, Path path) {
+        ServerIndex index = indexes.get(server.getId());
+        if (index == null || !index.ready) {
+            return;
+        }
+        String prefix = relative(index.root, path);
+        index.lock.writeLock().lock();
+        try {
+            index.idsByPath.keySet().stream()
+                .filter(file -> file.equals(prefix) || file.startsWith(prefix + "/"))
+                .toList()
+                .forEach(file -> remove(index, file));
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    private ServerIndex ensureIndex(Server server) {
+        ServerIndex index = indexes.get(server.getId());
+        if (index != null) {
+            index.lastUsed = System.currentTimeMillis();
+            return index;
+        }
+        ServerIndex created = new ServerIndex(Paths.get(server.getHostPath()).toAbsolutePath().normalize());
+        ServerIndex existing = indexes.putIfAbsent(server.getId(), created);
+        if (existing != null) {
+            return existing;
+        }
+        blockingExecutor.execute("search-index-" + server.getId(), () -> {
+            long start = System.currentTimeMillis();
+            refresh(created, created.root);
+            created.ready = true;
+            log.info("Index de recherche du serveur {} construit : {} fichiers en {} ms.", server.getName(),
+                created.idsByPath.size(), System.currentTimeMillis() - start);
+        });
+        return created;
+    }
+
+    /**
+     * Met l'index à jour sous path : relit les fichiers nouveaux ou modifiés, oublie les disparus.
+     */
+    private void refresh(ServerIndex index, Path path) {
+        List<Path> files;
+        try {
+            files = Files.isDirectory(path) ? walkEligible(path) : (isEligible(path) ? List.of(path) : List.of());
+        } catch (IOException e) {
+            log.debug("Rafraîchissement de l'index sous {} impossible : {}", path, e.getMessage());
+            return;
+        }
+        String prefix = relative(index.root, path);
+        Map<String, Path> seen = new HashMap<>();
+        files.forEach(file -> seen.put(relative(index.root, file), file));
+
+        List<Path> changed = new ArrayList<>();
+        Set<String> removed = new HashSet<>();
+        index.lock.readLock().lock();
+        try {
+            seen.forEach((relativePath, file) -> {
+                Integer id = index.idsByPath.get(relativePath);
+                FileEntry known = id == null ? null : index.entries.get(id);
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (known == null || known.size() != attributes.size()
+                            || known.lastModified() != attributes.lastModifiedTime().toMillis()) {
+                        changed.add(file);
+                    }
+                } catch (IOException e) {
+                    // Supprimé entre-temps : traité comme disparu ci-dessous.
+                }
+            });
+            index.idsByPath.keySet().stream()
+                .filter(file -> prefix.isEmpty() || file.equals(prefix) || file.startsWith(prefix + "/"))
+                .filter(file -> !seen.containsKey(file))
+                .forEach(removed::add);
+        } finally {
+            index.lock.readLock().unlock();
+        }
+
+        // Lecture et découpage en mots en parallèle, hors verrou.
+        List<IndexedFile> parsed = changed.parallelStream()
+            .map(file -> parse(index.root, file))
+            .filter(Objects::nonNull)
+            .toList();
+
+        index.lock.writeLock().lock();
+        try {
+            removed.forEach(file -> remove(index, file));
+            for (IndexedFile file : parsed) {
+                remove(index, file.entry().path());
+                int id = index.entries.size();
+                index.entries.add(file.entry());
+                index.idsByPath.put(file.entry().path(), id);
+                for (String token : file.tokens()) {
+                    postingsFor(index, token).add(id);
+                }
+                if (file.longTokens()) {
+                    index.longTokenFiles.add(id);
+                }
+            }
+            if (index.deadEntries > 1024 && index.deadEntries > index.idsByPath.size()) {
+                compact(index);
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    private IndexedFile parse(Path root, Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            byte[] content = Files.readAllBytes(file);
+            if (isBinary(content, content.length)) {
+                return null;
+            }
+            Set<String> tokens = new HashSet<>();
+            tokenize(new String(content, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT), tokens::add);
+            // Un mot de MAX_TOKEN_LENGTH caractères a pu être tronqué.
+            boolean longTokens = tokens.stream().anyMatch(token -> token.length() == MAX_TOKEN_LENGTH);
+            return new IndexedFile(new FileEntry(relative(root, file), attributes.size(), attributes.lastModifiedTime().toMillis()),
+                tokens, longTokens);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Postings postingsFor(ServerIndex index, String token) {
+        Postings list = index.postings.get(token);
+        if (list == null) {
+            list = new Postings();
+            index.postings.put(token, list);
+            addToGrams(index.keysByGram, token);
+        }
+        return list;
+    }
+
+    private static void addToGrams(Map<String, List<String>> keysByGram, String token) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + MIN_TOKEN_LENGTH <= token.length(); i++) {
+            grams.add(token.substring(i, i + MIN_TOKEN_LENGTH));
+        }
+        grams.forEach(gram -> keysByGram.computeIfAbsent(gram, key -> new ArrayList<>()).add(token));
+    }
+
+    private void remove(ServerIndex index, String path) {
+        Integer id = index.idsByPath.remove(path);
+        if (id != null) {
+            index.entries.set(id, null);
+            index.deadEntries++;
+        }
+    }
+
+    /**
+     * Renumérote les fichiers vivants et retire les entrées mortes des listes.
+     */
+    private void compact(ServerIndex index) {
+        int[] newIds = new int[index.entries.size()];
+        List<FileEntry> entries = new ArrayList<>(index.idsByPath.size());
+        Map<String, Integer> idsByPath = new HashMap<>();
+        for (int id = 0; id < index.entries.size(); id++) {
+            FileEntry entry = index.entries.get(id);
+            newIds[id] = entry == null ? -1 : entries.size();
+            if (entry != null) {
+                idsByPath.put(entry.path(), entries.size());
+                entries.add(entry);
+            }
+        }
+        TreeMap<String, Postings> postings = new TreeMap<>();
+        Map<String, List<String>> keysByGram = new HashMap<>();
+        index.postings.forEach((token, list) -> {
+            Postings compacted = compact(list, newIds);
+            if (compacted.size > 0) {
+                postings.put(token, compacted);
+                addToGrams(keysByGram, token);
+            }
+        });
+        index.entries = entries;
+        index.idsByPath = idsByPath;
+        index.postings = postings;
+        index.keysByGram = keysByGram;
+        index.longTokenFiles = compact(index.longTokenFiles, newIds);
+        index.deadEntries = 0;
+    }
+
+    private static Postings compact(Postings list, int[] newIds) {
+        Postings compacted = new Postings();
+        for (int i = 0; i < list.size; i++) {
+            int id = newIds[list.ids[i]];
+            if (id >= 0) {
+                compacted.add(id);
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Fichiers pouvant contenir la requête. Les mots intérieurs doivent exister tels quels ;
+     * le premier peut être la fin d'un mot, le dernier son début, et un mot seul une partie
+     * de mot (la requête est une sous-chaîne, pas une liste de mots entiers). Mots et requête
+     * sont tronqués de la même façon, ce qui suffit pour les deux premiers cas ; pour les
+     * deux autres, la correspondance peut se trouver dans la partie non indexée d'un mot
+     * tronqué, ces fichiers restent donc candidats.
+     */
+    private List<Path> indexCandidates(ServerIndex index, List<String> tokens, String prefix) {
+        index.lock.readLock().lock();
+        try {
+            BitSet candidates = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                BitSet matching = new BitSet(index.entries.size());
+                if (tokens.size() == 1) {
+                    addKeysMatching(index, token, key -> key.contains(token), matching);
+                    addAll(matching, index.longTokenFiles);
+                } else if (i == tokens.size() - 1) {
+                    index.postings.subMap(token, true, token + Character.MAX_VALUE, true).values()
+                        .forEach(list -> addAll(matching, list));
+                } else if (i == 0) {
+                    addKeysMatching(index, token, key -> key.endsWith(token), matching);
+                    addAll(matching, index.longTokenFiles);
+                } else {
+                    Postings list = index.postings.get(token);
+                    if (list != null) {
+                        addAll(matching, list);
+                    }
+                }
+                if (candidates == null) {
+                    candidates = matching;
+                } else {
+                    candidates.and(matching);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+            List<Path> files = new ArrayList<>();
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                FileEntry entry = index.entries.get(id);
+                if (entry != null && (prefix.isEmpty() || entry.path().equals(prefix) || entry.path().startsWith(prefix + "/"))) {
+                    files.add(index.root.resolve(entry.path()));
+                }
+            }
+            // Ordre stable d'une recherche à l'autre (les identifiants suivent l'ordre d'indexation).
+            files.sort(null);
+            return files;
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fichiers des mots contenant token et acceptés par test. Seuls les mots rangés sous la
+     * paire de caractères de token la plus rare sont examinés, pas tout le vocabulaire.
+     */
+    private static void addKeysMatching(ServerIndex index, String token, Predicate<String> test, BitSet matching) {
+        List<String> keys = null;
+        for (int i = 0; i + MIN_TOKEN_LENGTH <= token.length(); i++) {
+            List<String> withGram = index.keysByGram.get(token.substring(i, i + MIN_TOKEN_LENGTH));
+            if (withGram == null) {
+                return;
+            }
+            if (keys == null || withGram.size() < keys.size()) {
+                keys = withGram;
+            }
+        }
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            if (test.test(key)) {
+                addAll(matching, index.postings.get(key));
+            }
+        }
+    }
+
+    private static void addAll(BitSet set, Postings list) {
+        for (int i = 0; i < list.size; i++) {
+            set.set(list.ids[i]);
+        }
+    }
+
+    /**
+     * Cherche dans les fichiers par lots traités en parallèle, jusqu'à limit lignes.
+     * Renvoie vrai si des résultats ont été coupés.
+     */
+    private boolean grepAll(Path root, List<Path> files, byte[] needle, int limit, List<SearchHit> hits) {
+        for (int from = 0; from < files.size(); from += VERIFY_BATCH) {
+            List<Path> batch = files.subList(from, Math.min(files.size(), from + VERIFY_BATCH));
+            List<List<SearchHit>> results = batch.parallelStream()
+                .map(file -> grepFile(root, file, needle, limit))
+                .toList();
+            for (List<SearchHit> fileHits : results) {
+                for (SearchHit hit : fileHits) {
+                    if (hits.size() >= limit) {
+                        return true;
+                    }
+                    hits.add(hit);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lignes de file contenant needle (déjà en minuscules). Le fichier est lu par lectures
+     * positionnelles plutôt que mappé : un serveur qui le tronque pendant la recherche (logs)
+     * donne simplement un contenu plus court, là où un accès au mapping ferait planter le thread.
+     */
+    private List<SearchHit> grepFile(Path root, Path file, byte[] needle, int maxHits) {
+        List<SearchHit> hits = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > maxFileBytes || needle.length == 0) {
+                return hits;
+            }
+            byte[] content = new byte[(int) size];
+            // Jusqu'à la taille annoncée, ou jusqu'à la fin si le fichier a raccourci entre-temps.
+            int length = 0;
+            while (length < content.length) {
+                int read = channel.read(ByteBuffer.wrap(content, length, content.length - length), length);
+                if (read <= 0) {
+                    break;
+                }
+                length += read;
+            }
+            if (isBinary(content, length)) {
+                return hits;
+            }
+            String relativePath = relative(root, file);
+            int line = 1;
+            int lineStart = 0;
+            for (int i = 0; i <= length - needle.length; i++) {
+                byte b = content[i];
+                if (b == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                    continue;
+                }
+                if (lower(b) != needle[0] || !matchesAt(content, i, needle)) {
+                    continue;
+                }
+                int lineEnd = i;
+                while (lineEnd < length && content[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                String text = new String(content, lineStart, Math.min(lineEnd - lineStart, MAX_LINE_LENGTH * 4), StandardCharsets.UTF_8).strip();
+                hits.add(new SearchHit(relativePath, line, text.length() > MAX_LINE_LENGTH ? text.substring(0, MAX_LINE_LENGTH) + "…" : text));
+                if (hits.size() >= maxHits) {
+                    break;
+                }
+                // Une seule occurrence par ligne : on reprend à la ligne suivante.
+                i = lineEnd - 1;
+            }
+        } catch (IOException e) {
+            log.debug("Recherche impossible dans {} : {}", file, e.getMessage());
+        }
+        return hits;
+    }
+
+    private static boolean matchesAt(byte[] content, int offset, byte[] needle) {
+        for (int k = 1; k < needle.length; k++) {
+            if (lower(content[offset + k]) != needle[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+
+    private List<Path> walkEligible(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && attributes.size() <= maxFileBytes && !hasBinaryExtension(file)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private boolean isEligible(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.isRegularFile() && attributes.size() <= maxFileBytes && !hasBinaryExtension(file);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean hasBinaryExtension(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = name.indexOf('.');
+        while (dot >= 0) {
+            if (BINARY_EXTENSIONS.contains(name.substring(dot + 1))) {
+                return true;
+            }
+            dot = name.indexOf('.', dot + 1);
+        }
+        return false;
+    }
+
+    private static boolean isBinary(byte[] content, int length) {
+        for (int i = 0; i < Math.min(length, 8192); i++) {
+            if (content[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String relative(Path root, Path path) {
+        return root.relativize(path.toAbsolutePath().normalize()).toString().replace('\\', '/');
+    }
+
+    private static List<String> tokenizeQuery(String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(query, tokens::add);
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Mots : suites d'au moins MIN_TOKEN_LENGTH lettres, chiffres et _, tronquées à
+     * MAX_TOKEN_LENGTH caractères (une longue chaîne base64 reste trouvable par son début).
+     */
+    private static void tokenize(String text, Consumer<String> sink) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean wordChar = Character.isLetterOrDigit(c) || c == '_';
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TOKEN_LENGTH) {
+                    sink.accept(text.substring(start, start + Math.min(length, MAX_TOKEN_LENGTH)));
+                }
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Rattrape les changements faits hors du panel (par le serveur lui-même) et libère les
+     * index qui ne servent plus.
+     */
+    @Scheduled(initialDelayString = "${panel.search.refresh-interval-ms:300000}", fixedDelayString = "${panel.search.refresh-interval-ms:300000}")
+    public void refreshAll() {
+        long idleLimit = System.currentTimeMillis() - idleMs;
+        indexes.forEach((serverId, index) -> {
+            if (!index.ready) {
+                return;
+            }
+            if (index.lastUsed < idleLimit) {
+                indexes.remove(serverId);
+                log.debug("Index de recherche du serveur {} libéré (inutilisé).", serverId);
+                return;
+            }
+            refresh(index, index.root);
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package io.monpanel.panel;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -30,6 +32,18 @@ public class Server {
     private int memory;
     private double cpu;
     private int disk;
+    // Poids d'E/S disque du conteneur (10-1000) ; null = valeur par défaut de Docker.
+    private Integer blkioWeight;
+
+    // Egg d'origine et spec de lancement résolue à la création (voir LaunchSpec).
+    private String eggId;
+    @Convert(converter = LaunchSpecConverter.class)
+    @Column(length = 8192)
+    private LaunchSpec launchSpec;
+
+    // RCON : null = port du jeu + 1, et mot de passe lu dans server.properties.
+    private Integer rconPort;
+    private String rconPassword;
 
     // Getters et Setters (avec le nouveau champ)
     public Long getId() { return id; }
@@ -50,8 +64,18 @@ public class Server {
     public void setCpu(double cpu) { this.cpu = cpu; }
     public int getDisk() { return disk; }
     public void setDisk(int disk) { this.disk = disk; }
+    public Integer getBlkioWeight() { return blkioWeight; }
+    public void setBlkioWeight(Integer blkioWeight) { this.blkioWeight = blkioWeight; }
     public String getHostPath() { return hostPath; }
     public void setHostPath(String hostPath) { this.hostPath = hostPath; }
+    public String getEggId() { return eggId; }
+    public void setEggId(String eggId) { this.eggId = eggId; }
+    public LaunchSpec getLaunchSpec() { return launchSpec; }
+    public void setLaunchSpec(LaunchSpec launchSpec) { this.launchSpec = launchSpec; }
+    public Integer getRconPort() { return rconPort; }
+    public void setRconPort(Integer rconPort) { this.rconPort = rconPort; }
+    public String getRconPassword() { return rconPassword; }
+    public void setRconPassword(String rconPassword) { this.rconPassword = rconPassword; }
     public String getViewType() { return viewType; } // <-- NOUVEAU GETTER/SETTER
     public void setViewType(String viewType) { this.viewType = viewType; } // <-- NOUVEAU GETTER/SETTER
 }
\ No newline at end of file
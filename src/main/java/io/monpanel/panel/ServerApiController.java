@@ -1,42 +1,54 @@
 package io.monpanel.panel;
 
 import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.attribute.FileTime;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.FileSystemUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import com.github.koraktor.steamcondenser.steam.servers.SourceServer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 public class ServerApiController {
 
     private static final Logger log = LoggerFactory.getLogger(ServerApiController.class);
 
+    private static final DateTimeFormatter MODIFIED_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
     @Autowired
     private ServerRepository serverRepository;
 
@@ -44,7 +56,38 @@ public class ServerApiController {
     private DockerService dockerService;
 
     @Autowired
-    private EggService eggService;
+    private RconService rconService;
+
+    @Autowired
+    private ProvisioningService provisioningService;
+
+    @Autowired
+    private StatsCollector statsCollector;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private DirectoryListingCache directoryListingCache;
+
+    @Autowired
+    private DiskUsageService diskUsageService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private JobService jobService;
+
+    // Taille max lue d'un coup par l'éditeur de fichiers ; au-delà, téléchargement ou tailBytes.
+    @Value("${panel.files.max-content-bytes:5242880}")
+    private long maxContentBytes;
 
     private Path resolveServerPath(Server server, String relativePath) {
         Path serverHostPath = Paths.get(server.getHostPath());
@@ -59,65 +102,140 @@ public class ServerApiController {
     public ServerStats getServerStats(@PathVariable Long id) {
         Server server = serverRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
-        return dockerService.getStats(server.getContainerId());
+        return statsCollector.getLatest(server.getContainerId());
+    }
+
+    @GetMapping("/api/server/{id}/disk")
+    public DiskUsageService.DiskUsage getDiskUsage(@PathVariable Long id) {
+        Server server = serverRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        return diskUsageService.getUsage(server);
+    }
+
+    @GetMapping("/api/server/{id}/stats/history")
+    public StatsHistory.Snapshot getServerStatsHistory(@PathVariable Long id) {
+        Server server = serverRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        return statsCollector.getHistoryForServer(server.getId());
     }
 
     @PostMapping("/api/server/{id}/command")
     public String sendServerCommand(@PathVariable Long id, @RequestBody String command) {
         Server server = serverRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
-        
-        int rconPort = server.getHostPort() + 1;
-        String rconPassword = "supersecretpassword";
-        String host = "localhost";
-
-        SourceServer gameServer = null;
         try {
-            gameServer = new SourceServer(host, rconPort);
-            gameServer.rconAuth(rconPassword);
-            String response = gameServer.rconExec(command);
+            String response = rconService.execute(server, command);
             log.info("Réponse du serveur RCON : {}", response);
             return response;
         } catch (Exception e) {
-            log.error("Erreur RCON (Steam Condenser): {}", e.getMessage());
+            log.error("Erreur RCON : {}", e.getMessage());
             return "Erreur lors de l'envoi de la commande : " + e.getMessage();
-        } finally {
-            if (gameServer != null) {
-                gameServer.disconnect();
-            }
         }
     }
     
+    /**
+     * Listing d'un dossier (dossiers en premier), trié par name, size ou modified, filtré par un
+     * motif glob sur le nom et paginé ; le nombre total d'entrées filtrées est dans X-Total-Count.
+     */
     @GetMapping("/api/server/{id}/files")
-    public ResponseEntity<List<FileObject>> listFiles(@PathVariable Long id, @RequestParam(defaultValue = ".") String path) {
+    public ResponseEntity<List<FileObject>> listFiles(@PathVariable Long id, @RequestParam(defaultValue = ".") String path,
+                                                      @RequestParam(defaultValue = "0") int page,
+                                                      @RequestParam(defaultValue = "0") int size,
+                                                      @RequestParam(defaultValue = "name") String sort,
+                                                      @RequestParam(defaultValue = "asc") String order,
+                                                      @RequestParam(required = false) String filter) {
         Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
         try {
             Path targetPath = resolveServerPath(server, path);
-            List<FileObject> files = Files.list(targetPath).map(p -> {
+            Stream<DirectoryListingCache.Entry> entries = directoryListingCache.list(targetPath).stream();
+            if (filter != null && !filter.isBlank()) {
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + filter.trim());
+                entries = entries.filter(entry -> matcher.matches(Paths.get(entry.name())));
+            }
+            Comparator<DirectoryListingCache.Entry> comparator = switch (sort) {
+                case "size" -> Comparator.comparingLong(DirectoryListingCache.Entry::size);
+                case "modified" -> Comparator.comparingLong(DirectoryListingCache.Entry::lastModifiedMillis);
+                default -> Comparator.comparing(DirectoryListingCache.Entry::name, String.CASE_INSENSITIVE_ORDER);
+            };
+            if ("desc".equalsIgnoreCase(order)) {
+                comparator = comparator.reversed();
+            }
+            List<DirectoryListingCache.Entry> sorted = entries
+                .sorted(Comparator.comparing((DirectoryListingCache.Entry entry) -> !entry.directory()).thenComparing(comparator))
+                .toList();
+            Stream<DirectoryListingCache.Entry> selected = sorted.stream();
+            if (size > 0) {
+                selected = selected.skip((long) Math.max(0, page) * size).limit(size);
+            }
+            List<FileObject> files = selected.map(entry -> {
                 FileObject file = new FileObject();
-                file.setName(p.getFileName().toString());
-                file.setDirectory(Files.isDirectory(p));
-                try {
-                    file.setSize(Files.size(p));
-                    FileTime lastModified = Files.getLastModifiedTime(p);
-                    file.setModifiedDate(new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(lastModified.toMillis())));
-                } catch (IOException e) {
-                    log.warn("Impossible de lire les attributs du fichier {}", p.toString());
-                }
+                file.setName(entry.name());
+                file.setDirectory(entry.directory());
+                file.setSize(entry.size());
+                file.setModifiedDate(MODIFIED_DATE_FORMAT.format(Instant.ofEpochMilli(entry.lastModifiedMillis())));
                 return file;
-            }).collect(Collectors.toList());
-            return ResponseEntity.ok(files);
+            }).toList();
+            return ResponseEntity.ok().header("X-Total-Count", String.valueOf(sorted.size())).body(files);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             log.error("Erreur de listage de fichiers pour {}: {}", server.getName(), e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Recherche un texte dans les fichiers du serveur (sous path), via l'index de recherche.
+     */
+    @GetMapping("/api/server/{id}/files/search")
+    public ResponseEntity<?> searchFiles(@PathVariable Long id, @RequestParam String q,
+                                         @RequestParam(defaultValue = ".") String path,
+                                         @RequestParam(defaultValue = "100") int limit) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body("Recherche vide.");
+        }
+        try {
+            Path directory = resolveServerPath(server, path);
+            return ResponseEntity.ok(searchIndexService.search(server, directory, q, Math.max(1, Math.min(limit, 1000))));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
     @GetMapping("/api/server/{id}/files/content")
-    public ResponseEntity<String> getFileContent(@PathVariable Long id, @RequestParam String path) {
+    public ResponseEntity<String> getFileContent(@PathVariable Long id, @RequestParam String path,
+                                                 @RequestParam(required = false) Long tailBytes) {
         Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
         try {
             Path targetFile = resolveServerPath(server, path);
+            long size = Files.size(targetFile);
+            // tailBytes : seulement la fin du fichier (logs), toujours bornée par la limite de l'éditeur.
+            if (tailBytes != null) {
+                long length = Math.min(Math.max(tailBytes, 0), Math.min(size, maxContentBytes));
+                ByteBuffer buffer = ByteBuffer.allocate((int) length);
+                try (FileChannel channel = FileChannel.open(targetFile, StandardOpenOption.READ)) {
+                    long position = size - length;
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position()) <= 0) {
+                            break;
+                        }
+                    }
+                }
+                // Lecture commencée au milieu d'un caractère UTF-8 : ses octets de suite sont sautés.
+                int start = 0;
+                while (length < size && start < Math.min(3, buffer.position()) && (buffer.get(start) & 0xC0) == 0x80) {
+                    start++;
+                }
+                return ResponseEntity.ok()
+                        .header("X-File-Size", String.valueOf(size))
+                        .body(new String(buffer.array(), start, buffer.position() - start, StandardCharsets.UTF_8));
+            }
+            if (size > maxContentBytes) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .body("Fichier trop volumineux pour l'éditeur (" + ServerStats.formatBinarySize(size)
+                            + ", max " + ServerStats.formatBinarySize(maxContentBytes) + "). Utilisez le téléchargement.");
+            }
             String content = Files.readString(targetFile, StandardCharsets.UTF_8);
             return ResponseEntity.ok(content);
         } catch (Exception e) {
@@ -130,7 +248,13 @@ public class ServerApiController {
         Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
         try {
             Path targetFile = resolveServerPath(server, path);
+            long previousSize = Files.exists(targetFile) ? Files.size(targetFile) : 0;
+            if (diskUsageService.wouldExceedQuota(server, content.getBytes(StandardCharsets.UTF_8).length - previousSize)) {
+                return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(DiskUsageService.quotaMessage(server));
+            }
             Files.writeString(targetFile, content, StandardCharsets.UTF_8);
+            directoryListingCache.invalidate(targetFile.getParent());
+            searchIndexService.pathChanged(server, targetFile);
             return ResponseEntity.ok("Fichier sauvegardé.");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -143,19 +267,98 @@ public class ServerApiController {
         try {
             Path destinationDir = resolveServerPath(server, path);
             Path destinationFile = destinationDir.resolve(file.getOriginalFilename());
+            long previousSize = Files.isRegularFile(destinationFile) ? Files.size(destinationFile) : 0;
+            if (diskUsageService.wouldExceedQuota(server, file.getSize() - previousSize)) {
+                return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(DiskUsageService.quotaMessage(server));
+            }
             Files.copy(file.getInputStream(), destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            directoryListingCache.invalidate(destinationDir);
+            searchIndexService.pathChanged(server, destinationFile);
             return ResponseEntity.ok("Fichier uploadé.");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
     }
 
+    // --- Upload par morceaux (reprenable, parallélisable) ---
+
+    @PostMapping("/api/server/{id}/files/uploads")
+    public ResponseEntity<?> initUpload(@PathVariable Long id, @RequestParam String path,
+                                        @RequestParam String fileName, @RequestParam long size) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        try {
+            Path destinationFile = resolveServerPath(server, Paths.get(path, fileName).toString());
+            return ResponseEntity.ok(uploadService.init(server, destinationFile, size));
+        } catch (IllegalStateException e) {
+            // Quota dépassé, uploads déjà ouverts compris.
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(e.getMessage());
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/api/server/{id}/files/uploads/{uploadId}")
+    public ResponseEntity<UploadService.UploadSession> getUpload(@PathVariable Long id, @PathVariable String uploadId) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        return uploadService.get(server, uploadId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/api/server/{id}/files/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<String> putUploadChunk(@PathVariable Long id, @PathVariable String uploadId, @PathVariable int index,
+                                                 @RequestHeader(value = "X-Chunk-Sha256", required = false) String chunkSha256,
+                                                 HttpServletRequest request) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        Optional<UploadService.UploadSession> session = uploadService.get(server, uploadId);
+        if (session.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload inconnu ou expiré.");
+        }
+        try {
+            uploadService.writeChunk(session.get(), index, request.getInputStream(), chunkSha256);
+            return ResponseEntity.ok("Morceau " + index + " reçu.");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (Exception e) {
+            log.warn("Morceau {} de l'upload {} interrompu : {}", index, uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/api/server/{id}/files/uploads/{uploadId}/complete")
+    public ResponseEntity<String> completeUpload(@PathVariable Long id, @PathVariable String uploadId,
+                                                 @RequestParam(required = false) String sha256) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        Optional<UploadService.UploadSession> session = uploadService.get(server, uploadId);
+        if (session.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Upload inconnu ou expiré.");
+        }
+        try {
+            Path uploaded = uploadService.complete(session.get(), sha256);
+            directoryListingCache.invalidate(uploaded.getParent());
+            searchIndexService.pathChanged(server, uploaded);
+            return ResponseEntity.ok("Fichier uploadé.");
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/api/server/{id}/files/uploads/{uploadId}")
+    public ResponseEntity<String> abortUpload(@PathVariable Long id, @PathVariable String uploadId) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        uploadService.get(server, uploadId).ifPresent(uploadService::abort);
+        return ResponseEntity.ok("Upload annulé.");
+    }
+
     @PostMapping("/api/server/{id}/files/create-directory")
     public ResponseEntity<String> createDirectory(@PathVariable Long id, @RequestParam String path, @RequestParam String dirName) {
         Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
         try {
             Path newDir = resolveServerPath(server, path).resolve(dirName);
             Files.createDirectories(newDir);
+            directoryListingCache.invalidate(newDir.getParent());
             return ResponseEntity.ok("Dossier créé.");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -168,6 +371,8 @@ public class ServerApiController {
         try {
             Path newFile = resolveServerPath(server, path).resolve(fileName);
             Files.createFile(newFile);
+            directoryListingCache.invalidate(newFile.getParent());
+            searchIndexService.pathChanged(server, newFile);
             return ResponseEntity.ok("Fichier créé.");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -184,6 +389,8 @@ public class ServerApiController {
             } else {
                 Files.delete(target);
             }
+            directoryListingCache.invalidate(target.getParent());
+            searchIndexService.pathRemoved(server, target);
             return ResponseEntity.ok("Élément supprimé.");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -197,6 +404,10 @@ public class ServerApiController {
             Path oldTarget = resolveServerPath(server, oldPath);
             Path newTarget = resolveServerPath(server, newPath);
             Files.move(oldTarget, newTarget);
+            directoryListingCache.invalidate(oldTarget.getParent());
+            directoryListingCache.invalidate(newTarget.getParent());
+            searchIndexService.pathRemoved(server, oldTarget);
+            searchIndexService.pathChanged(server, newTarget);
             return ResponseEntity.ok("Élément renommé.");
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
@@ -204,81 +415,159 @@ public class ServerApiController {
     }
     
     @GetMapping("/api/server/{id}/files/download")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long id, @RequestParam String path) {
+    public void downloadFile(@PathVariable Long id, @RequestParam String path,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
         Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
-        try {
-            Path targetFile = resolveServerPath(server, path);
-            Resource resource = new FileSystemResource(targetFile);
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        Path targetFile = resolveServerPath(server, path);
+        if (!Files.exists(targetFile)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Fichier introuvable.");
+            return;
         }
+        fileDownloadService.send(targetFile, targetFile.getFileName().toString(), request, response);
     }
     
+    /**
+     * Envoie un fichier ou dossier sous forme d'archive construite à la volée (format tar.gz ou zip).
+     */
+    @GetMapping("/api/server/{id}/files/archive")
+    public void downloadArchive(@PathVariable Long id, @RequestParam String path,
+                                @RequestParam(defaultValue = "tar.gz") String format,
+                                @RequestParam(required = false) Integer level,
+                                HttpServletResponse response) throws IOException {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        Path source = resolveServerPath(server, path);
+        if (!Files.exists(source)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Fichier introuvable.");
+            return;
+        }
+        ArchiveService.Format archiveFormat = ArchiveService.Format.fromName(format);
+        String sourceName = source.equals(Paths.get(server.getHostPath())) ? server.getName() : source.getFileName().toString();
+        String downloadName = sourceName + archiveFormat.getExtension();
+        response.setContentType(archiveFormat == ArchiveService.Format.ZIP ? "application/zip" : "application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName.replace("\"", "")
+            + "\"; filename*=UTF-8''" + URLEncoder.encode(downloadName, StandardCharsets.UTF_8).replace("+", "%20"));
+        try {
+            archiveService.write(source, archiveFormat, level, response.getOutputStream(), null);
+        } catch (IOException e) {
+            // Taille inconnue à l'avance : un client parti coupe simplement le flux.
+            log.debug("Archive de {} interrompue : {}", source, e.getMessage());
+        }
+    }
+
+    @PostMapping("/api/server/{id}/files/tar")
+    public ResponseEntity<?> createArchive(@PathVariable Long id, @RequestParam String path,
+                                           @RequestParam(defaultValue = "tar.gz") String format,
+                                           @RequestParam(required = false) Integer level) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        Path source = resolveServerPath(server, path);
+        if (!Files.exists(source) || source.equals(Paths.get(server.getHostPath()))) {
+            return ResponseEntity.badRequest().body("Impossible d'archiver cet élément.");
+        }
+        if (diskUsageService.wouldExceedQuota(server, 0)) {
+            return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(DiskUsageService.quotaMessage(server));
+        }
+        ArchiveService.Format archiveFormat = ArchiveService.Format.fromName(format);
+        return ResponseEntity.accepted().body(jobService.submit("archive", server.getId(), job -> {
+            Path archive;
+            try {
+                // Taille finale inconnue d'avance : le quota restant borne l'écriture elle-même.
+                archive = archiveService.create(source, archiveFormat, level, diskUsageService.remainingBytes(server), job::progress);
+            } catch (ArchiveService.SizeLimitException e) {
+                throw new IOException(DiskUsageService.quotaMessage(server), e);
+            }
+            directoryListingCache.invalidate(archive.getParent());
+            return "Archive " + archive.getFileName() + " créée.";
+        }));
+    }
+
+    @PostMapping("/api/server/{id}/files/untar")
+    public ResponseEntity<?> extractArchive(@PathVariable Long id, @RequestParam String path) {
+        Server server = serverRepository.findById(id).orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        Path archive = resolveServerPath(server, path);
+        if (!Files.isRegularFile(archive) || ArchiveService.archiveType(archive.getFileName().toString()) == null) {
+            return ResponseEntity.badRequest().body("Archive introuvable ou format non pris en charge.");
+        }
+        try {
+            // Taille extraite inconnue d'avance : au moins celle de l'archive.
+            if (diskUsageService.wouldExceedQuota(server, Files.size(archive))) {
+                return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(DiskUsageService.quotaMessage(server));
+            }
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+        return ResponseEntity.accepted().body(jobService.submit("extract", server.getId(), job -> {
+            int count;
+            try {
+                // Quota vérifié octet par octet : une archive très compressée ne peut pas le dépasser.
+                count = archiveService.extract(archive, archive.getParent(), diskUsageService.remainingBytes(server), job::progress);
+            } catch (ArchiveService.SizeLimitException e) {
+                throw new IOException(DiskUsageService.quotaMessage(server), e);
+            } finally {
+                directoryListingCache.invalidate(archive.getParent());
+            }
+            searchIndexService.pathChanged(server, archive.getParent());
+            return count + " fichier(s) extrait(s).";
+        }));
+    }
+
     @PostMapping("/api/server/{id}/llm/pull")
-    public ResponseEntity<String> pullLlmModel(@PathVariable Long id, @RequestBody String modelName) {
+    public ResponseEntity<Job> pullLlmModel(@PathVariable Long id, @RequestBody String modelName) {
         Server server = serverRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
         
         String cleanModelName = modelName.replaceAll("\"", "").trim();
+        return ResponseEntity.accepted().body(provisioningService.pullLlmModel(server, cleanModelName));
+    }
+
+    @PostMapping("/api/server/{id}/change-port")
+    public ResponseEntity<?> changeServerPort(@PathVariable Long id, @RequestParam int newPort) {
+        Server server = serverRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
+        if (newPort == server.getHostPort()) {
+            return ResponseEntity.badRequest().body("Le serveur utilise déjà le port " + newPort + ".");
+        }
 
         try {
-            dockerService.pullLlmModel(server.getContainerId(), cleanModelName);
-            return ResponseEntity.ok("Téléchargement du modèle '" + cleanModelName + "' lancé avec succès.");
+            return ResponseEntity.accepted().body(provisioningService.changePort(server, newPort));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Échec du téléchargement du modèle : " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
         }
     }
 
-    @PostMapping("/api/server/{id}/change-port")
-    public ResponseEntity<String> changeServerPort(@PathVariable Long id, @RequestParam int newPort) {
+    /**
+     * Mémoire, CPU et poids d'E/S appliqués au conteneur sans le recréer ; le quota disque n'est
+     * vérifié que par le panel. Seul un changement de port demande une recréation.
+     */
+    @PostMapping("/api/server/{id}/resources")
+    public ResponseEntity<?> updateResources(@PathVariable Long id, @RequestParam int memory, @RequestParam double cpu,
+                                             @RequestParam(required = false) Integer blkioWeight,
+                                             @RequestParam(required = false) Integer disk) {
         Server server = serverRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
-
-        Optional<GameEgg> foundEggOpt = eggService.getGroupedEggs().values().stream()
-            .flatMap(sub -> sub.values().stream())
-            .flatMap(java.util.List::stream)
-            .filter(egg -> server.getDockerImage().equals(egg.getDocker_image()))
-            .findFirst();
-
-        if (foundEggOpt.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Configuration (Egg) introuvable.");
+        if (memory < 6 || cpu <= 0 || (blkioWeight != null && (blkioWeight < 10 || blkioWeight > 1000))
+                || (disk != null && disk <= 0)) {
+            return ResponseEntity.badRequest().body("Valeurs invalides : mémoire >= 6 Mo, CPU > 0, poids E/S entre 10 et 1000.");
         }
-        GameEgg egg = foundEggOpt.get();
-
         try {
-            dockerService.deleteServerContainer(server.getContainerId());
-            server.setHostPort(newPort);
-            String newContainerId;
-            if ("server".equals(egg.getView_type()) && egg.getDocker_image().contains("itzg/minecraft-server")) {
-                newContainerId = dockerService.createMinecraftServer(server, egg);
-            } else {
-                newContainerId = dockerService.createGenericServer(server, egg);
+            if (disk != null) {
+                server.setDisk(disk);
             }
-            server.setContainerId(newContainerId);
-            serverRepository.save(server);
-            return ResponseEntity.ok("Le port a été changé et le serveur a été redémarré avec succès.");
+            provisioningService.updateResources(server, memory, cpu, blkioWeight);
+            return ResponseEntity.ok("Ressources mises à jour sans redémarrage.");
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Erreur lors du changement de port : " + e.getMessage());
+            log.error("Mise à jour des ressources du serveur {} impossible : {}", server.getName(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Mise à jour impossible : " + e.getMessage());
         }
     }
 
     @PostMapping("/api/server/{id}/a1111/install-model")
-    public ResponseEntity<String> installA1111Model(@PathVariable Long id, @RequestBody String modelUrl) {
+    public ResponseEntity<Job> installA1111Model(@PathVariable Long id, @RequestBody String modelUrl) {
         Server server = serverRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Serveur non trouvé"));
         
         String cleanModelUrl = modelUrl.replaceAll("\"", "").trim();
-
-        try {
-            dockerService.installA1111Model(server.getContainerId(), cleanModelUrl);
-            return ResponseEntity.ok("Installation du modèle lancée.");
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Échec de l'installation : " + e.getMessage());
-        }
+        return ResponseEntity.accepted().body(provisioningService.installA1111Model(server, cleanModelUrl));
     }
-}
\ No newline at end of file
+}
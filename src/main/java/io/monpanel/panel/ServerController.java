@@ -23,6 +23,14 @@ public class ServerController {
     private EggService eggService;
     @Autowired
     private DockerService dockerService;
+    @Autowired
+    private StatsCollector statsCollector;
+    @Autowired
+    private ProvisioningService provisioningService;
+    @Autowired
+    private RconService rconService;
+    @Autowired
+    private PortAllocator portAllocator;
 
     @GetMapping("/servers")
     public String listServers(Model model, Authentication authentication) {
@@ -40,19 +48,17 @@ public class ServerController {
     @PostMapping("/servers/create")
     public String createServer(Authentication authentication,
                                @RequestParam String serverName,
-                               @RequestParam int serverPort,
+                               @RequestParam(required = false) Integer serverPort,
                                @RequestParam String dockerImage,
+                               @RequestParam(required = false) String eggId,
                                @RequestParam int memory,
                                @RequestParam double cpu,
                                @RequestParam int disk,
                                RedirectAttributes redirectAttributes) {
 
         User currentUser = userRepository.findByUsername(authentication.getName()).get();
-        Optional<GameEgg> foundEggOpt = eggService.getGroupedEggs().values().stream()
-            .flatMap(sub -> sub.values().stream())
-            .flatMap(java.util.List::stream)
-            .filter(egg -> dockerImage.equals(egg.getDocker_image()))
-            .findFirst();
+        // Par identifiant : plusieurs eggs peuvent partager une image (Vanilla et Paper).
+        Optional<GameEgg> foundEggOpt = provisioningService.findEgg(eggId, dockerImage);
         
         if (foundEggOpt.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage", "Configuration (Egg) introuvable pour l'image: " + dockerImage);
@@ -62,7 +68,8 @@ public class ServerController {
         
         Server newServer = new Server();
         newServer.setName(serverName);
-        newServer.setHostPort(serverPort);
+        // Vide : le port est choisi par le panel (PortAllocator).
+        newServer.setHostPort(serverPort != null ? serverPort : 0);
         newServer.setDockerImage(dockerImage);
         newServer.setOwner(currentUser);
         newServer.setMemory(memory);
@@ -70,21 +77,17 @@ public class ServerController {
         newServer.setDisk(disk);
         newServer.setViewType(foundEgg.getView_type());
 
+        // Le pull de l'image peut prendre des minutes : la création continue en arrière-plan
+        // et la page des serveurs suit la tâche.
+        Job job;
         try {
-            String containerId;
-            // CHOIX DE LA MÉTHODE DE CRÉATION
-            if ("server".equals(foundEgg.getView_type()) && dockerImage.contains("itzg/minecraft-server")) {
-                containerId = dockerService.createMinecraftServer(newServer, foundEgg);
-            } else {
-                containerId = dockerService.createGenericServer(newServer, foundEgg);
-            }
-            
-            newServer.setContainerId(containerId);
-            serverRepository.save(newServer);
-            redirectAttributes.addFlashAttribute("successMessage", "Le serveur '" + serverName + "' a été créé avec succès !");
-        } catch (Exception e) {
-            redirectAttributes.addFlashAttribute("errorMessage", "Impossible de créer le serveur : " + e.getMessage());
+            job = provisioningService.createServer(newServer, foundEgg);
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/servers/new";
         }
+        redirectAttributes.addFlashAttribute("successMessage", "Création du serveur '" + serverName + "' en cours...");
+        redirectAttributes.addFlashAttribute("jobId", job.getId());
         return "redirect:/servers";
     }
 
@@ -95,7 +98,7 @@ public class ServerController {
             model.addAttribute("server", server);
             return "view-llm";
         } else {
-            ServerStats initialStats = dockerService.getStats(server.getContainerId());
+            ServerStats initialStats = statsCollector.getLatest(server.getContainerId());
             model.addAttribute("server", server);
             model.addAttribute("initialStats", initialStats);
             return "view-server";
@@ -112,6 +115,8 @@ public class ServerController {
         try {
             dockerService.deleteServerContainer(serverToDelete.getContainerId());
             serverRepository.delete(serverToDelete);
+            rconService.disconnect(serverToDelete);
+            portAllocator.release(serverToDelete);
             redirectAttributes.addFlashAttribute("successMessage", "Le serveur '" + serverToDelete.getName() + "' a été supprimé avec succès.");
         } catch (Exception e) {
             System.err.println("ERREUR LORS DE LA SUPPRESSION DU SERVEUR : " + e.getMessage());
@@ -133,6 +138,8 @@ public class ServerController {
             System.err.println("AVERTISSEMENT : Échec de la suppression du conteneur Docker lors d'une suppression forcée. Erreur ignorée : " + e.getMessage());
         }
         serverRepository.delete(serverToForceDelete);
+        rconService.disconnect(serverToForceDelete);
+        portAllocator.release(serverToForceDelete);
         redirectAttributes.addFlashAttribute("successMessage", "Le serveur '" + serverToForceDelete.getName() + "' a été retiré du panel (suppression forcée).");
         return "redirect:/servers";
     }
@@ -143,6 +150,7 @@ public class ServerController {
                 .orElseThrow(() -> new IllegalArgumentException("Invalid server Id:" + id));
         try {
             dockerService.performServerAction(server.getContainerId(), action);
+            statsCollector.reconcile();
             redirectAttributes.addFlashAttribute("successMessage", "Action '" + action + "' exécutée avec succès.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Échec de l'action '" + action + "': " + e.getMessage());
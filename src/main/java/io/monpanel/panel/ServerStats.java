@@ -1,24 +1,105 @@
 package io.monpanel.panel;
 
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class ServerStats {
-    private String cpuPercent = "0%";
-    private String memoryUsage = "0 MiB / 0 MiB";
-    private String netIO = "0 B / 0 B";
-    private String blockIO = "0 B / 0 B";
+    private static final Pattern SIZE_PATTERN = Pattern.compile("([0-9]+(?:\\.[0-9]+)?)\\s*([a-zA-Z]*)");
+
+    // Valeurs numériques brutes ; les chaînes affichées sont calculées à partir d'elles.
+    private double cpuFraction = 0.0; // 1.0 = un cœur entier
+    private long memoryBytes = 0;
+    private long memoryLimitBytes = 0;
+    private long rxBytes = 0;
+    private long txBytes = 0;
+    private long blockReadBytes = 0;
+    private long blockWriteBytes = 0;
+    private long timestamp = System.currentTimeMillis();
     private boolean isOffline = true;
-    private String error = null; // Nouveau champ
+    private String error = null;
 
     // Getters et Setters pour tous les champs, y compris 'error'
-    public String getCpuPercent() { return cpuPercent; }
-    public void setCpuPercent(String cpuPercent) { this.cpuPercent = cpuPercent; }
-    public String getMemoryUsage() { return memoryUsage; }
-    public void setMemoryUsage(String memoryUsage) { this.memoryUsage = memoryUsage; }
-    public String getNetIO() { return netIO; }
-    public void setNetIO(String netIO) { this.netIO = netIO; }
-    public String getBlockIO() { return blockIO; }
-    public void setBlockIO(String blockIO) { this.blockIO = blockIO; }
+    public double getCpuFraction() { return cpuFraction; }
+    public void setCpuFraction(double cpuFraction) { this.cpuFraction = cpuFraction; }
+    public long getMemoryBytes() { return memoryBytes; }
+    public void setMemoryBytes(long memoryBytes) { this.memoryBytes = memoryBytes; }
+    public long getMemoryLimitBytes() { return memoryLimitBytes; }
+    public void setMemoryLimitBytes(long memoryLimitBytes) { this.memoryLimitBytes = memoryLimitBytes; }
+    public long getRxBytes() { return rxBytes; }
+    public void setRxBytes(long rxBytes) { this.rxBytes = rxBytes; }
+    public long getTxBytes() { return txBytes; }
+    public void setTxBytes(long txBytes) { this.txBytes = txBytes; }
+    public long getBlockReadBytes() { return blockReadBytes; }
+    public void setBlockReadBytes(long blockReadBytes) { this.blockReadBytes = blockReadBytes; }
+    public long getBlockWriteBytes() { return blockWriteBytes; }
+    public void setBlockWriteBytes(long blockWriteBytes) { this.blockWriteBytes = blockWriteBytes; }
+    public long getTimestamp() { return timestamp; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
     public boolean isOffline() { return isOffline; }
     public void setOffline(boolean offline) { isOffline = offline; }
     public String getError() { return error; }
     public void setError(String error) { this.error = error; }
-}
\ No newline at end of file
+
+    // Représentations texte, au même format que "docker stats" (utilisées par les templates).
+    public String getCpuPercent() { return String.format(Locale.ROOT, "%.2f%%", cpuFraction * 100.0); }
+    public String getMemoryUsage() { return formatBinarySize(memoryBytes) + " / " + formatBinarySize(memoryLimitBytes); }
+    public String getNetIO() { return formatDecimalSize(rxBytes) + " / " + formatDecimalSize(txBytes); }
+    public String getBlockIO() { return formatDecimalSize(blockReadBytes) + " / " + formatDecimalSize(blockWriteBytes); }
+
+    public static String formatBinarySize(long bytes) {
+        return formatSize(bytes, 1024.0, new String[] {"B", "KiB", "MiB", "GiB", "TiB"});
+    }
+
+    public static String formatDecimalSize(long bytes) {
+        return formatSize(bytes, 1000.0, new String[] {"B", "kB", "MB", "GB", "TB"});
+    }
+
+    private static String formatSize(long bytes, double base, String[] units) {
+        double value = bytes;
+        int unit = 0;
+        while (value >= base && unit < units.length - 1) {
+            value /= base;
+            unit++;
+        }
+        String number = String.format(Locale.ROOT, "%.2f", value).replaceAll("\\.?0+$", "");
+        return number + units[unit];
+    }
+
+    /**
+     * Lit une taille affichée par la CLI Docker ("512MiB", "1.2kB", "3GB") en octets.
+     */
+    public static long parseSize(String text) {
+        if (text == null) {
+            return 0;
+        }
+        Matcher matcher = SIZE_PATTERN.matcher(text.trim());
+        if (!matcher.find()) {
+            return 0;
+        }
+        double value = Double.parseDouble(matcher.group(1));
+        double multiplier = switch (matcher.group(2).toLowerCase(Locale.ROOT)) {
+            case "kb" -> 1e3;
+            case "mb" -> 1e6;
+            case "gb" -> 1e9;
+            case "tb" -> 1e12;
+            case "kib" -> 1024.0;
+            case "mib" -> 1024.0 * 1024;
+            case "gib" -> 1024.0 * 1024 * 1024;
+            case "tib" -> 1024.0 * 1024 * 1024 * 1024;
+            default -> 1.0;
+        };
+        return (long) (value * multiplier);
+    }
+
+    /**
+     * Lit une paire "a / b" de la CLI Docker ; renvoie {a, b} en octets.
+     */
+    public static long[] parseSizePair(String text) {
+        if (text == null || !text.contains("/")) {
+            return new long[] {parseSize(text), 0};
+        }
+        String[] parts = text.split("/", 2);
+        return new long[] {parseSize(parts[0]), parseSize(parts[1])};
+    }
+}
@@ -0,0 +1,237 @@
+package io.monpanel.panel;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Collecte centralisée des stats des conteneurs.
+ * Un abonnement "docker stats" longue durée est maintenu par conteneur démarré (un seul
+ * processus pour tous en mode CLI) et le dernier échantillon est gardé en mémoire.
+ * Les requêtes HTTP lisent simplement cette map, sans aucun appel à Docker.
+ */
+@Service
+public class StatsCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsCollector.class);
+
+    private final DockerService dockerService;
+    private final ServerRepository serverRepository;
+
+    // Clé : ID court du conteneur (12 caractères), comme stocké dans Server.containerId.
+    private final Map<String, ServerStats> latestStats = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // Historique par conteneur, conservé tant que le serveur existe (même arrêté).
+    private final Map<String, StatsHistory> histories = new ConcurrentHashMap<>();
+    private final long historyResolutionMs;
+    private final int historySize;
+    // Conteneurs du panel démarrés, lors de la dernière réconciliation.
+    private volatile Set<String> trackedContainers = Set.of();
+    // ID du serveur -> ID du conteneur, rafraîchi à chaque réconciliation.
+    private volatile Map<Long, String> containerByServer = Map.of();
+    // Protège les abonnements pendant une réconciliation ; les appels à Docker et à la base se
+    // font avant de le prendre.
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private Process cliStatsProcess;
+    private volatile boolean dockerUnavailable = false;
+
+    private static class Subscription {
+        volatile Closeable handle;
+        volatile boolean ended;
+    }
+
+    public StatsCollector(DockerService dockerService, ServerRepository serverRepository,
+                          @Value("${panel.stats.history.resolution-ms:5000}") long historyResolutionMs,
+                          @Value("${panel.stats.history.size:720}") int historySize) {
+        this.dockerService = dockerService;
+        this.serverRepository = serverRepository;
+        this.historyResolutionMs = historyResolutionMs;
+        this.historySize = Math.max(0, historySize);
+    }
+
+    /**
+     * Dernier échantillon connu du conteneur, ou des stats "Offline" s'il n'est pas démarré.
+     */
+    public ServerStats getLatest(String containerId) {
+        ServerStats stats = containerId != null ? latestStats.get(containerId) : null;
+        if (stats != null) {
+            return stats;
+        }
+        ServerStats offline = new ServerStats();
+        if (containerId == null || containerId.isBlank()) {
+            offline.setError("Container ID is missing.");
+        }
+        return offline;
+    }
+
+    /**
+     * Même chose à partir de l'ID du serveur, sans passer par la base de données.
+     */
+    public ServerStats getLatestForServer(Long serverId) {
+        String containerId = containerByServer.get(serverId);
+        return containerId != null ? getLatest(containerId) : new ServerStats();
+    }
+
+    /**
+     * Historique récent du serveur (vide s'il n'a jamais tourné depuis le démarrage du panel).
+     */
+    public StatsHistory.Snapshot getHistoryForServer(Long serverId) {
+        String containerId = containerByServer.get(serverId);
+        StatsHistory history = containerId != null ? histories.get(containerId) : null;
+        if (history == null) {
+            history = new StatsHistory(0);
+        }
+        return history.snapshot(historyResolutionMs);
+    }
+
+    private void record(String containerId, ServerStats stats) {
+        latestStats.put(containerId, stats);
+        if (historySize <= 0) {
+            // Historique désactivé.
+            return;
+        }
+        StatsHistory history = histories.computeIfAbsent(containerId, id -> new StatsHistory(historySize));
+        if (stats.getTimestamp() - history.getLastTimestamp() >= historyResolutionMs) {
+            history.add(stats);
+        }
+    }
+
+    /**
+     * Aligne les abonnements sur les conteneurs du panel réellement démarrés.
+     * Appelé périodiquement, et après une action qui change l'état d'un conteneur.
+     */
+    @Scheduled(initialDelayString = "${panel.stats.reconcile-initial-delay-ms:2000}",
+               fixedDelayString = "${panel.stats.reconcile-interval-ms:5000}")
+    public void reconcile() {
+        Set<String> running;
+        try {
+            running = dockerService.listRunningContainerIds();
+            if (dockerUnavailable) {
+                log.info("Connexion à Docker rétablie, reprise de la collecte des stats.");
+                dockerUnavailable = false;
+            }
+        } catch (Exception e) {
+            if (!dockerUnavailable) {
+                log.warn("Docker injoignable, collecte des stats suspendue : {}", e.getMessage());
+                dockerUnavailable = true;
+            }
+            return;
+        }
+
+        List<Server> servers = serverRepository.findAll();
+        reconcileLock.lock();
+        try {
+            apply(running, servers);
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private void apply(Set<String> running, List<Server> servers) {
+        Set<String> wanted = new HashSet<>();
+        Map<Long, String> containers = new HashMap<>();
+        for (Server server : servers) {
+            if (server.getContainerId() == null) {
+                continue;
+            }
+            containers.put(server.getId(), server.getContainerId());
+            if (running.contains(server.getContainerId())) {
+                wanted.add(server.getContainerId());
+            }
+        }
+        containerByServer = Map.copyOf(containers);
+        histories.keySet().retainAll(containers.values());
+
+        trackedContainers = Set.copyOf(wanted);
+        latestStats.keySet().retainAll(wanted);
+
+        if (!dockerService.isApiMode()) {
+            ensureCliStream();
+            return;
+        }
+
+        for (String containerId : Set.copyOf(subscriptions.keySet())) {
+            if (!wanted.contains(containerId)) {
+                unsubscribe(containerId);
+            }
+        }
+        for (String containerId : wanted) {
+            if (!subscriptions.containsKey(containerId)) {
+                subscribe(containerId);
+            }
+        }
+    }
+
+    private void subscribe(String containerId) {
+        log.debug("Abonnement aux stats du conteneur {}", containerId);
+        Subscription subscription = new Subscription();
+        subscriptions.put(containerId, subscription);
+        subscription.handle = dockerService.streamStats(containerId,
+            stats -> {
+                if (!subscription.ended && subscriptions.get(containerId) == subscription) {
+                    record(containerId, stats);
+                }
+            },
+            () -> {
+                subscription.ended = true;
+                if (subscriptions.remove(containerId, subscription)) {
+                    latestStats.remove(containerId);
+                }
+            });
+    }
+
+    private void unsubscribe(String containerId) {
+        Subscription subscription = subscriptions.remove(containerId);
+        latestStats.remove(containerId);
+        if (subscription != null && subscription.handle != null) {
+            try {
+                subscription.handle.close();
+            } catch (Exception e) {
+                log.debug("Fermeture du flux de stats de {} : {}", containerId, e.getMessage());
+            }
+        }
+    }
+
+    private void ensureCliStream() {
+        if (cliStatsProcess != null && cliStatsProcess.isAlive()) {
+            return;
+        }
+        try {
+            cliStatsProcess = dockerService.streamAllStatsViaCli((containerId, stats) -> {
+                if (trackedContainers.contains(containerId)) {
+                    record(containerId, stats);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Impossible de lancer 'docker stats' : {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reconcileLock.lock();
+        try {
+            for (String containerId : Set.copyOf(subscriptions.keySet())) {
+                unsubscribe(containerId);
+            }
+            if (cliStatsProcess != null) {
+                cliStatsProcess.destroy();
+            }
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+}
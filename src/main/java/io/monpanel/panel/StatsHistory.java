@@ -0,0 +1,87 @@
+package io.monpanel.panel;
+
+/**
+ * Historique récent des stats d'un conteneur, dans un buffer circulaire de taille fixe.
+ * Les échantillons sont rangés dans des tableaux primitifs alloués une fois pour toutes :
+ * la mémoire utilisée ne dépend pas de l'uptime du serveur.
+ */
+public class StatsHistory {
+
+    private final long[] timestamps;
+    private final double[] cpuFractions;
+    private final long[] memoryBytes;
+    private final long[] rxBytes;
+    private final long[] txBytes;
+    private final long[] blockReadBytes;
+    private final long[] blockWriteBytes;
+    private int next = 0;
+    private int size = 0;
+    private long memoryLimitBytes = 0;
+
+    /**
+     * Copie de l'historique, en colonnes, de l'échantillon le plus ancien au plus récent.
+     */
+    public record Snapshot(long resolutionMs, long memoryLimitBytes, long[] timestamps, double[] cpuFractions,
+                           long[] memoryBytes, long[] rxBytes, long[] txBytes,
+                           long[] blockReadBytes, long[] blockWriteBytes) {
+    }
+
+    /**
+     * capacity 0 : historique toujours vide, add() ne fait rien.
+     */
+    public StatsHistory(int capacity) {
+        capacity = Math.max(0, capacity);
+        this.timestamps = new long[capacity];
+        this.cpuFractions = new double[capacity];
+        this.memoryBytes = new long[capacity];
+        this.rxBytes = new long[capacity];
+        this.txBytes = new long[capacity];
+        this.blockReadBytes = new long[capacity];
+        this.blockWriteBytes = new long[capacity];
+    }
+
+    public synchronized long getLastTimestamp() {
+        return size == 0 ? 0 : timestamps[(next - 1 + timestamps.length) % timestamps.length];
+    }
+
+    public synchronized void add(ServerStats stats) {
+        if (timestamps.length == 0) {
+            return;
+        }
+        timestamps[next] = stats.getTimestamp();
+        cpuFractions[next] = stats.getCpuFraction();
+        memoryBytes[next] = stats.getMemoryBytes();
+        rxBytes[next] = stats.getRxBytes();
+        txBytes[next] = stats.getTxBytes();
+        blockReadBytes[next] = stats.getBlockReadBytes();
+        blockWriteBytes[next] = stats.getBlockWriteBytes();
+        memoryLimitBytes = stats.getMemoryLimitBytes();
+        next = (next + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    public synchronized Snapshot snapshot(long resolutionMs) {
+        int start = size == 0 ? 0 : (next - size + timestamps.length) % timestamps.length;
+        return new Snapshot(resolutionMs, memoryLimitBytes,
+            copy(timestamps, start), copy(cpuFractions, start), copy(memoryBytes, start),
+            copy(rxBytes, start), copy(txBytes, start), copy(blockReadBytes, start), copy(blockWriteBytes, start));
+    }
+
+    private long[] copy(long[] source, int start) {
+        long[] result = new long[size];
+        int firstPart = Math.min(size, source.length - start);
+        System.arraycopy(source, start, result, 0, firstPart);
+        System.arraycopy(source, 0, result, firstPart, size - firstPart);
+        return result;
+    }
+
+    private double[] copy(double[] source, int start) {
+        double[] result = new double[size];
+        int firstPart = Math.min(size, source.length - start);
+        System.arraycopy(source, start, result, 0, firstPart);
+        System.arraycopy(source, 0, result, firstPart, size - firstPart);
+        return result;
+    }
+}
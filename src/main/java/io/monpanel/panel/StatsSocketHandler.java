@@ -0,0 +1,180 @@
+package io.monpanel.panel;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Push des stats vers les navigateurs, à la place du polling HTTP.
+ * Le client envoie {"subscribe": [1, 2, 3], "intervalMs": 2000} et reçoit ensuite un objet
+ * {"<id serveur>": {...stats}} ne contenant que les serveurs dont l'échantillon a changé.
+ * Chaque échantillon est lu une seule fois dans le StatsCollector et sérialisé une seule fois
+ * par tick, quel que soit le nombre de clients abonnés. Les envois partent sur des threads
+ * virtuels : un navigateur lent ne retarde pas le tick des autres, il saute simplement les
+ * ticks tant que son envoi précédent n'est pas terminé.
+ */
+@Component
+public class StatsSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsSocketHandler.class);
+
+    private final StatsCollector statsCollector;
+    private final ObjectMapper objectMapper;
+    private final Executor sendExecutor;
+    private final long pushIntervalMs;
+    private final Map<String, StatsSubscription> subscriptions = new ConcurrentHashMap<>();
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class SubscribeRequest {
+        public List<Long> subscribe;
+        public Long intervalMs;
+    }
+
+    private static class StatsSubscription {
+        final WebSocketSession session;
+        volatile List<Long> serverIds = List.of();
+        volatile long intervalMs;
+        long nextPushAt = 0;
+        final Map<Long, ServerStats> lastSent = new HashMap<>();
+        final AtomicBoolean sending = new AtomicBoolean();
+
+        StatsSubscription(WebSocketSession session, long intervalMs) {
+            this.session = session;
+            this.intervalMs = intervalMs;
+        }
+    }
+
+    public StatsSocketHandler(StatsCollector statsCollector, ObjectMapper objectMapper, BlockingExecutor blockingExecutor,
+                              @Value("${panel.stats.push-interval-ms:1000}") long pushIntervalMs) {
+        this.statsCollector = statsCollector;
+        this.objectMapper = objectMapper;
+        this.sendExecutor = blockingExecutor.named("stats-sender");
+        this.pushIntervalMs = pushIntervalMs;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // Le décorateur sérialise les envois et abandonne les clients trop lents.
+        WebSocketSession safeSession = new ConcurrentWebSocketSessionDecorator(session, 5000, 512 * 1024);
+        subscriptions.put(session.getId(), new StatsSubscription(safeSession, pushIntervalMs));
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        StatsSubscription subscription = subscriptions.get(session.getId());
+        if (subscription == null) {
+            return;
+        }
+        SubscribeRequest request = objectMapper.readValue(message.getPayload(), SubscribeRequest.class);
+        if (request.intervalMs != null) {
+            subscription.intervalMs = Math.max(pushIntervalMs, request.intervalMs);
+        }
+        if (request.subscribe != null) {
+            synchronized (subscription) {
+                subscription.serverIds = List.copyOf(request.subscribe);
+                subscription.lastSent.clear();
+                subscription.nextPushAt = 0;
+            }
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        subscriptions.remove(session.getId());
+    }
+
+    @Scheduled(fixedRateString = "${panel.stats.push-interval-ms:1000}")
+    public void pushStats() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // Un seul échantillon et une seule sérialisation par serveur pour ce tick.
+        Map<Long, ServerStats> samples = new HashMap<>();
+        Map<Long, String> serialized = new HashMap<>();
+
+        for (StatsSubscription subscription : subscriptions.values()) {
+            if (!subscription.session.isOpen()) {
+                subscriptions.remove(subscription.session.getId());
+                continue;
+            }
+            // Envoi précédent pas encore parti : ce qui a changé partira au prochain tick.
+            if (subscription.sending.get()) {
+                continue;
+            }
+            String payload;
+            synchronized (subscription) {
+                if (now < subscription.nextPushAt) {
+                    continue;
+                }
+                subscription.nextPushAt = now + subscription.intervalMs;
+
+                Map<Long, String> changed = new LinkedHashMap<>();
+                for (Long serverId : subscription.serverIds) {
+                    ServerStats stats = samples.computeIfAbsent(serverId, statsCollector::getLatestForServer);
+                    ServerStats previous = subscription.lastSent.get(serverId);
+                    if (previous == stats || (previous != null && previous.isOffline() && stats.isOffline()
+                            && previous.getError() == null && stats.getError() == null)) {
+                        continue;
+                    }
+                    String json = serialized.computeIfAbsent(serverId, id -> toJson(stats));
+                    if (json != null) {
+                        changed.put(serverId, json);
+                        subscription.lastSent.put(serverId, stats);
+                    }
+                }
+                if (changed.isEmpty()) {
+                    continue;
+                }
+                StringBuilder builder = new StringBuilder("{");
+                changed.forEach((serverId, json) -> {
+                    if (builder.length() > 1) {
+                        builder.append(',');
+                    }
+                    builder.append('"').append(serverId).append("\":").append(json);
+                });
+                payload = builder.append('}').toString();
+            }
+            subscription.sending.set(true);
+            sendExecutor.execute(() -> send(subscription, payload));
+        }
+    }
+
+    private void send(StatsSubscription subscription, String payload) {
+        try {
+            subscription.session.sendMessage(new TextMessage(payload));
+        } catch (Exception e) {
+            log.debug("Envoi des stats impossible pour la session {} : {}", subscription.session.getId(), e.getMessage());
+            subscriptions.remove(subscription.session.getId());
+        } finally {
+            subscription.sending.set(false);
+        }
+    }
+
+    private String toJson(ServerStats stats) {
+        try {
+            return objectMapper.writeValueAsString(stats);
+        } catch (Exception e) {
+            log.warn("Sérialisation des stats impossible : {}", e.getMessage());
+            return null;
+        }
+    }
+}
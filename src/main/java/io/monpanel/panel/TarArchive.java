@@ -0,0 +1,370 @@
+package io.monpanel.panel;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lecture et écriture du format tar (ustar, avec en-têtes PAX pour les noms longs ou
+ * non ASCII et les fichiers de plus de 8 Go), en flux : rien n'est gardé en mémoire à part
+ * un bloc de 512 octets. Seuls les fichiers et dossiers sont gérés ; les liens et fichiers
+ * spéciaux sont ignorés à la lecture et jamais écrits.
+ */
+public final class TarArchive {
+
+    private static final int BLOCK = 512;
+    private static final int RECORD = 20 * BLOCK;
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+
+    private TarArchive() {
+    }
+
+    /**
+     * Écrit une archive tar entrée par entrée dans un flux (éventuellement compressé).
+     */
+    public static class Writer implements AutoCloseable {
+        private final OutputStream out;
+        private long written = 0;
+
+        public Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        public void putDirectory(String name, long mtimeMillis) throws IOException {
+            String dirName = name.endsWith("/") ? name : name + "/";
+            writeHeader(dirName, 0, mtimeMillis, '5', 0755);
+        }
+
+        /**
+         * Ajoute un fichier de size octets lus depuis data. Si le fichier a raccourci entre-temps
+         * (serveur en marche), la fin est complétée par des zéros pour garder l'archive valide ;
+         * renvoie le nombre d'octets réellement lus.
+         */
+        public long putFile(String name, long size, long mtimeMillis, InputStream data) throws IOException {
+            writeHeader(name, size, mtimeMillis, '0', 0644);
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = size;
+            long copied = 0;
+            while (remaining > 0) {
+                int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    Arrays.fill(buffer, (byte) 0);
+                    read = (int) Math.min(buffer.length, remaining);
+                } else {
+                    copied += read;
+                }
+                write(buffer, 0, read);
+                remaining -= read;
+            }
+            pad();
+            return copied;
+        }
+
+        private void writeHeader(String name, long size, long mtimeMillis, char type, int mode) throws IOException {
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            boolean needsPax = nameBytes.length > 100 || nameBytes.length != name.length() || size > MAX_OCTAL_SIZE;
+            if (needsPax) {
+                StringBuilder records = new StringBuilder();
+                if (nameBytes.length > 100 || nameBytes.length != name.length()) {
+                    records.append(paxRecord("path", name));
+                }
+                if (size > MAX_OCTAL_SIZE) {
+                    records.append(paxRecord("size", Long.toString(size)));
+                }
+                byte[] paxData = records.toString().getBytes(StandardCharsets.UTF_8);
+                write(header("PaxHeaders/" + shortName(name), paxData.length, mtimeMillis, 'x', 0644));
+                write(paxData, 0, paxData.length);
+                pad();
+            }
+            write(header(needsPax ? shortName(name) : name, Math.min(size, MAX_OCTAL_SIZE), mtimeMillis, type, mode));
+        }
+
+        private static String shortName(String name) {
+            // Nom de repli ASCII pour les lecteurs qui ignorent PAX : 89 caractères au plus,
+            // pour que "PaxHeaders/" + nom tienne encore dans les 100 octets du champ.
+            String ascii = name.replaceAll("[^\\x20-\\x7E]", "_");
+            return ascii.length() > 89 ? ascii.substring(ascii.length() - 89) : ascii;
+        }
+
+        private static String paxRecord(String key, String value) {
+            String body = " " + key + "=" + value + "\n";
+            int bodyLength = body.getBytes(StandardCharsets.UTF_8).length;
+            // La longueur inclut ses propres chiffres.
+            int length = bodyLength + String.valueOf(bodyLength).length();
+            if (String.valueOf(length).length() != String.valueOf(bodyLength).length()) {
+                length = bodyLength + String.valueOf(length).length();
+            }
+            return length + body;
+        }
+
+        private static byte[] header(String name, long size, long mtimeMillis, char type, int mode) {
+            byte[] header = new byte[BLOCK];
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(nameBytes, 0, header, 0, Math.min(100, nameBytes.length));
+            octal(header, 100, 8, mode);
+            octal(header, 108, 8, 0);
+            octal(header, 116, 8, 0);
+            octal(header, 124, 12, size);
+            octal(header, 136, 12, mtimeMillis / 1000);
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            header[156] = (byte) type;
+            System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+            header[263] = '0';
+            header[264] = '0';
+            long checksum = 0;
+            for (byte b : header) {
+                checksum += b & 0xFF;
+            }
+            octal(header, 148, 7, checksum);
+            header[155] = ' ';
+            return header;
+        }
+
+        private static void octal(byte[] header, int offset, int length, long value) {
+            String digits = Long.toOctalString(value);
+            int width = length - 1;
+            StringBuilder padded = new StringBuilder();
+            for (int i = digits.length(); i < width; i++) {
+                padded.append('0');
+            }
+            padded.append(digits);
+            byte[] bytes = padded.toString().getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(bytes, 0, header, offset, width);
+            header[offset + width] = 0;
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            write(bytes, 0, bytes.length);
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            written += length;
+        }
+
+        private void pad() throws IOException {
+            int remainder = (int) (written % BLOCK);
+            if (remainder != 0) {
+                write(new byte[BLOCK - remainder]);
+            }
+        }
+
+        /**
+         * Termine l'archive (deux blocs vides, complétés jusqu'à un enregistrement) et ferme le flux.
+         */
+        @Override
+        public void close() throws IOException {
+            write(new byte[2 * BLOCK]);
+            int remainder = (int) (written % RECORD);
+            if (remainder != 0) {
+                write(new byte[RECORD - remainder]);
+            }
+            out.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryHandler {
+        /**
+         * data ne contient que le contenu de l'entrée ; ce qui n'est pas lu est sauté.
+         */
+        void onEntry(String name, boolean directory, long size, long mtimeMillis, InputStream data) throws IOException;
+    }
+
+    /**
+     * Parcourt une archive tar et passe chaque fichier ou dossier au handler.
+     */
+    public static void read(InputStream in, EntryHandler handler) throws IOException {
+        byte[] header = new byte[BLOCK];
+        Map<String, String> pax = new HashMap<>();
+        String longName = null;
+        while (true) {
+            if (!readFully(in, header)) {
+                return;
+            }
+            if (isZero(header)) {
+                return;
+            }
+            String name = string(header, 0, 100);
+            String prefix = string(header, 345, 155);
+            if (string(header, 257, 5).equals("ustar") && !prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+            long size = number(header, 124, 12);
+            long mtime = number(header, 136, 12) * 1000;
+            char type = (char) header[156];
+
+            if (type == 'x' || type == 'g' || type == 'L') {
+                byte[] data = readBytes(in, size);
+                skipPadding(in, size);
+                if (type == 'x') {
+                    pax = parsePax(data);
+                } else if (type == 'L') {
+                    longName = string(data, 0, data.length);
+                }
+                continue;
+            }
+            if (longName != null) {
+                name = longName;
+            }
+            if (pax.containsKey("path")) {
+                name = pax.get("path");
+            }
+            if (pax.containsKey("size")) {
+                size = Long.parseLong(pax.get("size"));
+            }
+            pax = new HashMap<>();
+            longName = null;
+
+            boolean directory = type == '5';
+            boolean regular = type == '0' || type == '\0' || type == '7';
+            BoundedInputStream data = new BoundedInputStream(in, directory ? 0 : size);
+            if (directory || regular) {
+                handler.onEntry(name, directory, directory ? 0 : size, mtime, data);
+            }
+            data.skipRemaining();
+            skipPadding(in, directory ? 0 : size);
+        }
+    }
+
+    private static Map<String, String> parsePax(byte[] data) {
+        Map<String, String> records = new HashMap<>();
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            if (space >= data.length) {
+                break;
+            }
+            int length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            if (length <= 0 || position + length > data.length) {
+                break;
+            }
+            String record = new String(data, space + 1, length - (space - position) - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals > 0) {
+                records.put(record.substring(0, equals), record.substring(equals + 1));
+            }
+            position += length;
+        }
+        return records;
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                if (total == 0) {
+                    return false;
+                }
+                throw new EOFException("Archive tar tronquée.");
+            }
+            total += read;
+        }
+        return true;
+    }
+
+    private static byte[] readBytes(InputStream in, long size) throws IOException {
+        if (size > 16 * 1024 * 1024) {
+            throw new IOException("En-tête tar trop grand.");
+        }
+        byte[] data = new byte[(int) size];
+        if (size > 0 && !readFully(in, data)) {
+            throw new EOFException("Archive tar tronquée.");
+        }
+        return data;
+    }
+
+    private static void skipPadding(InputStream in, long size) throws IOException {
+        long remainder = size % BLOCK;
+        if (remainder != 0) {
+            in.skipNBytes(BLOCK - remainder);
+        }
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String string(byte[] bytes, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && bytes[end] != 0) {
+            end++;
+        }
+        return new String(bytes, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long number(byte[] bytes, int offset, int length) {
+        // Extension GNU : binaire big-endian si le bit de poids fort est à 1.
+        if ((bytes[offset] & 0x80) != 0) {
+            long value = 0;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (bytes[i] & 0xFF);
+            }
+            return value;
+        }
+        String text = string(bytes, offset, length).trim();
+        return text.isEmpty() ? 0 : Long.parseLong(text, 8);
+    }
+
+    /**
+     * Vue limitée à une entrée ; close() ne ferme pas l'archive.
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long size) {
+            super(in);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        void skipRemaining() throws IOException {
+            if (remaining > 0) {
+                in.skipNBytes(remaining);
+                remaining = 0;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package io.monpanel.panel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Uploads découpés en morceaux, reprenables et parallélisables.
+ * init réserve un fichier temporaire de la taille finale à côté de la destination ;
+ * chaque morceau y est écrit directement à sa position (FileChannel positionnel, sans
+ * fichier intermédiaire) ; complete vérifie que tout est là puis renomme atomiquement.
+ * Un client coupé relit l'état (morceaux reçus) et n'envoie que ce qui manque.
+ *
+ * La place finale (moins la taille du fichier remplacé) est réservée sur le quota du serveur à
+ * l'ouverture et rendue à la fin de la session : des uploads lancés en parallèle ne peuvent pas
+ * dépasser ensemble le quota.
+ */
+@Service
+public class UploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadService.class);
+
+    public static class UploadSession {
+        private final String id;
+        private final Long serverId;
+        private final Path target;
+        private final Path temp;
+        private final long size;
+        private final int chunkSize;
+        private final int chunkCount;
+        private final BitSet received;
+        private final FileChannel channel;
+        private final long reservedBytes;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        UploadSession(String id, Long serverId, Path target, Path temp, long size, int chunkSize, FileChannel channel,
+                      long reservedBytes) {
+            this.id = id;
+            this.serverId = serverId;
+            this.target = target;
+            this.temp = temp;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+            this.received = new BitSet(chunkCount);
+            this.channel = channel;
+            this.reservedBytes = reservedBytes;
+        }
+
+        public String getUploadId() { return id; }
+        public long getSize() { return size; }
+        public int getChunkSize() { return chunkSize; }
+        public int getChunkCount() { return chunkCount; }
+        public String getFileName() { return target.getFileName().toString(); }
+
+        public List<Integer> getReceivedChunks() {
+            synchronized (received) {
+                return received.stream().boxed().toList();
+            }
+        }
+
+        public List<Integer> getMissingChunks() {
+            synchronized (received) {
+                return IntStream.range(0, chunkCount).filter(index -> !received.get(index)).boxed().toList();
+            }
+        }
+
+        Long getServerId() { return serverId; }
+
+        long chunkLength(int index) {
+            return Math.min(chunkSize, size - (long) index * chunkSize);
+        }
+    }
+
+    private static final String TEMP_MARKER = ".upload-";
+
+    private final DiskUsageService diskUsageService;
+    private final int chunkSize;
+    private final long expireMs;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadService(DiskUsageService diskUsageService,
+                         @Value("${panel.uploads.chunk-size-bytes:8388608}") int chunkSize,
+                         @Value("${panel.uploads.expire-ms:86400000}") long expireMs) {
+        this.diskUsageService = diskUsageService;
+        this.chunkSize = chunkSize;
+        this.expireMs = expireMs;
+    }
+
+    /**
+     * Ouvre une session. IllegalStateException si la place nécessaire dépasse le quota du
+     * serveur, uploads déjà ouverts compris.
+     */
+    public UploadSession init(Server server, Path target, long size) throws IOException {
+        if (size < 0) {
+            throw new IllegalArgumentException("Taille de fichier invalide.");
+        }
+        long replacedSize = Files.isRegularFile(target) ? Files.size(target) : 0;
+        long reserved = Math.max(0, size - replacedSize);
+        if (!diskUsageService.tryReserve(server, reserved)) {
+            throw new IllegalStateException(DiskUsageService.quotaMessage(server));
+        }
+        String id = UUID.randomUUID().toString();
+        Path temp = target.resolveSibling("." + target.getFileName() + TEMP_MARKER + id.substring(0, 8));
+        UploadSession session;
+        try {
+            // Réserve la taille finale d'un coup : les morceaux arrivent dans le désordre.
+            try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+                file.setLength(size);
+            }
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.READ);
+            session = new UploadSession(id, server.getId(), target, temp, size, chunkSize, channel, reserved);
+        } catch (IOException e) {
+            diskUsageService.releaseReservation(server.getId(), reserved);
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        sessions.put(id, session);
+        log.info("Upload {} ouvert : {} ({} morceaux).", id, target, session.chunkCount);
+        return session;
+    }
+
+    public Optional<UploadSession> get(Server server, String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        return session != null && session.serverId.equals(server.getId()) ? Optional.of(session) : Optional.empty();
+    }
+
+    /**
+     * Écrit le morceau à sa position. Si expectedSha256 est fourni, le morceau n'est
+     * marqué reçu que si son empreinte correspond (sinon le client doit le renvoyer).
+     */
+    public void writeChunk(UploadSession session, int index, InputStream body, String expectedSha256) throws Exception {
+        if (index < 0 || index >= session.chunkCount) {
+            throw new IllegalArgumentException("Morceau " + index + " hors du fichier.");
+        }
+        session.lastActivity = System.currentTimeMillis();
+        long expected = session.chunkLength(index);
+        long position = (long) index * session.chunkSize;
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long written = 0;
+        int read;
+        while ((read = body.read(buffer.array(), 0, buffer.capacity())) != -1) {
+            if (written + read > expected) {
+                throw new IllegalArgumentException("Morceau " + index + " plus grand que prévu (" + expected + " octets).");
+            }
+            digest.update(buffer.array(), 0, read);
+            buffer.limit(read).position(0);
+            while (buffer.hasRemaining()) {
+                written += session.channel.write(buffer, position + written);
+            }
+            buffer.clear();
+        }
+        if (written != expected) {
+            throw new IllegalArgumentException("Morceau " + index + " incomplet : " + written + "/" + expected + " octets.");
+        }
+        if (expectedSha256 != null && !expectedSha256.isBlank()
+                && !HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(expectedSha256.trim())) {
+            throw new IllegalArgumentException("Empreinte SHA-256 du morceau " + index + " invalide.");
+        }
+        synchronized (session.received) {
+            session.received.set(index);
+        }
+    }
+
+    /**
+     * Termine l'upload : tous les morceaux doivent être reçus. Si sha256 est fourni,
+     * l'empreinte du fichier complet est vérifiée avant de le mettre en place.
+     */
+    public Path complete(UploadSession session, String sha256) throws Exception {
+        List<Integer> missing = session.getMissingChunks();
+        if (session.size > 0 && !missing.isEmpty()) {
+            throw new IllegalStateException(missing.size() + " morceau(x) manquant(s).");
+        }
+        session.channel.force(false);
+        if (sha256 != null && !sha256.isBlank()) {
+            String actual = sha256Of(session.channel);
+            if (!actual.equalsIgnoreCase(sha256.trim())) {
+                abort(session);
+                throw new IllegalStateException("Empreinte SHA-256 du fichier invalide, upload annulé.");
+            }
+        }
+        if (sessions.remove(session.id) == null) {
+            throw new IllegalStateException("Upload déjà terminé.");
+        }
+        try {
+            session.channel.close();
+            try {
+                Files.move(session.temp, session.target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(session.temp, session.target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            diskUsageService.releaseReservation(session.serverId, session.reservedBytes);
+        }
+        log.info("Upload {} terminé : {}.", session.id, session.target);
+        return session.target;
+    }
+
+    public void abort(UploadSession session) {
+        if (sessions.remove(session.id) != null) {
+            diskUsageService.releaseReservation(session.serverId, session.reservedBytes);
+        }
+        try {
+            session.channel.close();
+            Files.deleteIfExists(session.temp);
+        } catch (IOException e) {
+            log.warn("Impossible de nettoyer l'upload {} : {}", session.id, e.getMessage());
+        }
+    }
+
+    /**
+     * Fichier temporaire d'un upload en cours : compté dans le quota par sa réservation, pas par sa taille.
+     */
+    static boolean isTempFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(".") && name.contains(TEMP_MARKER);
+    }
+
+    private String sha256Of(FileChannel channel) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        long position = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Scheduled(fixedDelayString = "${panel.uploads.cleanup-interval-ms:600000}")
+    public void purgeExpiredUploads() {
+        long limit = System.currentTimeMillis() - expireMs;
+        sessions.values().stream()
+            .filter(session -> session.lastActivity < limit)
+            .toList()
+            .forEach(session -> {
+                log.info("Upload {} abandonné, fichier temporaire supprimé.", session.id);
+                abort(session);
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Les sessions sont en mémoire : leurs fichiers temporaires ne pourraient plus être repris.
+        sessions.values().stream().toList().forEach(this::abort);
+    }
+}
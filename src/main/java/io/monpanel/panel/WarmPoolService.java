@@ -0,0 +1,164 @@
+package io.monpanel.panel;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pool optionnel de conteneurs pré-créés (arrêtés, image déjà présente, dossier de données
+ * prêt) pour les eggs listés dans panel.pool.eggs (par identifiant : Vanilla et Paper partagent
+ * la même image mais pas la même configuration). Une création de serveur prend un conteneur du
+ * pool et n'a plus qu'à le renommer, appliquer ses limites et le démarrer.
+ *
+ * Docker ne permet pas de changer les ports publiés d'un conteneur existant : chaque conteneur
+ * chaud reçoit donc ses propres ports de PortAllocator, que le serveur qui le prend reprend tels
+ * quels. Un serveur Minecraft demandant un port précis ne prend qu'un conteneur publiant ce port.
+ */
+@Service
+public class WarmPoolService {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmPoolService.class);
+
+    private final DockerService dockerService;
+    private final EggService eggService;
+    private final PortAllocator portAllocator;
+    private final List<String> eggIds;
+    private final int sizePerEgg;
+    private final Map<String, Deque<DockerService.WarmContainer>> pools = new ConcurrentHashMap<>();
+    private volatile boolean staleRemoved = false;
+
+    public WarmPoolService(DockerService dockerService, EggService eggService, PortAllocator portAllocator,
+                           @Value("${panel.pool.eggs:}") String eggIds,
+                           @Value("${panel.pool.size-per-egg:2}") int sizePerEgg) {
+        this.dockerService = dockerService;
+        this.eggService = eggService;
+        this.portAllocator = portAllocator;
+        this.eggIds = Arrays.stream(eggIds.split(",")).map(String::trim).filter(id -> !id.isEmpty()).toList();
+        this.sizePerEgg = sizePerEgg;
+    }
+
+    public boolean isEnabled() {
+        return !eggIds.isEmpty() && sizePerEgg > 0;
+    }
+
+    /**
+     * Retire du pool un conteneur pour cet egg : le premier venu, ou celui publiant requestedPort
+     * s'il est demandé (> 0). Vide si le pool n'en a pas : l'appelant crée alors le conteneur.
+     */
+    public Optional<DockerService.WarmContainer> take(GameEgg egg, int requestedPort) {
+        Deque<DockerService.WarmContainer> pool = egg.getId() != null ? pools.get(egg.getId()) : null;
+        if (pool == null) {
+            return Optional.empty();
+        }
+        if (requestedPort <= 0) {
+            return Optional.ofNullable(pool.pollFirst());
+        }
+        for (DockerService.WarmContainer warm : pool) {
+            if (warm.hostPort() == requestedPort && pool.remove(warm)) {
+                return Optional.of(warm);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Attribue au serveur un conteneur obtenu par take, et renvoie son ID. S'il est inutilisable,
+     * il est supprimé ; ses ports, déjà repris par le serveur, ne sont pas libérés.
+     */
+    public String claim(DockerService.WarmContainer warm, Server server) throws Exception {
+        try {
+            return dockerService.claimWarmContainer(warm, server);
+        } catch (Exception e) {
+            log.warn("Conteneur chaud {} inutilisable, on le jette : {}", warm.containerId(), e.getMessage());
+            discard(warm, false);
+            throw e;
+        }
+    }
+
+    /**
+     * Complète les pools jusqu'à panel.pool.size-per-egg. Tourne aussi au démarrage, après
+     * avoir supprimé les conteneurs chauds laissés par une exécution précédente.
+     */
+    @Scheduled(initialDelayString = "${panel.pool.initial-delay-ms:10000}", fixedDelayString = "${panel.pool.refill-interval-ms:30000}")
+    public void refill() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            if (!staleRemoved) {
+                int removed = dockerService.removeStaleWarmContainers();
+                staleRemoved = true;
+                if (removed > 0) {
+                    log.info("{} conteneur(s) chaud(s) orphelin(s) supprimé(s).", removed);
+                }
+            }
+            for (String eggId : eggIds) {
+                Optional<GameEgg> egg = eggService.findById(eggId);
+                if (egg.isEmpty()) {
+                    log.warn("Pool : egg {} introuvable, ignoré.", eggId);
+                    continue;
+                }
+                Deque<DockerService.WarmContainer> pool = pools.computeIfAbsent(eggId, key -> new ConcurrentLinkedDeque<>());
+                while (pool.size() < sizePerEgg) {
+                    DockerService.WarmContainer warm = createWarmContainer(egg.get());
+                    pool.addLast(warm);
+                    log.info("Pool : conteneur chaud {} prêt pour {} ({}/{}).", warm.containerId(), eggId, pool.size(), sizePerEgg);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Impossible de remplir le pool de conteneurs : {}", e.getMessage());
+        }
+    }
+
+    private DockerService.WarmContainer createWarmContainer(GameEgg egg) throws Exception {
+        Server template = new Server();
+        template.setName("warm");
+        template.setDockerImage(egg.getDocker_image());
+        template.setEggId(egg.getId());
+        portAllocator.assign(template, egg);
+        try {
+            return dockerService.createWarmContainer(template);
+        } catch (Exception e) {
+            portAllocator.release(template);
+            throw e;
+        }
+    }
+
+    /**
+     * Supprime un conteneur chaud qui ne sera jamais attribué ; ses ports sont rendus si
+     * releasePorts (ils ne le sont pas s'ils appartiennent déjà à un serveur).
+     */
+    public void discard(DockerService.WarmContainer warm, boolean releasePorts) {
+        try {
+            dockerService.discardWarmContainer(warm);
+        } catch (Exception e) {
+            log.debug("Suppression du conteneur chaud {} : {}", warm.containerId(), e.getMessage());
+        }
+        if (releasePorts) {
+            portAllocator.release(warm.spec());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Les conteneurs non attribués ne survivraient pas au redémarrage du panel (pool en mémoire).
+        pools.values().forEach(pool -> {
+            DockerService.WarmContainer warm;
+            while ((warm = pool.pollFirst()) != null) {
+                discard(warm, true);
+            }
+        });
+    }
+}
@@ -10,12 +10,15 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final ConsoleSocketHandler consoleSocketHandler;
+    private final StatsSocketHandler statsSocketHandler;
 
-    public WebSocketConfig(ConsoleSocketHandler consoleSocketHandler) {
+    public WebSocketConfig(ConsoleSocketHandler consoleSocketHandler, StatsSocketHandler statsSocketHandler) {
         this.consoleSocketHandler = consoleSocketHandler;
+        this.statsSocketHandler = statsSocketHandler;
     }
 
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(consoleSocketHandler, "/console-socket/{serverId}");
+        registry.addHandler(statsSocketHandler, "/stats-socket");
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+// Suivi d'une tâche longue lancée côté serveur (création, pull de modèle, changement de port).
+// onProgress reçoit chaque ligne d'avancement ; la promesse se résout avec le message final
+// en cas de succès et est rejetée avec le message d'erreur sinon.
+function waitForJob(jobId, onProgress) {
+    return new Promise((resolve, reject) => {
+        let status = 'PENDING';
+        const source = new EventSource(`/api/jobs/${jobId}/events`);
+        source.addEventListener('status', (event) => { status = event.data; });
+        source.addEventListener('progress', (event) => { if (onProgress) onProgress(event.data); });
+        source.addEventListener('done', (event) => {
+            source.close();
+            if (status === 'SUCCEEDED') {
+                resolve(event.data);
+            } else {
+                reject(new Error(event.data));
+            }
+        });
+        source.onerror = () => {
+            // Flux coupé (proxy, redémarrage du panel) : on se rabat sur l'état de la tâche.
+            source.close();
+            fetch(`/api/jobs/${jobId}`)
+                .then(response => { if (!response.ok) throw new Error('Tâche introuvable.'); return response.json(); })
+                .then(job => {
+                    if (job.status === 'SUCCEEDED') {
+                        resolve(job.message);
+                    } else if (job.status === 'FAILED') {
+                        reject(new Error(job.message));
+                    } else {
+                        setTimeout(() => waitForJob(jobId, onProgress).then(resolve, reject), 2000);
+                    }
+                })
+                .catch(reject);
+        };
+    });
+}
@@ -0,0 +1,110 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArchiveServiceTests {
+
+    @TempDir
+    Path dir;
+
+    private final ArchiveService archiveService = new ArchiveService(6, 2, 4096);
+
+    @AfterEach
+    void shutdown() {
+        archiveService.shutdown();
+    }
+
+    @Test
+    void createThenExtractRestoresFiles() throws IOException {
+        Path source = dir.resolve("monde");
+        Files.createDirectories(source.resolve("region/vide"));
+        Files.write(source.resolve("level.dat"), TarArchiveTests.bytes(20_000, 1));
+        Files.write(source.resolve("region/r.0.0.mca"), TarArchiveTests.bytes(9_000, 2));
+
+        for (ArchiveService.Format format : ArchiveService.Format.values()) {
+            Path archive = archiveService.create(source, format, null, Long.MAX_VALUE, null);
+            Path destination = Files.createDirectories(dir.resolve("sortie-" + format));
+            Path moved = Files.move(archive, destination.resolve(archive.getFileName()));
+
+            assertEquals(2, archiveService.extract(moved, destination, Long.MAX_VALUE, null));
+            assertArrayEquals(Files.readAllBytes(source.resolve("level.dat")),
+                Files.readAllBytes(destination.resolve("monde/level.dat")));
+            assertArrayEquals(Files.readAllBytes(source.resolve("region/r.0.0.mca")),
+                Files.readAllBytes(destination.resolve("monde/region/r.0.0.mca")));
+            assertTrue(Files.isDirectory(destination.resolve("monde/region/vide")));
+        }
+    }
+
+    @Test
+    void creationStopsAtSizeLimit() throws IOException {
+        Path source = Files.createDirectories(dir.resolve("monde"));
+        Files.write(source.resolve("level.dat"), TarArchiveTests.bytes(50_000, 1));
+
+        for (ArchiveService.Format format : ArchiveService.Format.values()) {
+            assertThrows(ArchiveService.SizeLimitException.class, () -> archiveService.create(source, format, 0, 1_000, null));
+            try (var files = Files.list(dir)) {
+                assertEquals(1, files.count());
+            }
+        }
+    }
+
+    @Test
+    void extractionStopsAtSizeLimit() throws IOException {
+        Path archive = tarGz("bombe.tar.gz", "a.bin", 10_000, "b.bin", 10_000);
+
+        assertThrows(ArchiveService.SizeLimitException.class, () -> archiveService.extract(archive, dir, 15_000, null));
+        assertEquals(10_000, Files.size(dir.resolve("a.bin")));
+        assertFalse(Files.exists(dir.resolve("b.bin")));
+
+        assertEquals(2, archiveService.extract(archive, dir, 20_000, null));
+    }
+
+    @Test
+    void extractionRefusesSymlinkedParent() throws IOException {
+        Path outside = Files.createDirectories(dir.resolve("dehors"));
+        Path destination = Files.createDirectories(dir.resolve("serveur"));
+        Files.createSymbolicLink(destination.resolve("lien"), outside);
+        Path archive = tarGz("lien.tar.gz", "lien/plugins/evil.jar", 100);
+        Path moved = Files.move(archive, destination.resolve("lien.tar.gz"));
+
+        assertThrows(IOException.class, () -> archiveService.extract(moved, destination, Long.MAX_VALUE, null));
+        assertFalse(Files.exists(outside.resolve("plugins")));
+    }
+
+    @Test
+    void extractionRefusesEscapingEntries() throws IOException {
+        Path destination = Files.createDirectories(dir.resolve("serveur"));
+        Path archive = Files.move(tarGz("sortie.tar.gz", "../evil.txt", 10), destination.resolve("sortie.tar.gz"));
+
+        assertThrows(IOException.class, () -> archiveService.extract(archive, destination, Long.MAX_VALUE, null));
+        assertFalse(Files.exists(dir.resolve("evil.txt")));
+    }
+
+    // Paires nom, taille.
+    private Path tarGz(String fileName, Object... entries) throws IOException {
+        Path archive = dir.resolve(fileName);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive));
+             TarArchive.Writer tar = new TarArchive.Writer(out)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                byte[] content = TarArchiveTests.bytes((Integer) entries[i + 1], i);
+                tar.putFile((String) entries[i], content.length, 0, new ByteArrayInputStream(content));
+            }
+        }
+        return archive;
+    }
+}
@@ -0,0 +1,206 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+class BackupServiceTests {
+
+    @TempDir
+    Path dir;
+
+    private BackupService backupService;
+    private Server server;
+    private Path root;
+    private long clock = 1_700_000_000_000L;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // Serveur sans conteneur : ni Docker ni RCON ne sont sollicités.
+        backupService = new BackupService(null, null, null, null, dir.resolve("backups").toString(),
+            2, 1, 1024, 4096, 16384, 3, 7, 4, 5000);
+        root = Files.createDirectories(dir.resolve("serveur"));
+        server = new Server();
+        server.setId(1L);
+        server.setName("test");
+        server.setHostPath(root.toString());
+
+        Files.createDirectories(root.resolve("world/region"));
+        Files.createDirectories(root.resolve("plugins/vide"));
+        write("server.properties", "motd=Bonjour\n".getBytes());
+        write("world/level.dat", random(3000, 1));
+        write("world/region/r.0.0.mca", random(200_000, 2));
+        write("vide.txt", new byte[0]);
+    }
+
+    @AfterEach
+    void shutdown() {
+        backupService.shutdown();
+    }
+
+    @Test
+    void restoreGivesBackIdenticalTree() throws Exception {
+        Map<String, byte[]> original = tree();
+        BackupService.SnapshotInfo snapshot = backupService.backup(server, null);
+        assertEquals(4, snapshot.fileCount());
+
+        byte[] region = Files.readAllBytes(root.resolve("world/region/r.0.0.mca"));
+        region[100_000] ^= 1;
+        write("world/region/r.0.0.mca", region);
+        write("world/level.dat", random(3100, 3));
+        Files.delete(root.resolve("server.properties"));
+        write("logs/latest.log", "ajouté après la sauvegarde".getBytes());
+        write("plugins/nouveau.jar", random(10, 4));
+
+        List<String> progress = new ArrayList<>();
+        backupService.restore(server, snapshot.id(), progress::add);
+
+        assertEquals(original.keySet(), tree().keySet());
+        Map<String, byte[]> restored = tree();
+        original.forEach((path, content) -> assertArrayEquals(content, restored.get(path), path));
+        // r.0.0.mca, level.dat et server.properties réécrits ; logs/ et nouveau.jar supprimés.
+        assertEquals("3 fichier(s) restauré(s), 2 élément(s) supprimé(s).", progress.get(progress.size() - 1));
+    }
+
+    @Test
+    void unchangedFilesAreNeitherStoredNorRewritten() throws Exception {
+        BackupService.SnapshotInfo first = backupService.backup(server, null);
+        assertEquals(4, first.changedFiles());
+        assertTrue(first.storedBytes() > 200_000);
+
+        BackupService.SnapshotInfo second = backupService.backup(server, null);
+        assertEquals(0, second.changedFiles());
+        assertEquals(0, second.storedBytes());
+
+        // Une insertion au milieu du fichier de région ne stocke que quelques morceaux.
+        byte[] region = Files.readAllBytes(root.resolve("world/region/r.0.0.mca"));
+        byte[] modified = new byte[region.length + 10];
+        System.arraycopy(region, 0, modified, 0, 100_000);
+        System.arraycopy(region, 100_000, modified, 100_010, region.length - 100_000);
+        write("world/region/r.0.0.mca", modified);
+        BackupService.SnapshotInfo third = backupService.backup(server, null);
+        assertEquals(1, third.changedFiles());
+        assertTrue(third.storedBytes() < 3 * 16384, third.storedBytes() + " octets stockés");
+
+        List<String> progress = new ArrayList<>();
+        backupService.restore(server, third.id(), progress::add);
+        assertEquals("0 fichier(s) restauré(s), 0 élément(s) supprimé(s).", progress.get(progress.size() - 1));
+    }
+
+    @Test
+    void runningServerIsPausedOnlyToRecopyFlushedFiles() throws Exception {
+        RconService rcon = mock(RconService.class);
+        Map<String, byte[]> flushed = new TreeMap<>();
+        when(rcon.execute(any(Server.class), eq("save-all flush"))).thenAnswer(invocation -> {
+            // Le flush réécrit level.dat et crée une région, après la première copie.
+            write("world/level.dat", random(3200, 5));
+            write("world/region/r.1.0.mca", random(50_000, 6));
+            flushed.putAll(tree());
+            return "Saved the game";
+        });
+        BackupService running = runningService(rcon);
+        List<String> progress = new ArrayList<>();
+        BackupService.SnapshotInfo snapshot;
+        try {
+            snapshot = running.backup(server, progress::add);
+        } finally {
+            running.shutdown();
+        }
+        assertEquals(5, snapshot.fileCount());
+
+        InOrder order = inOrder(rcon);
+        order.verify(rcon).execute(server, "save-off");
+        order.verify(rcon).execute(server, "save-all flush");
+        order.verify(rcon).execute(server, "save-on");
+        assertTrue(progress.contains("4 fichier(s) copié(s) avant la suspension des écritures."), progress.toString());
+        assertTrue(progress.stream().anyMatch(line -> line.endsWith("(2 fichier(s) recopié(s)).")), progress.toString());
+
+        // Le snapshot contient l'état écrit par le flush.
+        write("world/level.dat", random(10, 7));
+        Files.delete(root.resolve("world/region/r.1.0.mca"));
+        server.setContainerId(null);
+        backupService.restore(server, snapshot.id(), null);
+        Map<String, byte[]> restored = tree();
+        assertEquals(flushed.keySet(), restored.keySet());
+        flushed.forEach((path, content) -> assertArrayEquals(content, restored.get(path), path));
+    }
+
+    @Test
+    void failedSaveOnIsRetriedThenFailsTheBackup() throws Exception {
+        RconService rcon = mock(RconService.class);
+        when(rcon.execute(any(Server.class), eq("save-on"))).thenThrow(new IOException("Connexion RCON fermée."));
+        BackupService running = runningService(rcon);
+        IllegalStateException error;
+        try {
+            error = assertThrows(IllegalStateException.class, () -> running.backup(server, null));
+        } finally {
+            running.shutdown();
+        }
+        assertTrue(error.getMessage().contains("toujours suspendues"), error.getMessage());
+        verify(rcon, times(2)).execute(server, "save-on");
+        verify(rcon).disconnect(server);
+        // La sauvegarde elle-même est gardée.
+        assertEquals(1, backupService.listSnapshots(server).size());
+    }
+
+    private BackupService runningService(RconService rcon) throws Exception {
+        DockerService docker = mock(DockerService.class);
+        when(docker.listRunningContainerIds()).thenReturn(Set.of("c0ffee"));
+        server.setContainerId("c0ffee");
+        return new BackupService(null, docker, rcon, null, dir.resolve("backups").toString(),
+            2, 1, 1024, 4096, 16384, 3, 7, 4, 5000);
+    }
+
+    private void write(String path, byte[] content) throws IOException {
+        Path file = root.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        // Date distincte à chaque écriture : taille et date décident de ce qui a changé.
+        clock += 1000;
+        Files.setLastModifiedTime(file, FileTime.fromMillis(clock));
+    }
+
+    // Dossiers (valeur null) et fichiers de root.
+    private Map<String, byte[]> tree() throws IOException {
+        Map<String, byte[]> tree = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(path -> !path.equals(root)).toList()) {
+                String relative = root.relativize(path).toString();
+                tree.put(relative, Files.isDirectory(path) ? null : Files.readAllBytes(path));
+            }
+        }
+        return tree;
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,101 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ContentChunkerTests {
+
+    private static final int MIN = 1024;
+    private static final int AVERAGE = 4096;
+    private static final int MAX = 16384;
+
+    private final ContentChunker chunker = new ContentChunker(MIN, AVERAGE, MAX);
+
+    @Test
+    void chunksCoverInputWithinBounds() throws IOException {
+        byte[] data = random(1 << 20, 1);
+        List<ByteBuffer> chunks = split(data);
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (int i = 0; i < chunks.size(); i++) {
+            ByteBuffer chunk = chunks.get(i);
+            joined.write(chunk.array(), 0, chunk.remaining());
+            assertTrue(chunk.remaining() <= MAX);
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.remaining() > MIN);
+            }
+        }
+        assertArrayEquals(data, joined.toByteArray());
+        // Taille moyenne du bon ordre de grandeur, pas des coupes systématiques au maximum.
+        assertTrue(chunks.size() > data.length / MAX * 2);
+        assertEquals(chunks, split(data));
+    }
+
+    @Test
+    void insertionOnlyChangesNearbyChunks() throws IOException {
+        byte[] data = random(1 << 20, 2);
+        byte[] inserted = random(100, 3);
+        int at = data.length / 2;
+        byte[] modified = new byte[data.length + inserted.length];
+        System.arraycopy(data, 0, modified, 0, at);
+        System.arraycopy(inserted, 0, modified, at, inserted.length);
+        System.arraycopy(data, at, modified, at + inserted.length, data.length - at);
+
+        List<ByteBuffer> before = split(data);
+        List<ByteBuffer> after = split(modified);
+        Set<ByteBuffer> shared = new HashSet<>(before);
+        shared.retainAll(new HashSet<>(after));
+        // Seuls le morceau touché et, au pire, ses voisins diffèrent.
+        assertTrue(before.size() - shared.size() <= 3, (before.size() - shared.size()) + " morceaux changés");
+        assertTrue(after.size() - shared.size() <= 3);
+    }
+
+    @Test
+    void shiftedContentKeepsItsChunks() throws IOException {
+        byte[] data = random(1 << 20, 4);
+        byte[] shifted = new byte[data.length + 777];
+        System.arraycopy(random(777, 5), 0, shifted, 0, 777);
+        System.arraycopy(data, 0, shifted, 777, data.length);
+
+        List<ByteBuffer> before = split(data);
+        Set<ByteBuffer> shared = new HashSet<>(before);
+        shared.retainAll(new HashSet<>(split(shifted)));
+        assertTrue(before.size() - shared.size() <= 2, (before.size() - shared.size()) + " morceaux changés");
+    }
+
+    @Test
+    void smallAndEmptyInputs() throws IOException {
+        assertTrue(split(new byte[0]).isEmpty());
+        byte[] small = random(MIN - 1, 6);
+        assertEquals(List.of(ByteBuffer.wrap(small)), split(small));
+    }
+
+    private List<ByteBuffer> split(byte[] data) throws IOException {
+        List<ByteBuffer> chunks = new ArrayList<>();
+        chunker.split(new ByteArrayInputStream(data), (buffer, offset, length) -> {
+            byte[] copy = new byte[length];
+            System.arraycopy(buffer, offset, copy, 0, length);
+            chunks.add(ByteBuffer.wrap(copy));
+        });
+        return chunks;
+    }
+
+    private static byte[] random(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
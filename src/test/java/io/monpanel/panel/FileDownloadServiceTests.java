@@ -0,0 +1,123 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class FileDownloadServiceTests {
+
+    private static final int SIZE = 1000;
+
+    @TempDir
+    Path dir;
+
+    private final FileDownloadService service = new FileDownloadService(Long.MAX_VALUE);
+    private Path file;
+    private byte[] content;
+
+    @BeforeEach
+    void writeFile() throws IOException {
+        content = TarArchiveTests.bytes(SIZE, 7);
+        file = dir.resolve("world.dat");
+        Files.write(file, content);
+    }
+
+    @Test
+    void suffixRangeSendsLastBytes() throws IOException {
+        MockHttpServletResponse response = send("bytes=-100", null);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 900-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 900, SIZE), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixLongerThanFileSendsWholeFile() throws IOException {
+        MockHttpServletResponse response = send("bytes=-5000", null);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void openEndedRangeSendsUntilEndOfFile() throws IOException {
+        MockHttpServletResponse response = send("bytes=250-", null);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 250-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(750, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(content, 250, SIZE), response.getContentAsByteArray());
+    }
+
+    @Test
+    void endPastEofIsClamped() throws IOException {
+        MockHttpServletResponse response = send("bytes=990-5000", null);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 990-999/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 990, SIZE), response.getContentAsByteArray());
+    }
+
+    @Test
+    void startPastEofIsUnsatisfiable() throws IOException {
+        MockHttpServletResponse response = send("bytes=1000-", null);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void multipleRangesSendWholeFile() throws IOException {
+        MockHttpServletResponse response = send("bytes=0-1,5-6", null);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void mismatchedIfRangeSendsWholeFile() throws IOException {
+        MockHttpServletResponse response = send("bytes=100-199", "\"0-0\"");
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void matchingIfRangeHonoursRange() throws IOException {
+        String etag = send(null, null).getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse response = send("bytes=100-199", etag);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 200), response.getContentAsByteArray());
+    }
+
+    private MockHttpServletResponse send(String range, String ifRange) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.send(file, "world.dat", request, response);
+        return response;
+    }
+}
@@ -0,0 +1,74 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class LaunchSpecTests {
+
+    @Test
+    void pelicanEggGetsPortMemoryAndHomeContainerMount() {
+        Server server = server(30000, 2048);
+        GameEgg egg = new GameEgg();
+        egg.setDocker_image("ghcr.io/parkervcp/yolks:java_21");
+        Map<String, String> environment = new LinkedHashMap<>();
+        environment.put("STARTUP", "java -Xmx{{SERVER_MEMORY}}M -jar server.jar --port {{SERVER_PORT}}");
+        environment.put(LaunchSpec.SERVER_PORT, "");
+        egg.setEnvironment(environment);
+        egg.setMount_path("/home/container");
+
+        LaunchSpec spec = LaunchSpec.resolve(server, egg);
+
+        assertEquals("/home/container", spec.mountPath());
+        assertEquals(Map.of("30000", "30000"), spec.ports());
+        assertEquals("30000", spec.environment().get(LaunchSpec.SERVER_PORT));
+        assertEquals("2048", spec.environment().get(LaunchSpec.SERVER_MEMORY));
+        assertEquals("0.0.0.0", spec.environment().get(LaunchSpec.SERVER_IP));
+        assertTrue(spec.isUdpPublished());
+
+        // Nouvelle limite : SERVER_MEMORY suit ; sans limite, une valeur utilisable dans -Xmx.
+        assertEquals("4096", spec.withLimits(4096, 2, 0).environment().get(LaunchSpec.SERVER_MEMORY));
+        assertEquals(String.valueOf(LaunchSpec.UNLIMITED_SERVER_MEMORY),
+            spec.withLimits(0, 0, 0).environment().get(LaunchSpec.SERVER_MEMORY));
+        assertEquals("/home/container", spec.withPorts(Map.of("30001", "30000")).mountPath());
+    }
+
+    @Test
+    void minecraftEggKeepsDataMountAndTcpOnly() {
+        Server server = server(25565, 4096);
+        server.setRconPort(25600);
+        server.setRconPassword("secret");
+        GameEgg egg = new GameEgg();
+        egg.setDocker_image("itzg/minecraft-server");
+
+        LaunchSpec spec = LaunchSpec.resolve(server, egg);
+
+        assertEquals(LaunchSpec.DEFAULT_MOUNT_PATH, spec.mountPath());
+        assertFalse(spec.isUdpPublished());
+        assertFalse(spec.environment().containsKey(LaunchSpec.SERVER_MEMORY));
+    }
+
+    @Test
+    void specStoredBeforeMountPathUsesData() {
+        LaunchSpec spec = new LaunchSpecConverter().convertToEntityAttribute(
+            "{\"version\":2,\"image\":\"nginx\",\"ports\":{\"8080\":\"80\"},\"environment\":{},"
+                + "\"memory\":0,\"cpu\":0.0,\"blkioWeight\":0,\"minecraft\":false}");
+
+        assertEquals(LaunchSpec.DEFAULT_MOUNT_PATH, spec.mountPath());
+        assertTrue(spec.isCurrent());
+        assertFalse(spec.isUdpPublished());
+    }
+
+    private static Server server(int hostPort, int memory) {
+        Server server = new Server();
+        server.setName("test");
+        server.setHostPort(hostPort);
+        server.setMemory(memory);
+        return server;
+    }
+}
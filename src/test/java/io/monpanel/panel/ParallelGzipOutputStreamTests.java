@@ -0,0 +1,96 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelGzipOutputStreamTests {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void multiMemberOutputReadsBackIdentical() throws Exception {
+        byte[] data = TarArchiveTests.bytes(100_000, 5);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, executor, 6, 4096, 3)) {
+            // Écritures de tailles variées, à cheval sur les blocs.
+            int offset = 0;
+            for (int length = 1; offset < data.length; length = length * 3 % 9001 + 1) {
+                int chunk = Math.min(length, data.length - offset);
+                gzip.write(data, offset, chunk);
+                offset += chunk;
+            }
+            gzip.write(42);
+        }
+
+        byte[] bytes = compressed.toByteArray();
+        assertTrue(countMembers(bytes) > 1);
+        byte[] expected = new byte[data.length + 1];
+        System.arraycopy(data, 0, expected, 0, data.length);
+        expected[data.length] = 42;
+        assertArrayEquals(expected, gunzip(bytes));
+    }
+
+    @Test
+    void emptyStreamIsValidGzip() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, executor, 6, 4096, 3).close();
+        assertEquals(1, countMembers(compressed.toByteArray()));
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+
+    @Test
+    void exactBlockMultipleAddsNoEmptyMember() throws Exception {
+        byte[] data = TarArchiveTests.bytes(3 * 4096, 9);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(compressed, executor, 1, 4096, 2)) {
+            gzip.write(data);
+        }
+        assertEquals(3, countMembers(compressed.toByteArray()));
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Membres écrits par GZIPOutputStream : en-tête de 10 octets sans option, deflate, 8 octets de fin.
+    private static int countMembers(byte[] bytes) throws DataFormatException {
+        int members = 0;
+        int position = 0;
+        byte[] output = new byte[64 * 1024];
+        while (position < bytes.length) {
+            assertEquals(0x1f, bytes[position] & 0xFF);
+            assertEquals(0x8b, bytes[position + 1] & 0xFF);
+            Inflater inflater = new Inflater(true);
+            inflater.setInput(bytes, position + 10, bytes.length - position - 10);
+            while (!inflater.finished()) {
+                inflater.inflate(output);
+            }
+            position = bytes.length - inflater.getRemaining() + 8;
+            inflater.end();
+            members++;
+        }
+        assertEquals(bytes.length, position);
+        return members;
+    }
+}
@@ -0,0 +1,130 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PortAllocatorTests {
+
+    // Plage peu courante, pour ne pas croiser un programme de la machine de test.
+    private static final int START = 47100;
+
+    private final ServerRepository serverRepository = mock(ServerRepository.class);
+    private final DockerService dockerService = mock(DockerService.class);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(serverRepository.findAll()).thenReturn(List.of());
+        when(dockerService.listPublishedPorts()).thenReturn(Set.of());
+    }
+
+    @Test
+    void allocatesInOrderThenWrapsAroundToReleasedPorts() {
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 4);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(START + i, allocator.allocate());
+        }
+        assertThrows(IllegalStateException.class, allocator::allocate);
+
+        allocator.release(START + 2);
+        assertEquals(START + 2, allocator.allocate());
+        // Le curseur est après START + 2 : la recherche repart du début de la plage.
+        allocator.release(START);
+        allocator.release(START + 1);
+        assertEquals(START, allocator.allocate());
+        assertEquals(START + 1, allocator.allocate());
+        assertThrows(IllegalStateException.class, allocator::allocate);
+    }
+
+    @Test
+    void cursorSkipsRecentlyReleasedPorts() {
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 9);
+        assertEquals(START, allocator.allocate());
+        assertEquals(START + 1, allocator.allocate());
+        allocator.release(START);
+        // Un port tout juste libéré n'est pas redonné tant que la suite de la plage est libre.
+        assertEquals(START + 2, allocator.allocate());
+    }
+
+    @Test
+    void reconciliationMarksServerAndDockerPorts() throws Exception {
+        Server server = new Server();
+        server.setHostPort(START);
+        server.setRconPort(START + 1);
+        when(serverRepository.findAll()).thenReturn(List.of(server));
+        when(dockerService.listPublishedPorts()).thenReturn(Set.of(START + 2));
+
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 9);
+        assertEquals(START + 3, allocator.allocate());
+        assertThrows(IllegalStateException.class, () -> allocator.reserve(START + 2));
+        assertEquals(START + 4, allocator.allocatePreferred(START));
+    }
+
+    @Test
+    void dockerFailureKeepsRegisteredServers() throws Exception {
+        Server server = new Server();
+        server.setHostPort(START);
+        when(serverRepository.findAll()).thenReturn(List.of(server));
+        when(dockerService.listPublishedPorts()).thenThrow(new IllegalStateException("Docker indisponible"));
+
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 9);
+        assertEquals(START + 1, allocator.allocate());
+    }
+
+    @Test
+    void portsListenedByOtherProgramsAreSkipped() throws Exception {
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 9);
+        try (ServerSocket busy = new ServerSocket()) {
+            busy.bind(new InetSocketAddress(START));
+            assertEquals(START + 1, allocator.allocate());
+            assertThrows(IllegalStateException.class, () -> allocator.reserve(START));
+            assertEquals(START + 2, allocator.allocatePreferred(START));
+        }
+    }
+
+    @Test
+    void reservedPortsOutsideRangeAreTracked() {
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 9);
+        int outside = START + 500;
+        assertEquals(outside, allocator.reserve(outside));
+        assertThrows(IllegalStateException.class, () -> allocator.reserve(outside));
+        assertNotEquals(outside, allocator.allocatePreferred(outside));
+        allocator.release(outside);
+        assertEquals(outside, allocator.reserve(outside));
+        assertThrows(IllegalStateException.class, () -> allocator.reserve(0));
+    }
+
+    @Test
+    void concurrentAllocationsNeverShareAPort() throws Exception {
+        PortAllocator allocator = new PortAllocator(serverRepository, dockerService, START, START + 99);
+        Set<Integer> ports = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 80; i++) {
+                futures.add(executor.submit(() -> ports.add(allocator.allocate())));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(80, ports.size());
+    }
+}
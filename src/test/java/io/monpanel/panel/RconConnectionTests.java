@@ -0,0 +1,214 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RconConnectionTests {
+
+    private static final String PASSWORD = "motdepasse";
+
+    private final BlockingExecutor blockingExecutor = new BlockingExecutor(16);
+    private FakeRconServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new FakeRconServer();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.close();
+        blockingExecutor.shutdown();
+    }
+
+    @Test
+    void wrongPasswordIsRefused() {
+        IOException error = assertThrows(IOException.class, () -> open("mauvais"));
+        assertTrue(error.getMessage().contains("refusé"), error.getMessage());
+    }
+
+    @Test
+    void commandsUseOddIdsFollowedByAnEvenEmptyMarker() throws Exception {
+        try (RconConnection connection = open(PASSWORD)) {
+            assertEquals("Réponse à list", connection.send("list").get(5, TimeUnit.SECONDS));
+            assertEquals("Réponse à say salut", connection.send("say salut").get(5, TimeUnit.SECONDS));
+        }
+        List<Packet> packets = server.received;
+        // Authentification, puis commande + marqueur pour chacune.
+        assertEquals(5, packets.size());
+        assertEquals(3, packets.get(0).type());
+        for (int i = 1; i < packets.size(); i += 2) {
+            Packet command = packets.get(i);
+            Packet marker = packets.get(i + 1);
+            assertEquals(2, command.type());
+            assertEquals(1, command.id() & 1);
+            assertEquals(0, marker.type());
+            assertEquals("", marker.body());
+            assertEquals(command.id() + 1, marker.id());
+        }
+    }
+
+    @Test
+    void responseSplitAcrossPacketsIsJoined() throws Exception {
+        try (RconConnection connection = open(PASSWORD)) {
+            String response = connection.send("split").get(5, TimeUnit.SECONDS);
+            assertEquals("morceau 1;morceau 2;morceau 3;", response);
+        }
+    }
+
+    @Test
+    void pipelinedCommandsGetTheirOwnResponses() throws Exception {
+        try (RconConnection connection = open(PASSWORD)) {
+            CompletableFuture<String> first = connection.send("un");
+            CompletableFuture<String> split = connection.send("split");
+            CompletableFuture<String> last = connection.send("deux");
+            assertEquals("Réponse à un", first.get(5, TimeUnit.SECONDS));
+            assertEquals("morceau 1;morceau 2;morceau 3;", split.get(5, TimeUnit.SECONDS));
+            assertEquals("Réponse à deux", last.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void lateResponseOfCancelledCommandIsIgnored() throws Exception {
+        try (RconConnection connection = open(PASSWORD)) {
+            CompletableFuture<String> slow = connection.send("lent");
+            server.slowReceived.await(5, TimeUnit.SECONDS);
+            slow.cancel(false);
+            // La réponse arrive après l'abandon : elle ne doit pas être attribuée à la suivante.
+            server.releaseSlow.countDown();
+            assertEquals("Réponse à suivante", connection.send("suivante").get(5, TimeUnit.SECONDS));
+            assertTrue(connection.isOpen());
+        }
+    }
+
+    @Test
+    void closedSocketFailsPendingCommands() throws Exception {
+        try (RconConnection connection = open(PASSWORD)) {
+            CompletableFuture<String> slow = connection.send("lent");
+            server.slowReceived.await(5, TimeUnit.SECONDS);
+            server.close();
+            ExecutionException error = assertThrows(ExecutionException.class, () -> slow.get(5, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof EOFException, error.getCause().toString());
+            assertFalse(connection.isOpen());
+            assertThrows(IOException.class, () -> connection.send("list"));
+        }
+    }
+
+    private RconConnection open(String password) throws IOException {
+        return RconConnection.open("127.0.0.1", server.port(), password, 5000, blockingExecutor);
+    }
+
+    private record Packet(int id, int type, String body) {
+    }
+
+    /**
+     * Serveur RCON à la manière de Minecraft : une réponse par commande (en plusieurs paquets
+     * pour "split", retenue jusqu'à releaseSlow pour "lent"), et "Unknown request 0" pour le
+     * paquet vide de type 0 qui sert de marqueur de fin.
+     */
+    private static class FakeRconServer implements AutoCloseable {
+        final ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        final List<Packet> received = new CopyOnWriteArrayList<>();
+        final CountDownLatch slowReceived = new CountDownLatch(1);
+        final CountDownLatch releaseSlow = new CountDownLatch(1);
+        volatile Socket client;
+
+        FakeRconServer() throws IOException {
+            Thread.ofVirtual().start(this::serve);
+        }
+
+        int port() {
+            return listener.getLocalPort();
+        }
+
+        private void serve() {
+            try (Socket socket = listener.accept()) {
+                client = socket;
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                while (true) {
+                    Packet packet = read(in);
+                    received.add(packet);
+                    switch (packet.type()) {
+                        case 3 -> {
+                            write(out, packet.id(), 0, "");
+                            write(out, PASSWORD.equals(packet.body()) ? packet.id() : -1, 2, "");
+                        }
+                        case 2 -> respond(out, packet);
+                        default -> write(out, packet.id(), 0, "Unknown request " + Integer.toHexString(packet.type()));
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // Client parti ou serveur fermé.
+            }
+        }
+
+        private void respond(OutputStream out, Packet packet) throws IOException, InterruptedException {
+            switch (packet.body()) {
+                case "split" -> {
+                    for (int i = 1; i <= 3; i++) {
+                        write(out, packet.id(), 0, "morceau " + i + ";");
+                    }
+                }
+                case "lent" -> {
+                    slowReceived.countDown();
+                    releaseSlow.await();
+                    write(out, packet.id(), 0, "Réponse tardive");
+                }
+                default -> write(out, packet.id(), 0, "Réponse à " + packet.body());
+            }
+        }
+
+        private static Packet read(DataInputStream in) throws IOException {
+            byte[] header = new byte[4];
+            in.readFully(header);
+            byte[] data = new byte[ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt()];
+            in.readFully(data);
+            ByteBuffer packet = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+            int id = packet.getInt();
+            int type = packet.getInt();
+            return new Packet(id, type, new String(data, 8, data.length - 10, StandardCharsets.UTF_8));
+        }
+
+        private static void write(OutputStream out, int id, int type, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer packet = ByteBuffer.allocate(14 + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+            packet.putInt(10 + bytes.length).putInt(id).putInt(type).put(bytes).put((byte) 0).put((byte) 0);
+            out.write(packet.array());
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            Socket socket = client;
+            if (socket != null) {
+                socket.close();
+            }
+            listener.close();
+            releaseSlow.countDown();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearchIndexServiceTests {
+
+    private static final String LONG_WORD = "a".repeat(70) + "tailmarker" + "b".repeat(30);
+
+    @TempDir
+    Path root;
+
+    private final SearchIndexService service = new SearchIndexService(new BlockingExecutor(16) {
+        @Override
+        public void execute(String name, Runnable task) {
+            task.run();
+        }
+    }, 1024 * 1024, Long.MAX_VALUE);
+
+    private Server server;
+
+    @BeforeEach
+    void createFiles() throws IOException {
+        Files.writeString(root.resolve("server.properties"), "motd=A Minecraft Server\nlevel-name=world\n");
+        Files.createDirectories(root.resolve("config"));
+        Files.writeString(root.resolve("config/secret.txt"), "token=" + LONG_WORD + "\n");
+        Files.writeString(root.resolve("config/other.txt"), "nothing to see here\n");
+        server = new Server();
+        server.setId(1L);
+        server.setHostPath(root.toString());
+    }
+
+    @Test
+    void substringOfAWordIsFound() throws IOException {
+        assertPaths(search("necraf"), "server.properties");
+        assertPaths(search("level-name=wor"), "server.properties");
+        assertPaths(search("othing to se"), "config/other.txt");
+    }
+
+    @Test
+    void missingWordFindsNothing() throws IOException {
+        SearchIndexService.SearchResult result = search("nether");
+        assertTrue(result.indexed());
+        assertEquals(0, result.hits().size());
+    }
+
+    @Test
+    void wordsLongerThanTheIndexLimitAreStillFound() throws IOException {
+        assertPaths(search("tailmarker"), "config/secret.txt");
+        assertPaths(search("tailmarker" + "b".repeat(30)), "config/secret.txt");
+        assertPaths(search(LONG_WORD), "config/secret.txt");
+        assertPaths(search("token=" + LONG_WORD.substring(0, 80)), "config/secret.txt");
+        assertPaths(search("=" + LONG_WORD), "config/secret.txt");
+    }
+
+    private SearchIndexService.SearchResult search(String query) throws IOException {
+        return service.search(server, root, query, 100);
+    }
+
+    private static void assertPaths(SearchIndexService.SearchResult result, String... paths) {
+        assertTrue(result.indexed());
+        assertEquals(List.of(paths), result.hits().stream().map(SearchIndexService.SearchHit::path).toList());
+    }
+}
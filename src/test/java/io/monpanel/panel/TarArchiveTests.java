@@ -0,0 +1,213 @@
+package io.monpanel.panel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TarArchiveTests {
+
+    private static final long MTIME = 1_700_000_000_000L;
+
+    @Test
+    void roundTripKeepsNamesAndContent() throws IOException {
+        String longName = "mondes/" + "sous-dossier-".repeat(12) + "/region.mca";
+        String accented = "données/été/carte_château.dat";
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("server.properties", "motd=Bonjour\n".getBytes(StandardCharsets.UTF_8));
+        files.put(longName, bytes(5000, 7));
+        files.put(accented, bytes(513, 3));
+        files.put("vide.txt", new byte[0]);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchive.Writer tar = new TarArchive.Writer(archive)) {
+            tar.putDirectory("données", MTIME);
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                tar.putFile(file.getKey(), file.getValue().length, MTIME, new ByteArrayInputStream(file.getValue()));
+            }
+        }
+        assertEquals(0, archive.size() % (20 * 512));
+
+        List<String> directories = new ArrayList<>();
+        Map<String, byte[]> read = new LinkedHashMap<>();
+        TarArchive.read(new ByteArrayInputStream(archive.toByteArray()), (name, directory, size, mtime, data) -> {
+            assertEquals(MTIME, mtime);
+            if (directory) {
+                directories.add(name);
+            } else {
+                byte[] content = data.readAllBytes();
+                assertEquals(size, content.length);
+                read.put(name, content);
+            }
+        });
+
+        assertEquals(List.of("données/"), directories);
+        assertEquals(files.keySet(), read.keySet());
+        files.forEach((name, content) -> assertArrayEquals(content, read.get(name), name));
+    }
+
+    @Test
+    void paxFallbackNamesFitInHeader() throws IOException {
+        String longName = "a/".repeat(150) + "fichier.txt";
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchive.Writer tar = new TarArchive.Writer(archive)) {
+            tar.putFile(longName, 0, MTIME, InputStream.nullInputStream());
+        }
+        byte[] bytes = archive.toByteArray();
+        String paxHeaderName = headerName(bytes, 0);
+        String fallbackName = headerName(bytes, 2 * 512);
+
+        assertTrue(paxHeaderName.startsWith("PaxHeaders/"));
+        assertEquals("PaxHeaders/" + fallbackName, paxHeaderName);
+        assertTrue(longName.endsWith(fallbackName));
+        assertTrue(paxHeaderName.length() <= 100);
+    }
+
+    @Test
+    void sizeAboveOctalLimitGoesThroughPaxRecord() throws IOException {
+        long size = 8L * 1024 * 1024 * 1024 + 1;
+        // Seuls les en-têtes sont gardés : le contenu (des zéros) est juste compté.
+        HeaderCapture capture = new HeaderCapture(3 * 512);
+        try (TarArchive.Writer tar = new TarArchive.Writer(capture)) {
+            tar.putFile("monde.tar", size, MTIME, new Zeros(new byte[0], size));
+        }
+        assertEquals(0, capture.count % 512);
+
+        InputStream archive = new Zeros(capture.headers.toByteArray(), capture.count - capture.headers.size());
+        List<Long> sizes = new ArrayList<>();
+        TarArchive.read(archive, (name, directory, entrySize, mtime, data) -> {
+            assertEquals("monde.tar", name);
+            sizes.add(entrySize);
+        });
+        assertEquals(List.of(size), sizes);
+    }
+
+    @Test
+    void emptyArchive() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        new TarArchive.Writer(archive).close();
+        assertEquals(20 * 512, archive.size());
+
+        List<String> names = new ArrayList<>();
+        TarArchive.read(new ByteArrayInputStream(archive.toByteArray()), (name, directory, size, mtime, data) -> names.add(name));
+        TarArchive.read(InputStream.nullInputStream(), (name, directory, size, mtime, data) -> names.add(name));
+        assertTrue(names.isEmpty());
+    }
+
+    @Test
+    void shortenedFileIsPaddedWithZeros() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        long copied;
+        try (TarArchive.Writer tar = new TarArchive.Writer(archive)) {
+            copied = tar.putFile("latest.log", 1000, MTIME, new ByteArrayInputStream(bytes(600, 1)));
+        }
+        assertEquals(600, copied);
+
+        byte[][] content = new byte[1][];
+        TarArchive.read(new ByteArrayInputStream(archive.toByteArray()), (name, directory, size, mtime, data) ->
+            content[0] = data.readAllBytes());
+        assertEquals(1000, content[0].length);
+        assertFalse(content[0][599] == 0);
+        assertEquals(0, content[0][999]);
+    }
+
+    static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    private static String headerName(byte[] archive, int offset) {
+        int end = offset;
+        while (end < offset + 100 && archive[end] != 0) {
+            end++;
+        }
+        return new String(archive, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /** Garde les premiers octets écrits et compte les suivants. */
+    private static class HeaderCapture extends OutputStream {
+        private final ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        private final int keep;
+        private long count = 0;
+
+        HeaderCapture(int keep) {
+            this.keep = keep;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            int kept = (int) Math.max(0, Math.min(length, keep - count));
+            headers.write(bytes, offset, kept);
+            count += length;
+        }
+    }
+
+    /** prefix puis length octets nuls, sautés sans être lus. */
+    private static class Zeros extends InputStream {
+        private final byte[] prefix;
+        private int position = 0;
+        private long remaining;
+
+        Zeros(byte[] prefix, long length) {
+            this.prefix = prefix;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position < prefix.length) {
+                int read = Math.min(length, prefix.length - position);
+                System.arraycopy(prefix, position, buffer, offset, read);
+                position += read;
+                return read;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = (int) Math.min(length, remaining);
+            Arrays.fill(buffer, offset, offset + read, (byte) 0);
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            if (position < prefix.length) {
+                int skipped = (int) Math.min(n, prefix.length - position);
+                position += skipped;
+                return skipped;
+            }
+            long skipped = Math.max(0, Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+    }
+}